@@ -88,7 +88,7 @@ public abstract class DeviceInfo extends InstrumentationTestCase {
                 jsonFile = new File(dir, getClass().getSimpleName() + ".deviceinfo.json");
                 jsonFile.createNewFile();
                 mResultFilePath = jsonFile.getAbsolutePath();
-                try (DeviceInfoStore store = new DeviceInfoStore(jsonFile)) {
+                try (DeviceInfoStore store = new DeviceInfoStore(jsonFile, isCompactOutput())) {
                     store.open();
                     collectDeviceInfo(store);
                 } finally {
@@ -133,6 +133,14 @@ public abstract class DeviceInfo extends InstrumentationTestCase {
      */
     protected abstract void collectDeviceInfo(DeviceInfoStore store) throws Exception;
 
+    /**
+     * Whether to write the results as compact JSON rather than pretty printed, collectors with a
+     * lot of results should override this to keep the file small.
+     */
+    protected boolean isCompactOutput() {
+        return false;
+    }
+
     protected Context getContext() {
         return getInstrumentation().getContext();
     }
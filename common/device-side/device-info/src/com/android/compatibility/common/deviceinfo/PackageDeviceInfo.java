@@ -55,4 +55,10 @@ public class PackageDeviceInfo extends DeviceInfo {
         }
         store.endArray(); // Package
     }
+
+    @Override
+    protected boolean isCompactOutput() {
+        // There is a group for every installed package.
+        return true;
+    }
 }
@@ -17,6 +17,7 @@ package com.android.compatibility.common.util;
 
 import android.util.JsonWriter;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -27,15 +28,28 @@ import java.util.List;
 
 public class DeviceInfoStore extends InfoStore {
 
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     protected File mJsonFile;
     protected JsonWriter mJsonWriter = null;
+    private final boolean mCompact;
 
     public DeviceInfoStore() {
         mJsonFile = null;
+        mCompact = false;
     }
 
     public DeviceInfoStore(File file) throws Exception {
+        this(file, false);
+    }
+
+    /**
+     * @param compact whether to write the JSON without any whitespace instead of pretty printing
+     *     it, for collectors that write a lot of results.
+     */
+    public DeviceInfoStore(File file, boolean compact) throws Exception {
         mJsonFile = file;
+        mCompact = compact;
     }
 
     /**
@@ -44,9 +58,11 @@ public class DeviceInfoStore extends InfoStore {
     @Override
     public void open() throws IOException {
         FileOutputStream out = new FileOutputStream(mJsonFile);
-        mJsonWriter = new JsonWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
-        // TODO(agathaman): remove to make json output less pretty
-        mJsonWriter.setIndent("  ");
+        mJsonWriter = new JsonWriter(new BufferedWriter(
+                new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE));
+        if (!mCompact) {
+            mJsonWriter.setIndent("  ");
+        }
         mJsonWriter.beginObject();
     }
 
@@ -0,0 +1,434 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.compatibility.common.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads the same headers and symbols as {@link ReadElf}, from a memory-mapped file instead of a
+ * {@link java.io.RandomAccessFile}. Headers are decoded with absolute gets on the mapping instead
+ * of a seek & read per field, symbol tables are only decoded on the first lookup, and recently
+ * read symbol names are shared by all instances.
+ */
+public class MappedReadElf implements AutoCloseable {
+    /** The magic values for the ELF identification. */
+    private static final byte[] ELFMAG = {
+            (byte) 0x7F, (byte) 'E', (byte) 'L', (byte) 'F', };
+
+    private static final int EI_NIDENT = 16;
+
+    private static final int EI_CLASS = 4;
+    private static final int EI_DATA = 5;
+
+    private static final int EM_386 = 3;
+    private static final int EM_MIPS = 8;
+    private static final int EM_ARM = 40;
+    private static final int EM_X86_64 = 62;
+    // http://en.wikipedia.org/wiki/Qualcomm_Hexagon
+    private static final int EM_QDSP6 = 164;
+    private static final int EM_AARCH64 = 183;
+
+    private static final int ELFCLASS32 = 1;
+    private static final int ELFCLASS64 = 2;
+
+    private static final int ELFDATA2LSB = 1;
+    private static final int ELFDATA2MSB = 2;
+
+    private static final int EV_CURRENT = 1;
+
+    private static final long PT_LOAD = 1;
+
+    private static final int SHT_SYMTAB = 2;
+    private static final int SHT_STRTAB = 3;
+    private static final int SHT_DYNAMIC = 6;
+    private static final int SHT_DYNSYM = 11;
+
+    /** Longest string read from a string table, same as {@link ReadElf}. */
+    private static final int MAX_STRING_LENGTH = 512;
+
+    /** Number of symbol names kept in the pool, several times the dynamic symbols of libc. */
+    private static final int STRING_POOL_SIZE = 8192;
+
+    /**
+     * The most recently used symbol names, as most libraries import the same libc symbols. Least
+     * recently used names are dropped so that a process reading many libraries does not keep all
+     * of their names alive.
+     */
+    private static final Map<String, String> sStringPool = Collections.synchronizedMap(
+            new LinkedHashMap<String, String>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > STRING_POOL_SIZE;
+                }
+            });
+
+    private final String mPath;
+    private final ByteBuffer mBuffer;
+    private boolean mClosed;
+    private boolean mIsDynamic;
+    private boolean mIsPIE;
+    private int mType;
+    private int mAddrSize;
+
+    /** Symbol Table offset */
+    private long mSymTabOffset;
+
+    /** Symbol Table size */
+    private long mSymTabSize;
+
+    /** Dynamic Symbol Table offset */
+    private long mDynSymOffset;
+
+    /** Dynamic Symbol Table size */
+    private long mDynSymSize;
+
+    /** Section Header String Table offset */
+    private long mShStrTabOffset;
+
+    /** Section Header String Table size */
+    private long mShStrTabSize;
+
+    /** String Table offset */
+    private long mStrTabOffset;
+
+    /** String Table size */
+    private long mStrTabSize;
+
+    /** Dynamic String Table offset */
+    private long mDynStrOffset;
+
+    /** Dynamic String Table size */
+    private long mDynStrSize;
+
+    /** Symbol Table symbol names */
+    private Map<String, ReadElf.Symbol> mSymbols;
+
+    /** Dynamic Symbol Table symbol names */
+    private Map<String, ReadElf.Symbol> mDynamicSymbols;
+
+    public static MappedReadElf read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed.
+            return new MappedReadElf(
+                    file.getPath(), channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Reads an ELF file which is already in memory, e.g. a library inside an APK.
+     *
+     * @param path the path of the file for error messages
+     * @param buffer the content of the file from its current position
+     */
+    public static MappedReadElf read(String path, ByteBuffer buffer) throws IOException {
+        return new MappedReadElf(path, buffer.slice());
+    }
+
+    public boolean isDynamic() {
+        return mIsDynamic;
+    }
+
+    public int getType() {
+        return mType;
+    }
+
+    public boolean isPIE() {
+        return mIsPIE;
+    }
+
+    private MappedReadElf(String path, ByteBuffer buffer) throws IOException {
+        mPath = path;
+        mBuffer = buffer;
+
+        if (mBuffer.limit() < EI_NIDENT) {
+            throw new IllegalArgumentException("Too small to be an ELF file: " + path);
+        }
+
+        try {
+            readHeader();
+        } catch (IndexOutOfBoundsException e) {
+            // ReadElf hits the end of the file instead.
+            throw new IOException("Truncated ELF file: " + path, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        // The mapping is released once this is unreachable.
+        mClosed = true;
+    }
+
+    private void readHeader() throws IOException {
+        if (mBuffer.get(0) != ELFMAG[0] || mBuffer.get(1) != ELFMAG[1] ||
+                mBuffer.get(2) != ELFMAG[2] || mBuffer.get(3) != ELFMAG[3]) {
+            throw new IllegalArgumentException("Invalid ELF file: " + mPath);
+        }
+
+        int elfClass = mBuffer.get(EI_CLASS);
+        if (elfClass == ELFCLASS32) {
+            mAddrSize = 4;
+        } else if (elfClass == ELFCLASS64) {
+            mAddrSize = 8;
+        } else {
+            throw new IOException("Invalid ELF EI_CLASS: " + elfClass + ": " + mPath);
+        }
+
+        int endian = mBuffer.get(EI_DATA);
+        if (endian == ELFDATA2LSB) {
+            mBuffer.order(ByteOrder.LITTLE_ENDIAN);
+        } else if (endian == ELFDATA2MSB) {
+            throw new IOException("Unsupported ELFDATA2MSB file: " + mPath);
+        } else {
+            throw new IOException("Invalid ELF EI_DATA: " + endian + ": " + mPath);
+        }
+
+        int offset = EI_NIDENT;
+        mType = getHalf(offset);
+        offset += 2;
+
+        int e_machine = getHalf(offset);
+        offset += 2;
+        if (e_machine != EM_386 && e_machine != EM_X86_64 &&
+                e_machine != EM_AARCH64 && e_machine != EM_ARM &&
+                e_machine != EM_MIPS &&
+                e_machine != EM_QDSP6) {
+            throw new IOException("Invalid ELF e_machine: " + e_machine + ": " + mPath);
+        }
+
+        // AbiTest relies on us rejecting any unsupported combinations.
+        if ((e_machine == EM_386 && elfClass != ELFCLASS32) ||
+                (e_machine == EM_X86_64 && elfClass != ELFCLASS64) ||
+                (e_machine == EM_AARCH64 && elfClass != ELFCLASS64) ||
+                (e_machine == EM_ARM && elfClass != ELFCLASS32) ||
+                (e_machine == EM_QDSP6 && elfClass != ELFCLASS32)) {
+            throw new IOException("Invalid e_machine/EI_CLASS ELF combination: " +
+                    e_machine + "/" + elfClass + ": " + mPath);
+        }
+
+        long e_version = getWord(offset);
+        offset += 4;
+        if (e_version != EV_CURRENT) {
+            throw new IOException("Invalid e_version: " + e_version + ": " + mPath);
+        }
+
+        // Skips e_entry.
+        offset += mAddrSize;
+        long ph_off = getX(offset);
+        offset += mAddrSize;
+        long sh_off = getX(offset);
+        offset += mAddrSize;
+
+        // Skips e_flags & e_ehsize.
+        offset += 6;
+        int e_phentsize = getHalf(offset);
+        int e_phnum = getHalf(offset + 2);
+        int e_shentsize = getHalf(offset + 4);
+        int e_shnum = getHalf(offset + 6);
+        int e_shstrndx = getHalf(offset + 8);
+
+        readSectionHeaders(sh_off, e_shnum, e_shentsize, e_shstrndx);
+        readProgramHeaders(ph_off, e_phnum, e_phentsize);
+
+        // The tables are read later with absolute gets, reject them while read() can still throw.
+        checkSection(".shstrtab", mShStrTabOffset, mShStrTabSize);
+        checkSection(".symtab", mSymTabOffset, mSymTabSize);
+        checkSection(".strtab", mStrTabOffset, mStrTabSize);
+        checkSection(".dynsym", mDynSymOffset, mDynSymSize);
+        checkSection(".dynstr", mDynStrOffset, mDynStrSize);
+    }
+
+    private void checkSection(String name, long offset, long size) throws IOException {
+        if (offset < 0 || size < 0 || offset > mBuffer.limit()
+                || size > mBuffer.limit() - offset) {
+            throw new IOException("Invalid " + name + " section at " + offset + " of size " + size
+                    + ": " + mPath);
+        }
+    }
+
+    private void readSectionHeaders(long sh_off, int e_shnum, int e_shentsize, int e_shstrndx) {
+        // Read the Section Header String Table offset first.
+        {
+            int shdr = (int) (sh_off + e_shstrndx * e_shentsize);
+            long sh_type = getWord(shdr + 4);
+            if (sh_type == SHT_STRTAB) {
+                mShStrTabOffset = getSectionOffset(shdr);
+                mShStrTabSize = getSectionSize(shdr);
+            }
+        }
+
+        for (int i = 0; i < e_shnum; ++i) {
+            // Don't bother to re-read the Section Header StrTab.
+            if (i == e_shstrndx) {
+                continue;
+            }
+
+            int shdr = (int) (sh_off + i * e_shentsize);
+            long sh_name = getWord(shdr);
+            long sh_type = getWord(shdr + 4);
+
+            if (sh_type == SHT_SYMTAB || sh_type == SHT_DYNSYM) {
+                final String symTabName = readShStrTabEntry(sh_name);
+                if (".symtab".equals(symTabName)) {
+                    mSymTabOffset = getSectionOffset(shdr);
+                    mSymTabSize = getSectionSize(shdr);
+                } else if (".dynsym".equals(symTabName)) {
+                    mDynSymOffset = getSectionOffset(shdr);
+                    mDynSymSize = getSectionSize(shdr);
+                }
+            } else if (sh_type == SHT_STRTAB) {
+                final String strTabName = readShStrTabEntry(sh_name);
+                if (".strtab".equals(strTabName)) {
+                    mStrTabOffset = getSectionOffset(shdr);
+                    mStrTabSize = getSectionSize(shdr);
+                } else if (".dynstr".equals(strTabName)) {
+                    mDynStrOffset = getSectionOffset(shdr);
+                    mDynStrSize = getSectionSize(shdr);
+                }
+            } else if (sh_type == SHT_DYNAMIC) {
+                mIsDynamic = true;
+            }
+        }
+    }
+
+    private void readProgramHeaders(long ph_off, int e_phnum, int e_phentsize) {
+        for (int i = 0; i < e_phnum; ++i) {
+            int phdr = (int) (ph_off + i * e_phentsize);
+
+            long p_type = getWord(phdr);
+            if (p_type == PT_LOAD) {
+                // p_vaddr follows p_offset, and p_flags in Elf64_phdr only.
+                int p_vaddr = mAddrSize == 8 ? phdr + 16 : phdr + 8;
+                if (getX(p_vaddr) == 0) {
+                    mIsPIE = true;
+                }
+            }
+        }
+    }
+
+    private long getSectionOffset(int shdr) {
+        // Elf32_Shdr: sh_name, sh_type, sh_flags, sh_addr are 4 bytes each.
+        // Elf64_Shdr: sh_name, sh_type are 4 bytes; sh_flags, sh_addr are 8 bytes each.
+        return getX(shdr + 8 + 2 * mAddrSize);
+    }
+
+    private long getSectionSize(int shdr) {
+        return getX(shdr + 8 + 3 * mAddrSize);
+    }
+
+    private HashMap<String, ReadElf.Symbol> readSymbolTable(long symStrOffset, long symStrSize,
+            long tableOffset, long tableSize) {
+        HashMap<String, ReadElf.Symbol> result = new HashMap<String, ReadElf.Symbol>();
+        // Elf32_Sym: st_name, st_value, st_size, st_info, st_other, st_shndx
+        // Elf64_Sym: st_name, st_info, st_other, st_shndx, st_value, st_size
+        int entrySize = mAddrSize == 8 ? 24 : 16;
+        int infoOffset = mAddrSize == 8 ? 4 : 12;
+        for (long sym = tableOffset; sym + entrySize <= tableOffset + tableSize;
+                sym += entrySize) {
+            long st_name = getWord((int) sym);
+            if (st_name == 0) {
+                continue;
+            }
+            int st_info = mBuffer.get((int) sym + infoOffset) & 0xff;
+
+            final String symName = readStrTabEntry(symStrOffset, symStrSize, st_name);
+            if (symName != null) {
+                ReadElf.Symbol s = new ReadElf.Symbol(symName, st_info);
+                result.put(symName, s);
+            }
+        }
+        return result;
+    }
+
+    private String readShStrTabEntry(long strOffset) {
+        if (mShStrTabOffset == 0 || strOffset < 0 || strOffset >= mShStrTabSize) {
+            return null;
+        }
+        return readString(mShStrTabOffset + strOffset);
+    }
+
+    private String readStrTabEntry(long tableOffset, long tableSize, long strOffset) {
+        if (tableOffset == 0 || strOffset < 0 || strOffset >= tableSize) {
+            return null;
+        }
+        return readString(tableOffset + strOffset);
+    }
+
+    private int getHalf(int offset) {
+        return mBuffer.getShort(offset) & 0xffff;
+    }
+
+    private long getWord(int offset) {
+        return mBuffer.getInt(offset) & 0xffffffffL;
+    }
+
+    private long getX(int offset) {
+        return mAddrSize == 8 ? mBuffer.getLong(offset) : getWord(offset);
+    }
+
+    private String readString(long offset) {
+        int start = (int) offset;
+        int end = (int) Math.min(mBuffer.limit(), offset + MAX_STRING_LENGTH);
+        for (int i = start; i < end; ++i) {
+            if (mBuffer.get(i) == 0) {
+                byte[] bytes = new byte[i - start];
+                for (int j = 0; j < bytes.length; ++j) {
+                    bytes[j] = mBuffer.get(start + j);
+                }
+                return intern(new String(bytes));
+            }
+        }
+
+        return null;
+    }
+
+    private static String intern(String str) {
+        String pooled = sStringPool.putIfAbsent(str, str);
+        return pooled != null ? pooled : str;
+    }
+
+    public ReadElf.Symbol getSymbol(String name) {
+        checkNotClosed();
+        if (mSymbols == null) {
+            mSymbols = readSymbolTable(mStrTabOffset, mStrTabSize, mSymTabOffset, mSymTabSize);
+        }
+        return mSymbols.get(name);
+    }
+
+    public ReadElf.Symbol getDynamicSymbol(String name) {
+        checkNotClosed();
+        if (mDynamicSymbols == null) {
+            mDynamicSymbols = readSymbolTable(
+                    mDynStrOffset, mDynStrSize, mDynSymOffset, mDynSymSize);
+        }
+        return mDynamicSymbols.get(name);
+    }
+
+    private void checkNotClosed() {
+        if (mClosed) {
+            throw new IllegalStateException("Already closed: " + mPath);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+package com.android.compatibility.common.util;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.fail;
+
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+
+/**
+ * Tests for {@link MappedReadElf}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MappedReadElfTest {
+
+    private static final String[] LIBRARIES = {
+            "/system/lib/libc.so",
+            "/system/lib/libEGL.so",
+            "/system/lib64/libc.so",
+            "/system/lib64/libEGL.so",
+    };
+
+    private static final String[] SYMBOLS = {
+            "malloc", "free", "dlopen", "eglGetDisplay", "__cxa_finalize", "not_a_symbol",
+    };
+
+    @Test
+    public void testSameAsReadElf() throws Exception {
+        for (String path : LIBRARIES) {
+            File file = new File(path);
+            if (!file.exists()) {
+                continue;
+            }
+            try (ReadElf expected = ReadElf.read(file);
+                    MappedReadElf actual = MappedReadElf.read(file)) {
+                assertEquals(path, expected.getType(), actual.getType());
+                assertEquals(path, expected.isDynamic(), actual.isDynamic());
+                assertEquals(path, expected.isPIE(), actual.isPIE());
+                for (String name : SYMBOLS) {
+                    assertSameSymbol(path, expected.getSymbol(name), actual.getSymbol(name));
+                    assertSameSymbol(path, expected.getDynamicSymbol(name),
+                            actual.getDynamicSymbol(name));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testInternsSymbolNames() throws Exception {
+        File libc = new File("/system/lib/libc.so");
+        if (!libc.exists()) {
+            libc = new File("/system/lib64/libc.so");
+        }
+        try (MappedReadElf first = MappedReadElf.read(libc);
+                MappedReadElf second = MappedReadElf.read(libc)) {
+            ReadElf.Symbol symbol = first.getDynamicSymbol("malloc");
+            assertNotNull(symbol);
+            assertSame(symbol.name, second.getDynamicSymbol("malloc").name);
+        }
+    }
+
+    @Test
+    public void testClosed() throws Exception {
+        File libc = new File("/system/lib/libc.so");
+        if (!libc.exists()) {
+            libc = new File("/system/lib64/libc.so");
+        }
+        MappedReadElf elf = MappedReadElf.read(libc);
+        elf.close();
+        try {
+            elf.getDynamicSymbol("malloc");
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    private static void assertSameSymbol(String path, ReadElf.Symbol expected,
+            ReadElf.Symbol actual) {
+        assertEquals(path, String.valueOf(expected), String.valueOf(actual));
+    }
+}
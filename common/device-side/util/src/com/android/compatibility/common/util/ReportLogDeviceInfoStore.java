@@ -17,12 +17,15 @@ package com.android.compatibility.common.util;
 
 import android.util.JsonWriter;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
 
 public class ReportLogDeviceInfoStore extends DeviceInfoStore {
 
@@ -40,31 +43,9 @@ public class ReportLogDeviceInfoStore extends DeviceInfoStore {
     @Override
     public void open() throws IOException {
         // Write new metrics to a temp file to avoid invalid JSON files due to failed tests.
-        BufferedWriter formatWriter;
         tempJsonFile = File.createTempFile(mStreamName, "-temp-report-log");
-        formatWriter = new BufferedWriter(new FileWriter(tempJsonFile));
-        if (mJsonFile.exists()) {
-            BufferedReader jsonReader = new BufferedReader(new FileReader(mJsonFile));
-            String currentLine;
-            String nextLine = jsonReader.readLine();
-            while ((currentLine = nextLine) != null) {
-                nextLine = jsonReader.readLine();
-                if (nextLine == null && currentLine.charAt(currentLine.length() - 1) == '}') {
-                    // Reopen overall JSON object to write new metrics.
-                    currentLine = currentLine.substring(0, currentLine.length() - 1) + ",";
-                }
-                // Copy to temp file directly to avoid large metrics string in memory.
-                formatWriter.write(currentLine, 0, currentLine.length());
-            }
-            jsonReader.close();
-        } else {
-            formatWriter.write("{", 0 , 1);
-        }
-        // Start new JSON object for new metrics.
-        formatWriter.write("\"" + mStreamName + "\":", 0, mStreamName.length() + 3);
-        formatWriter.flush();
-        formatWriter.close();
-        mJsonWriter = new JsonWriter(new FileWriter(tempJsonFile, true));
+        mJsonWriter = new JsonWriter(new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(tempJsonFile), StandardCharsets.UTF_8)));
         mJsonWriter.beginObject();
     }
 
@@ -76,21 +57,72 @@ public class ReportLogDeviceInfoStore extends DeviceInfoStore {
         // Close JSON Writer.
         mJsonWriter.endObject();
         mJsonWriter.close();
-        // Close overall JSON Object.
-        try (BufferedWriter formatWriter = new BufferedWriter(new FileWriter(tempJsonFile, true))) {
-            formatWriter.write("}", 0, 1);
+        // Append the metrics in place of the end of the overall JSON object, so that only the new
+        // stream is written however many streams the report log already holds.
+        try (RandomAccessFile report = new RandomAccessFile(mJsonFile, "rw")) {
+            long end = findEndOfObject(report);
+            if (end == -1) {
+                report.setLength(0);
+                report.write('{');
+            } else {
+                report.seek(end);
+                if (!isEmptyObject(report, end)) {
+                    report.write(',');
+                }
+            }
+            report.write(("\"" + mStreamName + "\":").getBytes(StandardCharsets.UTF_8));
+            // Copy from temp file directly to avoid large metrics string in memory.
+            try (InputStream metrics = new FileInputStream(tempJsonFile)) {
+                byte[] buffer = new byte[8 * 1024];
+                int read;
+                while ((read = metrics.read(buffer)) != -1) {
+                    report.write(buffer, 0, read);
+                }
+            }
+            // Close overall JSON Object.
+            report.write('}');
+            report.setLength(report.getFilePointer());
+            report.getFD().sync();
+        } finally {
+            tempJsonFile.delete();
+        }
+    }
+
+    /**
+     * Returns the offset of the closing brace of the overall JSON object, or -1 if the report
+     * log is empty.
+     */
+    private static long findEndOfObject(RandomAccessFile report) throws IOException {
+        long offset = findLastNonWhitespace(report, report.length());
+        if (offset == -1) {
+            return -1;
         }
-        // Copy metrics from temp file and delete temp file.
-        mJsonFile.createNewFile();
-        try (
-                BufferedReader jsonReader = new BufferedReader(new FileReader(tempJsonFile));
-                BufferedWriter metricsWriter = new BufferedWriter(new FileWriter(mJsonFile))
-        ) {
-            String line;
-            while ((line = jsonReader.readLine()) != null) {
-                // Copy from temp file directly to avoid large metrics string in memory.
-                metricsWriter.write(line, 0, line.length());
+        report.seek(offset);
+        if (report.read() != '}') {
+            throw new IOException("Report log is not a JSON object");
+        }
+        return offset;
+    }
+
+    private static boolean isEmptyObject(RandomAccessFile report, long end) throws IOException {
+        long offset = findLastNonWhitespace(report, end);
+        if (offset == -1) {
+            throw new IOException("Report log is not a JSON object");
+        }
+        report.seek(offset);
+        boolean empty = report.read() == '{';
+        report.seek(end);
+        return empty;
+    }
+
+    private static long findLastNonWhitespace(RandomAccessFile report, long end)
+            throws IOException {
+        for (long offset = end - 1; offset >= 0; offset--) {
+            report.seek(offset);
+            if (!Character.isWhitespace(report.read())) {
+                return offset;
             }
         }
+        return -1;
     }
 }
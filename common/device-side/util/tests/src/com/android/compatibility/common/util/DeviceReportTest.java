@@ -68,10 +68,12 @@ public class DeviceReportTest extends TestCase {
     private static final ResultUnit TEST_UNIT_4 = ResultUnit.COUNT;
     private static final String REPORT_NAME_1 = "TestReport1";
     private static final String REPORT_NAME_2 = "TestReport2";
+    private static final String REPORT_NAME_3 = "TestReport3";
     private static final String STREAM_NAME_1 = "SampleStream1";
     private static final String STREAM_NAME_2 = "SampleStream2";
     private static final String STREAM_NAME_3 = "SampleStream3";
     private static final String STREAM_NAME_4 = "SampleStream4";
+    private static final int STREAM_COUNT = 100;
 
     public void testSubmit() throws Exception {
         DeviceReportLog log = new DeviceReportLog(REPORT_NAME_1, STREAM_NAME_1);
@@ -151,4 +153,35 @@ public class DeviceReportTest extends TestCase {
         assertTrue("Incorrect metrics",
                 jsonObject.getJSONObject(STREAM_NAME_4).getDouble(TEST_MESSAGE_4) == TEST_VALUE_4);
     }
+
+    public void testManyStreams() throws Exception {
+        final File dir = new File(Environment.getExternalStorageDirectory(), "report-log-files");
+        assertTrue("Report Log directory missing", dir.isDirectory() || dir.mkdirs());
+        File jsonFile = new File(dir, REPORT_NAME_3 + ".reportlog.json");
+        jsonFile.delete();
+
+        TestInstrumentation inst = new TestInstrumentation();
+        for (int i = 0; i < STREAM_COUNT; i++) {
+            DeviceReportLog log = new DeviceReportLog(REPORT_NAME_3, STREAM_NAME_1 + i, dir);
+            log.addValue(TEST_MESSAGE_1, i, TEST_TYPE_1, TEST_UNIT_1);
+            log.submit(inst);
+        }
+        // A stream that is never submitted is not part of the report.
+        DeviceReportLog unsubmitted = new DeviceReportLog(REPORT_NAME_3, STREAM_NAME_2, dir);
+        unsubmitted.addValue(TEST_MESSAGE_2, TEST_VALUE_2, TEST_TYPE_2, TEST_UNIT_2);
+
+        BufferedReader jsonReader = new BufferedReader(new FileReader(jsonFile));
+        StringBuilder metricsBuilder = new StringBuilder();
+        String line;
+        while ((line = jsonReader.readLine()) != null) {
+            metricsBuilder.append(line);
+        }
+        JSONObject jsonObject = new JSONObject(metricsBuilder.toString().trim());
+        assertEquals("Incorrect stream count", STREAM_COUNT, jsonObject.length());
+        for (int i = 0; i < STREAM_COUNT; i++) {
+            assertEquals("Incorrect metrics", i,
+                    jsonObject.getJSONObject(STREAM_NAME_1 + i).getInt(TEST_MESSAGE_1));
+        }
+        assertFalse("Unsubmitted stream in report", jsonObject.has(STREAM_NAME_2));
+    }
 }
@@ -23,16 +23,10 @@ import static android.atrace.cts.AtraceDeviceTestList.beginEndSection;
 import static android.atrace.cts.AtraceDeviceTestList.counter;
 import static android.atrace.cts.AtraceDeviceTestList.launchActivity;
 
-import com.android.tradefed.log.LogUtil.CLog;
-
-import java.io.BufferedReader;
-import java.io.Reader;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import kotlin.Unit;
 import trebuchet.model.Counter;
@@ -49,48 +43,6 @@ import trebuchet.queries.slices.*;
  */
 public class AtraceHostTest extends AtraceHostTestBase {
 
-    private interface FtraceEntryCallback {
-        void onTraceEntry(String threadName, int pid, int tid, String eventType, String args);
-        void onFinished();
-    }
-
-    /**
-     * Helper for parsing ftrace data.
-     * Regexs copied from (and should be kept in sync with) ftrace importer in catapult.
-     */
-    private static class FtraceParser {
-        private static final Pattern sFtraceLine = Pattern.compile(
-                "^ *(.{1,16})-(\\d+) +(?:\\( *(\\d+)?-*\\) )?\\[(\\d+)] (?:[dX.]...)? *([\\d.]*): *"
-                + "([^:]*): *(.*) *$");
-
-        private static void parseLine(String line, FtraceEntryCallback callback) {
-            Matcher m = sFtraceLine.matcher(line);
-            if (m.matches()) {
-                callback.onTraceEntry(
-                        /*threadname*/ m.group(1),
-                        /*pid*/ (m.group(3) == null || m.group(3).startsWith("-")) ? -1 : Integer.parseInt(m.group(3)),
-                        /*tid*/ Integer.parseInt(m.group(2)),
-                        /*eventName*/ m.group(6),
-                        /*details*/ m.group(7));
-                return;
-            }
-
-            CLog.i("line doesn't match: " + line);
-        }
-
-        private static void parse(Reader reader, FtraceEntryCallback callback) throws Exception {
-            try {
-                BufferedReader bufferedReader = new BufferedReader(reader);
-                String line;
-                while ((line = bufferedReader.readLine()) != null) {
-                    FtraceParser.parseLine(line, callback);
-                }
-            } finally {
-                callback.onFinished();
-            }
-        }
-    }
-
     /**
      * Tests that atrace exists and is runnable with no args
      */
@@ -28,14 +28,9 @@ import com.android.tradefed.result.TestRunResult;
 import com.android.tradefed.testtype.DeviceTestCase;
 import com.android.tradefed.testtype.IBuildReceiver;
 
-import trebuchet.io.BufferProducer;
-import trebuchet.io.DataSlice;
 import trebuchet.model.Model;
-import trebuchet.task.ImportTask;
-import trebuchet.util.PrintlnImportFeedback;
 
 import java.io.FileNotFoundException;
-import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
@@ -198,32 +193,24 @@ public class AtraceHostTestBase extends DeviceTestCase implements IBuildReceiver
         }
     }
 
-    private static class StringAdapter implements BufferProducer {
-        private byte[] data;
-        private boolean hasRead = false;
-
-        StringAdapter(String str) {
-            this.data = str.getBytes(StandardCharsets.UTF_8);
-        }
-
-        @Override
-        public DataSlice next() {
-            if (!hasRead) {
-                hasRead = true;
-                return new DataSlice(data);
-            }
-            return null;
+    /**
+     * Runs a shell command and imports its output as a trace while it streams in.
+     */
+    private Model shellTrace(String command, String... args) {
+        if (args != null && args.length > 0) {
+            command += " " + String.join(" ", args);
         }
-
-        @Override
-        public void close() {
-            hasRead = true;
+        TraceOutputReceiver receiver = new TraceOutputReceiver();
+        try {
+            getDevice().executeShellCommand(command, receiver);
+        } catch (DeviceNotAvailableException ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            receiver.flush();
         }
-    }
-
-    private Model parse(String traceOutput) {
-        ImportTask importTask = new ImportTask(new PrintlnImportFeedback());
-        return importTask.importTrace(new StringAdapter(traceOutput));
+        Model model = receiver.getModel();
+        assertTrue("unable to capture atrace output", receiver.getReceivedBytes() > 0);
+        return model;
     }
 
     protected final PidTidPair runSingleAppTest(AtraceDeviceTestList test) {
@@ -235,9 +222,8 @@ public class AtraceHostTestBase extends DeviceTestCase implements IBuildReceiver
         requireApk();
         shell(withAppTracing ? START_TRACE_CMD : START_TRACE_NO_APP_CMD, categories);
         PidTidPair pidTid = runSingleAppTest(test);
-        String traceOutput = shell("atrace --async_stop", categories);
-        assertNotNull("unable to capture atrace output", traceOutput);
-        return new TraceResult(pidTid, parse(traceOutput));
+        Model model = shellTrace("atrace --async_stop", categories);
+        return new TraceResult(pidTid, model);
     }
 
     protected final TraceResult traceSingleTest(AtraceDeviceTestList test, String... categories) {
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.atrace.cts;
+
+import com.android.ddmlib.IShellOutputReceiver;
+
+import trebuchet.io.BufferProducer;
+import trebuchet.io.DataSlice;
+import trebuchet.model.Model;
+import trebuchet.task.ImportTask;
+import trebuchet.util.PrintlnImportFeedback;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Imports the output of a shell command as a trace while it is being received, instead of
+ * collecting all of it into a String first.
+ *
+ * <p>Chunks of output are handed to an import thread through a bounded queue, so at most
+ * {@link #QUEUE_SIZE} chunks are held on top of the model being built. {@link #getModel()} must
+ * be called once the command is done, even if it failed, so that the import thread sees the end
+ * of the output.
+ */
+class TraceOutputReceiver implements IShellOutputReceiver {
+
+    private static final int QUEUE_SIZE = 64;
+    private static final byte[] END_OF_OUTPUT = new byte[0];
+
+    private final BlockingQueue<byte[]> mChunks = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    private final FutureTask<Model> mModel;
+    private volatile boolean mCancelled = false;
+    private boolean mEnded = false;
+    private long mReceivedBytes = 0;
+
+    TraceOutputReceiver() {
+        mModel = new FutureTask<>(() -> {
+            try {
+                ImportTask importTask = new ImportTask(new PrintlnImportFeedback());
+                return importTask.importTrace(new ChunkProducer());
+            } finally {
+                // Unblock addOutput() if the import stopped before the end of the output.
+                mCancelled = true;
+                mChunks.clear();
+            }
+        });
+        final Thread thread = new Thread(mModel, "TraceOutputReceiver");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void addOutput(byte[] data, int offset, int length) {
+        if (mCancelled || length == 0) {
+            return;
+        }
+        mReceivedBytes += length;
+        // The receiver reuses its buffer, and the importer may keep the slices it was given.
+        put(Arrays.copyOfRange(data, offset, offset + length));
+    }
+
+    @Override
+    public void flush() {
+        endOutput();
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * Returns the number of bytes of output received so far.
+     */
+    long getReceivedBytes() {
+        return mReceivedBytes;
+    }
+
+    /**
+     * Waits for the importer to reach the end of the output and returns the trace model.
+     */
+    Model getModel() {
+        endOutput();
+        try {
+            return mModel.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while importing the trace", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to import the trace", e.getCause());
+        }
+    }
+
+    private void endOutput() {
+        if (!mEnded) {
+            mEnded = true;
+            put(END_OF_OUTPUT);
+        }
+    }
+
+    private void put(byte[] chunk) {
+        try {
+            while (!mCancelled) {
+                if (mChunks.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            mCancelled = true;
+        }
+    }
+
+    private class ChunkProducer implements BufferProducer {
+        private boolean mDone = false;
+
+        @Override
+        public DataSlice next() {
+            if (mDone) {
+                return null;
+            }
+            try {
+                byte[] chunk = mChunks.take();
+                if (chunk == END_OF_OUTPUT) {
+                    mDone = true;
+                    return null;
+                }
+                return new DataSlice(chunk);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                mDone = true;
+                return null;
+            }
+        }
+
+        @Override
+        public void close() {
+            mDone = true;
+        }
+    }
+}
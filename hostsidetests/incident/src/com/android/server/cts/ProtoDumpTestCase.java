@@ -21,7 +21,6 @@ import com.android.ddmlib.IShellOutputReceiver;
 import com.android.ddmlib.testrunner.RemoteAndroidTestRunner;
 import com.android.ddmlib.testrunner.TestResult.TestStatus;
 import com.android.tradefed.build.IBuildInfo;
-import com.android.tradefed.device.CollectingByteOutputReceiver;
 import com.android.tradefed.device.CollectingOutputReceiver;
 import com.android.tradefed.device.DeviceNotAvailableException;
 import com.android.tradefed.log.LogUtil.CLog;
@@ -97,9 +96,14 @@ public class ProtoDumpTestCase extends DeviceTestCase implements IBuildReceiver
      *      the proto. Note that a 0 length buffer is not necessarily an error.
      */
     public <T extends MessageLite> T getDump(Parser<T> parser, String command) throws Exception {
-        final CollectingByteOutputReceiver receiver = new CollectingByteOutputReceiver();
-        getDevice().executeShellCommand(command, receiver);
-        return parser.parseFrom(receiver.getOutput());
+        // Parse the output as it arrives rather than collecting it first.
+        final ProtoOutputReceiver<T> receiver = new ProtoOutputReceiver<>(parser);
+        try {
+            getDevice().executeShellCommand(command, receiver);
+        } finally {
+            receiver.flush();
+        }
+        return receiver.getResult();
     }
 
     /**
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.server.cts;
+
+import com.android.ddmlib.IShellOutputReceiver;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Parser;
+
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Parses the output of a shell command as a proto while it is being received, instead of
+ * collecting all of it into a byte array first.
+ *
+ * <p>The output is piped to a parser thread. {@link #getResult()} must be called once the command
+ * is done, even if it failed, so that the parser thread sees the end of the output.
+ *
+ * <p>The incident and statsd host tests do not share a library, so an identical copy of this
+ * class is in the {@code android.cts.statsd.atom} package of the statsd host tests.
+ * Keep the two in sync.
+ */
+public class ProtoOutputReceiver<T extends MessageLite> implements IShellOutputReceiver {
+
+    private static final int PIPE_SIZE = 256 * 1024;
+
+    private final PipedOutputStream mOutput = new PipedOutputStream();
+    private final FutureTask<T> mResult;
+    private volatile boolean mCancelled = false;
+
+    public ProtoOutputReceiver(Parser<T> parser) {
+        final PipedInputStream input = new PipedInputStream(PIPE_SIZE);
+        try {
+            input.connect(mOutput);
+        } catch (IOException e) {
+            // Cannot happen, neither end is connected yet.
+            throw new IllegalStateException(e);
+        }
+        mResult = new FutureTask<>(() -> {
+            try {
+                CodedInputStream codedInput = CodedInputStream.newInstance(input);
+                // Reports of long running tests can be larger than the default limit.
+                codedInput.setSizeLimit(Integer.MAX_VALUE);
+                return parser.parseFrom(codedInput);
+            } finally {
+                input.close();
+            }
+        });
+        final Thread thread = new Thread(mResult, "ProtoOutputReceiver");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void addOutput(byte[] data, int offset, int length) {
+        if (mCancelled) {
+            return;
+        }
+        try {
+            mOutput.write(data, offset, length);
+        } catch (IOException e) {
+            // The parser gave up, the error is reported by getResult().
+            mCancelled = true;
+        }
+    }
+
+    @Override
+    public void flush() {
+        closeOutput();
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * Waits for the parser to reach the end of the output and returns the parsed proto.
+     *
+     * @throws InvalidProtocolBufferException If there was an error parsing the proto.
+     */
+    public T getResult() throws InvalidProtocolBufferException {
+        closeOutput();
+        try {
+            return mResult.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InvalidProtocolBufferException("Interrupted while parsing the output");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof InvalidProtocolBufferException) {
+                throw (InvalidProtocolBufferException) cause;
+            }
+            InvalidProtocolBufferException exception =
+                    new InvalidProtocolBufferException("Failed to parse the output: " + cause);
+            exception.initCause(cause);
+            throw exception;
+        }
+    }
+
+    private void closeOutput() {
+        try {
+            mOutput.close();
+        } catch (IOException e) {
+            // Nothing left to write.
+        }
+    }
+}
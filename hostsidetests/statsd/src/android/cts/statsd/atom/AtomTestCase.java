@@ -110,6 +110,19 @@ public class AtomTestCase extends BaseTestCase {
     protected static final long SCREEN_STATE_CHANGE_TIMEOUT = 4000;
     protected static final long SCREEN_STATE_POLLING_INTERVAL = 500;
 
+    /** First interval between two checks of {@link #waitFor}. */
+    private static final long WAIT_FOR_INITIAL_INTERVAL = 50;
+    /** Longest interval between two checks of {@link #waitFor}. */
+    private static final long WAIT_FOR_MAX_INTERVAL = 2_000;
+
+    /** How long incidentd may take to log that it fired. */
+    private static final long INCIDENTD_TIMEOUT = 1_000;
+
+    /** A condition on the device that {@link #waitFor} polls. */
+    protected interface Condition {
+        boolean isMet() throws Exception;
+    }
+
     @Override
     protected void setUp() throws Exception {
         super.setUp();
@@ -136,11 +149,30 @@ public class AtomTestCase extends BaseTestCase {
     protected boolean didIncidentdFireSince(String date) throws Exception {
         final String INCIDENTD_TAG = "incidentd";
         final String INCIDENTD_STARTED_STRING = "reportIncident";
-        // TODO: Do something more robust than this in case of delayed logging.
-        Thread.sleep(1000);
-        String log = getLogcatSince(date, String.format(
-                "-s %s -e %s", INCIDENTD_TAG, INCIDENTD_STARTED_STRING));
-        return log.contains(INCIDENTD_STARTED_STRING);
+        return waitFor(() -> getLogcatSince(date, String.format(
+                "-s %s -e %s", INCIDENTD_TAG, INCIDENTD_STARTED_STRING))
+                .contains(INCIDENTD_STARTED_STRING), INCIDENTD_TIMEOUT);
+    }
+
+    /**
+     * Polls the condition until it is met or the timeout elapses. The interval between two
+     * checks starts short and doubles, so that the wait ends soon after the device gets there
+     * however fast or slow it is.
+     *
+     * @return whether the condition was met.
+     */
+    protected boolean waitFor(Condition condition, long timeoutMs) throws Exception {
+        final long deadline = System.currentTimeMillis() + timeoutMs;
+        long interval = WAIT_FOR_INITIAL_INTERVAL;
+        while (!condition.isMet()) {
+            final long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            Thread.sleep(Math.min(interval, remaining));
+            interval = Math.min(interval * 2, WAIT_FOR_MAX_INTERVAL);
+        }
+        return true;
     }
 
     protected boolean checkDeviceFor(String methodName) throws Exception {
@@ -253,9 +285,12 @@ public class AtomTestCase extends BaseTestCase {
         }
         data.sort(Comparator.comparing(EventMetricData::getElapsedTimestampNanos));
 
-        LogUtil.CLog.d("Get EventMetricDataList as following:\n");
-        for (EventMetricData d : data) {
-            LogUtil.CLog.d("Atom at " + d.getElapsedTimestampNanos() + ":\n" + d.getAtom().toString());
+        if (isDumpLoggingEnabled()) {
+            LogUtil.CLog.d("Get EventMetricDataList as following:\n");
+            for (EventMetricData d : data) {
+                LogUtil.CLog.d("Atom at " + d.getElapsedTimestampNanos() + ":\n"
+                        + d.getAtom().toString());
+            }
         }
         return data;
     }
@@ -276,9 +311,11 @@ public class AtomTestCase extends BaseTestCase {
             }
         }
 
-        LogUtil.CLog.d("Get GaugeMetricDataList as following:\n");
-        for (Atom d : data) {
-            LogUtil.CLog.d("Atom:\n" + d.toString());
+        if (isDumpLoggingEnabled()) {
+            LogUtil.CLog.d("Get GaugeMetricDataList as following:\n");
+            for (Atom d : data) {
+                LogUtil.CLog.d("Atom:\n" + d.toString());
+            }
         }
         return data;
     }
@@ -297,9 +334,11 @@ public class AtomTestCase extends BaseTestCase {
             data.addAll(metric.getDurationMetrics().getDataList());
         }
 
-        LogUtil.CLog.d("Got DurationMetricDataList as following:\n");
-        for (DurationMetricData d : data) {
-            LogUtil.CLog.d("Duration " + d);
+        if (isDumpLoggingEnabled()) {
+            LogUtil.CLog.d("Got DurationMetricDataList as following:\n");
+            for (DurationMetricData d : data) {
+                LogUtil.CLog.d("Duration " + d);
+            }
         }
         return data;
     }
@@ -318,9 +357,11 @@ public class AtomTestCase extends BaseTestCase {
             data.addAll(metric.getCountMetrics().getDataList());
         }
 
-        LogUtil.CLog.d("Got CountMetricDataList as following:\n");
-        for (CountMetricData d : data) {
-            LogUtil.CLog.d("Count " + d);
+        if (isDumpLoggingEnabled()) {
+            LogUtil.CLog.d("Got CountMetricDataList as following:\n");
+            for (CountMetricData d : data) {
+                LogUtil.CLog.d("Count " + d);
+            }
         }
         return data;
     }
@@ -339,9 +380,11 @@ public class AtomTestCase extends BaseTestCase {
             data.addAll(metric.getValueMetrics().getDataList());
         }
 
-        LogUtil.CLog.d("Got ValueMetricDataList as following:\n");
-        for (ValueMetricData d : data) {
-            LogUtil.CLog.d("Value " + d);
+        if (isDumpLoggingEnabled()) {
+            LogUtil.CLog.d("Got ValueMetricDataList as following:\n");
+            for (ValueMetricData d : data) {
+                LogUtil.CLog.d("Value " + d);
+            }
         }
         return data;
     }
@@ -379,7 +422,7 @@ public class AtomTestCase extends BaseTestCase {
             BatteryStatsProto batteryStatsProto = getDump(BatteryStatsServiceDumpProto.parser(),
                     String.join(" ", DUMP_BATTERYSTATS_CMD,
                             "--proto")).getBatterystats();
-            LogUtil.CLog.d("Got batterystats:\n " + batteryStatsProto.toString());
+            logDump("Got batterystats:\n ", batteryStatsProto);
             return batteryStatsProto;
         } catch (com.google.protobuf.InvalidProtocolBufferException e) {
             LogUtil.CLog.e("Failed to dump batterystats proto");
@@ -398,7 +441,7 @@ public class AtomTestCase extends BaseTestCase {
             for (ByteString reportListBytes : statsProto.getConfigMetricsReportListList()) {
                 reports.add(ConfigMetricsReportList.parseFrom(reportListBytes));
             }
-            LogUtil.CLog.d("Got dumpsys stats output:\n " + reports.toString());
+            logDump("Got dumpsys stats output:\n ", reports);
             return reports;
         } catch (com.google.protobuf.InvalidProtocolBufferException e) {
             LogUtil.CLog.e("Failed to dumpsys stats proto");
@@ -421,9 +464,11 @@ public class AtomTestCase extends BaseTestCase {
                     stats.toByteArray());
                 processStatsProtoList.add(procStats);
             }
-            LogUtil.CLog.d("Got procstats:\n ");
-            for (ProcessStatsProto processStatsProto : processStatsProtoList) {
-                LogUtil.CLog.d(processStatsProto.toString());
+            if (isDumpLoggingEnabled()) {
+                LogUtil.CLog.d("Got procstats:\n ");
+                for (ProcessStatsProto processStatsProto : processStatsProtoList) {
+                    LogUtil.CLog.d(processStatsProto.toString());
+                }
             }
             return processStatsProtoList;
         } catch (com.google.protobuf.InvalidProtocolBufferException e) {
@@ -449,9 +494,11 @@ public class AtomTestCase extends BaseTestCase {
                   ProcessStatsPackageProto.parser().parseFrom(pkgStast.toByteArray());
                 processStatsProtoList.add(pkgAtom);
             }
-            LogUtil.CLog.d("Got procstats:\n ");
-            for (ProcessStatsPackageProto processStatsProto : processStatsProtoList) {
-                LogUtil.CLog.d(processStatsProto.toString());
+            if (isDumpLoggingEnabled()) {
+                LogUtil.CLog.d("Got procstats:\n ");
+                for (ProcessStatsPackageProto processStatsProto : processStatsProtoList) {
+                    LogUtil.CLog.d(processStatsProto.toString());
+                }
             }
             return processStatsProtoList;
         } catch (com.google.protobuf.InvalidProtocolBufferException e) {
@@ -464,7 +511,7 @@ public class AtomTestCase extends BaseTestCase {
         try {
             BatteryServiceDumpProto batteryProto = getDump(BatteryServiceDumpProto.parser(),
                     String.join(" ", DUMP_BATTERY_CMD, "--proto"));
-            LogUtil.CLog.d("Got battery service dump:\n " + batteryProto.toString());
+            logDump("Got battery service dump:\n ", batteryProto);
             return batteryProto.getIsPresent();
         } catch (com.google.protobuf.InvalidProtocolBufferException e) {
             LogUtil.CLog.e("Failed to dump batteryservice proto");
@@ -611,38 +658,28 @@ public class AtomTestCase extends BaseTestCase {
      */
     public void assertStatesOccurred(List<Set<Integer>> stateSets, List<EventMetricData> data,
             int wait, Function<Atom, Integer> getStateFromAtom) {
+        final long[] timestampsNs = new long[data.size()];
+        final int[] states = new int[data.size()];
+        for (int i = 0; i < states.length; i++) {
+            timestampsNs[i] = data.get(i).getElapsedTimestampNanos();
+            states[i] = getStateFromAtom.apply(data.get(i).getAtom());
+        }
         // Sometimes, there are more events than there are states.
         // Eg: When the screen turns off, it may go into OFF and then DOZE immediately.
-        assertTrue("Too few states found (" + data.size() + ")", data.size() >= stateSets.size());
-        int stateSetIndex = 0; // Tracks which state set we expect the data to be in.
-        for (int dataIndex = 0; dataIndex < data.size(); dataIndex++) {
-            Atom atom = data.get(dataIndex).getAtom();
-            int state = getStateFromAtom.apply(atom);
-            // If state is in the current state set, we do not assert anything.
-            // If it is not, we expect to have transitioned to the next state set.
-            if (stateSets.get(stateSetIndex).contains(state)) {
-                // No need to assert anything. Just log it.
-                LogUtil.CLog.i("The following atom at dataIndex=" + dataIndex + " is "
-                        + "in stateSetIndex " + stateSetIndex + ":\n"
-                        + data.get(dataIndex).getAtom().toString());
-            } else {
-                stateSetIndex += 1;
-                LogUtil.CLog.i("Assert that the following atom at dataIndex=" + dataIndex + " is"
-                        + " in stateSetIndex " + stateSetIndex + ":\n"
-                        + data.get(dataIndex).getAtom().toString());
-                assertTrue("Missed first state", dataIndex != 0); // should not be on first data
-                assertTrue("Too many states (" + (stateSetIndex + 1) + ")",
-                        stateSetIndex < stateSets.size());
-                assertTrue("Is in wrong state (" + state + ")",
-                        stateSets.get(stateSetIndex).contains(state));
-                if (wait > 0) {
-                    assertTimeDiffBetween(data.get(dataIndex - 1), data.get(dataIndex),
-                            wait / 2, wait * 5);
-                }
+        final StateSequenceMatcher.Violation violation =
+                new StateSequenceMatcher(stateSets, wait).match(timestampsNs, states);
+        if (violation != null) {
+            // Only render the atoms around the violation.
+            final StringBuilder message = new StringBuilder(violation.getMessage());
+            for (int i = violation.getContextStart(); i < violation.getContextEnd(states.length);
+                    i++) {
+                message.append(i == violation.getIndex() ? "\n> " : "\n  ")
+                        .append("dataIndex=").append(i)
+                        .append(" at ").append(timestampsNs[i])
+                        .append(": ").append(data.get(i).getAtom().toString().trim());
             }
+            fail(message.toString());
         }
-        assertTrue("Too few states (" + (stateSetIndex + 1) + ")",
-                stateSetIndex == stateSets.size() - 1);
     }
 
     /**
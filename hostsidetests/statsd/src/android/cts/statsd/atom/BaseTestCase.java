@@ -22,7 +22,7 @@ import com.android.compatibility.common.tradefed.build.CompatibilityBuildHelper;
 import com.android.ddmlib.testrunner.RemoteAndroidTestRunner;
 import com.android.ddmlib.testrunner.TestResult.TestStatus;
 import com.android.tradefed.build.IBuildInfo;
-import com.android.tradefed.device.CollectingByteOutputReceiver;
+import com.android.tradefed.config.Option;
 import com.android.tradefed.device.DeviceNotAvailableException;
 import com.android.tradefed.log.LogUtil.CLog;
 import com.android.tradefed.result.CollectingTestListener;
@@ -45,6 +45,11 @@ import javax.annotation.Nullable;
 // Largely copied from incident's ProtoDumpTestCase
 public class BaseTestCase extends DeviceTestCase implements IBuildReceiver {
 
+    @Option(name = "log-dumps",
+            description = "Log the protos dumped from the device at debug level. Rendering large "
+                    + "reports as text can take longer than the test itself.")
+    private boolean mLogDumps = false;
+
     protected IBuildInfo mCtsBuild;
 
     private static final String TEST_RUNNER = "androidx.test.runner.AndroidJUnitRunner";
@@ -87,9 +92,30 @@ public class BaseTestCase extends DeviceTestCase implements IBuildReceiver {
      */
     public <T extends MessageLite> T getDump(Parser<T> parser, String command)
             throws DeviceNotAvailableException, InvalidProtocolBufferException {
-        final CollectingByteOutputReceiver receiver = new CollectingByteOutputReceiver();
-        getDevice().executeShellCommand(command, receiver);
-        return parser.parseFrom(receiver.getOutput());
+        // Parse the output as it arrives rather than collecting it first.
+        final ProtoOutputReceiver<T> receiver = new ProtoOutputReceiver<>(parser);
+        try {
+            getDevice().executeShellCommand(command, receiver);
+        } finally {
+            receiver.flush();
+        }
+        return receiver.getResult();
+    }
+
+    /**
+     * Whether the protos dumped from the device are logged, see the log-dumps option.
+     */
+    protected boolean isDumpLoggingEnabled() {
+        return mLogDumps;
+    }
+
+    /**
+     * Logs a proto dumped from the device at debug level, if the log-dumps option is set.
+     */
+    protected void logDump(String message, Object dump) {
+        if (mLogDumps) {
+            CLog.d(message + dump);
+        }
     }
 
     /**
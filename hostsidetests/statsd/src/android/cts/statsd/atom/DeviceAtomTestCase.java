@@ -294,14 +294,8 @@ public class DeviceAtomTestCase extends AtomTestCase {
 
     protected boolean waitForStatsServiceStart(final long waitTime) throws Exception {
         LogUtil.CLog.i("Waiting %d ms for stats service to start", waitTime);
-        int counter = 1;
-        long startTime = System.currentTimeMillis();
-        while ((System.currentTimeMillis() - startTime) < waitTime) {
-            if ("running".equals(getProperty("init.svc.statsd"))) {
-                return true;
-            }
-            Thread.sleep(Math.min(200 * counter, 2_000));
-            counter++;
+        if (waitFor(() -> "running".equals(getProperty("init.svc.statsd")), waitTime)) {
+            return true;
         }
         LogUtil.CLog.w("Stats service did not start after %d ms", waitTime);
         return false;
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.cts.statsd.atom;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Checks that a trace of states went through an ordered list of state sets, in a single pass
+ * over primitive arrays.
+ *
+ * <p>Every state of the trace must be in the current state set or, if it is not, in the next one.
+ * The trace must start in the first state set and end in the last one. When a wait is given,
+ * consecutive states that are in different sets must be between wait / 2 and wait * 5 ms apart.
+ */
+public class StateSequenceMatcher {
+
+    /** Number of states logged on each side of a violation. */
+    private static final int CONTEXT_SIZE = 3;
+
+    private final int[][] mStateSets;
+    private final int mWait;
+
+    /**
+     * @param stateSets the state sets, in the order the trace must go through them
+     * @param wait the wait in ms between the transitions, or 0 to not check the timing
+     */
+    public StateSequenceMatcher(List<Set<Integer>> stateSets, int wait) {
+        mStateSets = new int[stateSets.size()][];
+        for (int i = 0; i < mStateSets.length; i++) {
+            mStateSets[i] = stateSets.get(i).stream().mapToInt(Integer::intValue).sorted()
+                    .toArray();
+        }
+        mWait = wait;
+    }
+
+    /**
+     * Matches a trace.
+     *
+     * @param timestampsNs the timestamps of the states, in ascending order
+     * @param states the states
+     * @return the first violation, or null if the trace matches.
+     */
+    public Violation match(long[] timestampsNs, int[] states) {
+        if (states.length < mStateSets.length) {
+            return new Violation("Too few states found (" + states.length + ")", -1);
+        }
+        int stateSetIndex = 0; // Tracks which state set we expect the data to be in.
+        for (int i = 0; i < states.length; i++) {
+            // If the state is in the current state set, we do not check anything.
+            // If it is not, we expect to have transitioned to the next state set.
+            if (contains(stateSetIndex, states[i])) {
+                continue;
+            }
+            stateSetIndex++;
+            if (i == 0) {
+                return new Violation("Missed first state", i);
+            }
+            if (stateSetIndex >= mStateSets.length) {
+                return new Violation("Too many states (" + (stateSetIndex + 1) + ")", i);
+            }
+            if (!contains(stateSetIndex, states[i])) {
+                return new Violation("Is in wrong state (" + states[i] + ")", i);
+            }
+            if (mWait > 0) {
+                final long diffMs = (timestampsNs[i] - timestampsNs[i - 1]) / 1_000_000;
+                if (diffMs < mWait / 2 || diffMs > mWait * 5) {
+                    return new Violation("Illegal time difference (" + diffMs + "ms)", i);
+                }
+            }
+        }
+        if (stateSetIndex != mStateSets.length - 1) {
+            return new Violation("Too few states (" + (stateSetIndex + 1) + ")", -1);
+        }
+        return null;
+    }
+
+    private boolean contains(int stateSetIndex, int state) {
+        return Arrays.binarySearch(mStateSets[stateSetIndex], state) >= 0;
+    }
+
+    /**
+     * Where and how a trace does not match.
+     */
+    public static class Violation {
+        private final String mMessage;
+        private final int mIndex;
+
+        Violation(String message, int index) {
+            mMessage = message;
+            mIndex = index;
+        }
+
+        public String getMessage() {
+            return mMessage;
+        }
+
+        /**
+         * Returns the index of the state that violates the sequence, or -1 if the violation is
+         * about the trace as a whole.
+         */
+        public int getIndex() {
+            return mIndex;
+        }
+
+        /**
+         * Returns the first index of the states around the violation.
+         */
+        public int getContextStart() {
+            return mIndex < 0 ? 0 : Math.max(0, mIndex - CONTEXT_SIZE);
+        }
+
+        /**
+         * Returns the index after the last of the states around the violation.
+         *
+         * @param size the number of states in the trace
+         */
+        public int getContextEnd(int size) {
+            return mIndex < 0 ? size : Math.min(size, mIndex + CONTEXT_SIZE + 1);
+        }
+    }
+}
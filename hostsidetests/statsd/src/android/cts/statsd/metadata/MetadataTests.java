@@ -55,7 +55,7 @@ public class MetadataTests extends MetadataTestCase {
         doAppBreadcrumbReportedStart(/* irrelevant val */ 6); // Event, within < TTL_TIME_SEC secs.
         Thread.sleep(WAIT_TIME_SHORT);
         StatsdStatsReport report = getStatsdStatsReport(); // Has only been 1 second
-        LogUtil.CLog.d("got following statsdstats report: " + report.toString());
+        logDump("got following statsdstats report: ", report);
         boolean foundActiveConfig = false;
         int creationTime = 0;
         for (ConfigStats stats: report.getConfigStatsList()) {
@@ -74,7 +74,7 @@ public class MetadataTests extends MetadataTestCase {
         }
         doAppBreadcrumbReportedStart(/* irrelevant val */ 6); // Event, after TTL_TIME_SEC secs.
         report = getStatsdStatsReport();
-        LogUtil.CLog.d("got following statsdstats report: " + report.toString());
+        logDump("got following statsdstats report: ", report);
         foundActiveConfig = false;
         int expectedTime = creationTime + TTL_TIME_SEC;
         for (ConfigStats stats: report.getConfigStatsList()) {
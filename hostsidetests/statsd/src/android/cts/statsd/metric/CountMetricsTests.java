@@ -52,7 +52,7 @@ public class CountMetricsTests extends DeviceAtomTestCase {
         Thread.sleep(2000);  // Wait for the metrics to propagate to statsd.
 
         StatsLogReport metricReport = getStatsLogReport();
-        LogUtil.CLog.d("Got the following stats log report: \n" + metricReport.toString());
+        logDump("Got the following stats log report: \n", metricReport);
         assertEquals(MetricsUtils.COUNT_METRIC_ID, metricReport.getMetricId());
         assertTrue(metricReport.hasCountMetrics());
 
@@ -237,7 +237,7 @@ public class CountMetricsTests extends DeviceAtomTestCase {
 
         StatsLogReport metricReport = getStatsLogReport();
         assertEquals(MetricsUtils.COUNT_METRIC_ID, metricReport.getMetricId());
-        LogUtil.CLog.d("Received the following data: " + metricReport.toString());
+        logDump("Received the following data: ", metricReport);
         assertTrue(metricReport.hasCountMetrics());
         assertFalse(metricReport.getIsActive());
 
@@ -271,7 +271,7 @@ public class CountMetricsTests extends DeviceAtomTestCase {
         Thread.sleep(WAIT_TIME_LONG); // Finish the current bucket.
 
         ConfigMetricsReportList reports = getReportList();
-        LogUtil.CLog.d("Got following report list: " + reports.toString());
+        logDump("Got following report list: ", reports);
 
         assertEquals("Expected 2 reports, got " + reports.getReportsCount(),
                 2, reports.getReportsCount());
@@ -95,7 +95,7 @@ public class DurationMetricsTests extends DeviceAtomTestCase {
 
         StatsLogReport metricReport = getStatsLogReport();
         assertThat(metricReport.getMetricId()).isEqualTo(MetricsUtils.DURATION_METRIC_ID);
-        LogUtil.CLog.d("Received the following data: " + metricReport.toString());
+        logDump("Received the following data: ", metricReport);
         assertThat(metricReport.hasDurationMetrics()).isTrue();
         StatsLogReport.DurationMetricDataWrapper durationData
                 = metricReport.getDurationMetrics();
@@ -205,7 +205,7 @@ public class DurationMetricsTests extends DeviceAtomTestCase {
         Thread.sleep(2_000);
         StatsLogReport metricReport = getStatsLogReport();
         assertThat(metricReport.getMetricId()).isEqualTo(MetricsUtils.DURATION_METRIC_ID);
-        LogUtil.CLog.d("Received the following data: " + metricReport.toString());
+        logDump("Received the following data: ", metricReport);
         assertThat(metricReport.hasDurationMetrics()).isTrue();
         StatsLogReport.DurationMetricDataWrapper durationData
                 = metricReport.getDurationMetrics();
@@ -298,7 +298,7 @@ public class DurationMetricsTests extends DeviceAtomTestCase {
         Thread.sleep(2_000);
         StatsLogReport metricReport = getStatsLogReport();
         assertThat(metricReport.getMetricId()).isEqualTo(MetricsUtils.DURATION_METRIC_ID);
-        LogUtil.CLog.d("Received the following data: " + metricReport.toString());
+        logDump("Received the following data: ", metricReport);
         assertThat(metricReport.hasDurationMetrics()).isTrue();
         StatsLogReport.DurationMetricDataWrapper durationData
                 = metricReport.getDurationMetrics();
@@ -474,7 +474,7 @@ public class DurationMetricsTests extends DeviceAtomTestCase {
         Thread.sleep(2000);
 
         StatsLogReport metricReport = getStatsLogReport();
-        LogUtil.CLog.d("Received the following data: " + metricReport.toString());
+        logDump("Received the following data: ", metricReport);
         assertThat(metricReport.getMetricId()).isEqualTo(MetricsUtils.DURATION_METRIC_ID);
         assertThat(metricReport.hasDurationMetrics()).isTrue();
         StatsLogReport.DurationMetricDataWrapper durationData
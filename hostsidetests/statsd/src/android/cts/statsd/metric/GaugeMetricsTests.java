@@ -121,7 +121,7 @@ public class GaugeMetricsTests extends DeviceAtomTestCase {
       Thread.sleep(2000);
 
       StatsLogReport metricReport = getStatsLogReport();
-      LogUtil.CLog.d("Got the following gauge metric data: " + metricReport.toString());
+      logDump("Got the following gauge metric data: ", metricReport);
       assertEquals(MetricsUtils.GAUGE_METRIC_ID, metricReport.getMetricId());
       assertTrue(metricReport.hasGaugeMetrics());
       StatsLogReport.GaugeMetricDataWrapper gaugeData = metricReport.getGaugeMetrics();
@@ -196,7 +196,7 @@ public class GaugeMetricsTests extends DeviceAtomTestCase {
       Thread.sleep(20_000);
 
       StatsLogReport metricReport = getStatsLogReport();
-      LogUtil.CLog.d("Got the following gauge metric data: " + metricReport.toString());
+      logDump("Got the following gauge metric data: ", metricReport);
       assertEquals(MetricsUtils.GAUGE_METRIC_ID, metricReport.getMetricId());
       assertFalse(metricReport.hasGaugeMetrics());
   }
@@ -324,7 +324,7 @@ public class GaugeMetricsTests extends DeviceAtomTestCase {
         Thread.sleep(2000);
 
         StatsLogReport metricReport = getStatsLogReport();
-        LogUtil.CLog.d("Received the following data: " + metricReport.toString());
+        logDump("Received the following data: ", metricReport);
         assertThat(metricReport.getMetricId()).isEqualTo(MetricsUtils.GAUGE_METRIC_ID);
         assertThat(metricReport.hasGaugeMetrics()).isTrue();
         assertThat(metricReport.getIsActive()).isFalse();
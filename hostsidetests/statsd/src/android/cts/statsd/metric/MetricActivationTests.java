@@ -558,7 +558,7 @@ public class MetricActivationTests extends DeviceAtomTestCase {
 
     private void verifyMetric(StatsLogReport metricReport, long metricId, int metricMatcherLabel,
             int dataCount) {
-        LogUtil.CLog.d("Got the following event metric data: " + metricReport.toString());
+        logDump("Got the following event metric data: ", metricReport);
         assertEquals(metricId, metricReport.getMetricId());
         if (dataCount > 0) {
             assertTrue(metricReport.hasEventMetrics());
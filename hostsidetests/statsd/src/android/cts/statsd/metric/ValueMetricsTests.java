@@ -93,7 +93,7 @@ public class ValueMetricsTests extends DeviceAtomTestCase {
     Thread.sleep(1000);
 
     StatsLogReport metricReport = getStatsLogReport();
-    LogUtil.CLog.d("Got the following value metric data: " + metricReport.toString());
+    logDump("Got the following value metric data: ", metricReport);
     assertEquals(MetricsUtils.VALUE_METRIC_ID, metricReport.getMetricId());
     assertTrue(metricReport.hasValueMetrics());
     StatsLogReport.ValueMetricDataWrapper valueData = metricReport.getValueMetrics();
@@ -171,7 +171,7 @@ public class ValueMetricsTests extends DeviceAtomTestCase {
     Thread.sleep(1_000);
 
     StatsLogReport metricReport = getStatsLogReport();
-    LogUtil.CLog.d("Got the following value metric data: " + metricReport.toString());
+    logDump("Got the following value metric data: ", metricReport);
     assertEquals(MetricsUtils.VALUE_METRIC_ID, metricReport.getMetricId());
     assertTrue(metricReport.hasValueMetrics());
     StatsLogReport.ValueMetricDataWrapper valueData = metricReport.getValueMetrics();
@@ -255,7 +255,7 @@ public class ValueMetricsTests extends DeviceAtomTestCase {
     Thread.sleep(1_000);
 
     StatsLogReport metricReport = getStatsLogReport();
-    LogUtil.CLog.d("Got the following value metric data: " + metricReport.toString());
+    logDump("Got the following value metric data: ", metricReport);
     assertEquals(MetricsUtils.VALUE_METRIC_ID, metricReport.getMetricId());
     assertTrue(metricReport.hasValueMetrics());
     StatsLogReport.ValueMetricDataWrapper valueData = metricReport.getValueMetrics();
@@ -328,7 +328,7 @@ public class ValueMetricsTests extends DeviceAtomTestCase {
     Thread.sleep(1_000);
 
     StatsLogReport metricReport = getStatsLogReport();
-    LogUtil.CLog.d("Got the following value metric data: " + metricReport.toString());
+    logDump("Got the following value metric data: ", metricReport);
     assertEquals(MetricsUtils.VALUE_METRIC_ID, metricReport.getMetricId());
     assertFalse(metricReport.hasValueMetrics());
   }
@@ -455,7 +455,7 @@ public class ValueMetricsTests extends DeviceAtomTestCase {
         Thread.sleep(2000);
 
         StatsLogReport metricReport = getStatsLogReport();
-        LogUtil.CLog.d("Received the following data: " + metricReport.toString());
+        logDump("Received the following data: ", metricReport);
         assertThat(metricReport.getMetricId()).isEqualTo(MetricsUtils.VALUE_METRIC_ID);
         assertThat(metricReport.hasValueMetrics()).isTrue();
         assertThat(metricReport.getIsActive()).isFalse();
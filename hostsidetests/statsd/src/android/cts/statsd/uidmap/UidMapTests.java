@@ -86,7 +86,7 @@ public class UidMapTests extends DeviceAtomTestCase {
         boolean found = false;
         int uid = getUid();
         for (ConfigMetricsReport report : reports.getReportsList()) {
-            LogUtil.CLog.d("Got the following report: \n" + report.toString());
+            logDump("Got the following report: \n", report);
             if (hasMatchingChange(report.getUidMap(), uid, false)) {
                 found = true;
             }
@@ -113,7 +113,7 @@ public class UidMapTests extends DeviceAtomTestCase {
         boolean found = false;
         int uid = getUid();
         for (ConfigMetricsReport report : reports.getReportsList()) {
-            LogUtil.CLog.d("Got the following report: \n" + report.toString());
+            logDump("Got the following report: \n", report);
             if (hasMatchingChange(report.getUidMap(), uid, false)) {
                 found = true;
             }
@@ -138,7 +138,7 @@ public class UidMapTests extends DeviceAtomTestCase {
 
         boolean found = false;
         for (ConfigMetricsReport report : reports.getReportsList()) {
-            LogUtil.CLog.d("Got the following report: \n" + report.toString());
+            logDump("Got the following report: \n", report);
             if (hasMatchingChange(report.getUidMap(), uid, true)) {
                 found = true;
             }
@@ -58,7 +58,7 @@ public class BatteryStatsValidationTests extends DeviceAtomTestCase {
         if (!hasFeature(FEATURE_WATCH, false)) return;
         final String fileName = "BATTERYSTATS_CONNECTIVITY_STATE_CHANGE_COUNT.pbtxt";
         StatsdConfig config = createValidationUtil().getConfig(fileName);
-        LogUtil.CLog.d("Updating the following config:\n" + config.toString());
+        logDump("Updating the following config:\n", config);
         uploadConfig(config);
 
         Thread.sleep(WAIT_TIME_SHORT);
@@ -183,7 +183,7 @@ public class BatteryStatsValidationTests extends DeviceAtomTestCase {
     public void testServiceStartCount() throws Exception {
         final String fileName = "BATTERYSTATS_SERVICE_START_COUNT.pbtxt";
         StatsdConfig config = createValidationUtil().getConfig(fileName);
-        LogUtil.CLog.d("Updating the following config:\n" + config.toString());
+        logDump("Updating the following config:\n", config);
         uploadConfig(config);
 
         Thread.sleep(WAIT_TIME_SHORT);
@@ -227,7 +227,7 @@ public class BatteryStatsValidationTests extends DeviceAtomTestCase {
     public void testServiceLaunchCount() throws Exception {
         final String fileName = "BATTERYSTATS_SERVICE_LAUNCH_COUNT.pbtxt";
         StatsdConfig config = createValidationUtil().getConfig(fileName);
-        LogUtil.CLog.d("Updating the following config:\n" + config.toString());
+        logDump("Updating the following config:\n", config);
         uploadConfig(config);
 
         Thread.sleep(WAIT_TIME_SHORT);
@@ -58,7 +58,7 @@ public class ProcStatsValidationTests extends ProcStateTestCase {
         }
         final String fileName = "PROCSTATSQ_PROCS_STATE_TOP_DURATION.pbtxt";
         StatsdConfig config = createValidationUtil().getConfig(fileName);
-        LogUtil.CLog.d("Updating the following config:\n" + config.toString());
+        logDump("Updating the following config:\n", config);
         uploadConfig(config);
         clearProcStats();
         Thread.sleep(WAIT_TIME_SHORT);
@@ -94,7 +94,7 @@ public class ProcStatsValidationTests extends ProcStateTestCase {
             List<DimensionsValue> dimensionsValuesInWhat = d.getDimensionLeafValuesInWhatList();
             if (dimensionsValuesInWhat.get(0).getValueStr().equals(statsdPkgName)
                     && dimensionsValuesInWhat.get(1).getValueStr().equals(statsdPkgName)) {
-                LogUtil.CLog.d(d.toString());
+                logDump("Got duration metric from statsd:\n", d);
                 for (DurationBucketInfo bucket : d.getBucketInfoList()) {
                     durationInTopStatsd += bucket.getDurationNanos() / 1000 / 1000;
                 }
@@ -104,7 +104,7 @@ public class ProcStatsValidationTests extends ProcStateTestCase {
         double durationInTopProcStats = 0;
         for (ProcessStatsProto p : processStatsProtoList) {
             if (p.getProcess().equals(statsdPkgName)) {
-                LogUtil.CLog.d(p.toString());
+                logDump("Got proto from procstats dumpsys:\n", p);
                 for (ProcessStatsStateProto s : p.getStatesList()) {
                     if (s.getProcessState() == ProcessState.PROCESS_STATE_TOP) {
                         durationInTopProcStats += s.getDurationMillis();
@@ -123,7 +123,7 @@ public class ProcStatsValidationTests extends ProcStateTestCase {
         }
         final String fileName = "PROCSTATSQ_PROCS_STATE_CACHED_EMPTY_DURATION.pbtxt";
         StatsdConfig config = createValidationUtil().getConfig(fileName);
-        LogUtil.CLog.d("Updating the following config:\n" + config.toString());
+        logDump("Updating the following config:\n", config);
         uploadConfig(config);
         clearProcStats();
         Thread.sleep(WAIT_TIME_SHORT);
@@ -159,7 +159,7 @@ public class ProcStatsValidationTests extends ProcStateTestCase {
             List<DimensionsValue> dimensionsValuesInWhat = d.getDimensionLeafValuesInWhatList();
             if (dimensionsValuesInWhat.get(0).getValueStr().equals(statsdPkgName)
                     && dimensionsValuesInWhat.get(1).getValueStr().equals(statsdPkgName)) {
-                LogUtil.CLog.d(d.toString());
+                logDump("Got duration metric from statsd:\n", d);
                 for (DurationBucketInfo bucket : d.getBucketInfoList()) {
                     durationInStatsd += bucket.getDurationNanos() / 1000 / 1000;
                 }
@@ -169,7 +169,7 @@ public class ProcStatsValidationTests extends ProcStateTestCase {
         double durationInProcStats = 0;
         for (ProcessStatsProto p : processStatsProtoList) {
             if (p.getProcess().equals(statsdPkgName)) {
-                LogUtil.CLog.d(p.toString());
+                logDump("Got proto from procstats dumpsys:\n", p);
                 for (ProcessStatsStateProto s : p.getStatesList()) {
                     if (s.getProcessState() == ProcessState.PROCESS_STATE_CACHED_EMPTY) {
                         durationInProcStats += s.getDurationMillis();
@@ -188,7 +188,7 @@ public class ProcStatsValidationTests extends ProcStateTestCase {
         }
         final String fileName = "PROCSTATSQ_PROCS_STATE_PSS_VALUE.pbtxt";
         StatsdConfig config = createValidationUtil().getConfig(fileName);
-        LogUtil.CLog.d("Updating the following config:\n" + config.toString());
+        logDump("Updating the following config:\n", config);
         uploadConfig(config);
         clearProcStats();
         Thread.sleep(WAIT_TIME_SHORT);
@@ -224,7 +224,7 @@ public class ProcStatsValidationTests extends ProcStateTestCase {
             List<DimensionsValue> dimensionsValuesInWhat = d.getDimensionLeafValuesInWhatList();
             if (dimensionsValuesInWhat.get(0).getValueStr().equals(statsdPkgName)
                     && dimensionsValuesInWhat.get(1).getValueStr().equals(statsdPkgName)) {
-                LogUtil.CLog.d(d.toString());
+                logDump("Got duration metric from statsd:\n", d);
                 for (ValueBucketInfo bucket : d.getBucketInfoList()) {
                     valueInStatsd = Math.max(bucket.getValues(0).getValueLong(), valueInStatsd);
                 }
@@ -234,7 +234,7 @@ public class ProcStatsValidationTests extends ProcStateTestCase {
         double valueInProcStats = 0;
         for (ProcessStatsProto p : processStatsProtoList) {
             if (p.getProcess().equals(statsdPkgName)) {
-                LogUtil.CLog.d(p.toString());
+                logDump("Got proto from procstats dumpsys:\n", p);
                 for (ProcessStatsStateProto s : p.getStatesList()) {
                     valueInProcStats = Math.max(s.getPss().getMax(), valueInProcStats);
                 }
@@ -278,7 +278,7 @@ public class ProcStatsValidationTests extends ProcStateTestCase {
 
         final String fileName = "PROCSTATSQ_PULL.pbtxt";
         StatsdConfig config = createValidationUtil().getConfig(fileName);
-        LogUtil.CLog.d("Updating the following config:\n" + config.toString());
+        logDump("Updating the following config:\n", config);
         uploadConfig(config);
         Thread.sleep(WAIT_TIME_SHORT);
         setAppBreadcrumbPredicate();
@@ -300,8 +300,7 @@ public class ProcStatsValidationTests extends ProcStateTestCase {
         for (Atom d : statsdData) {
             for (ProcessStatsPackageProto pkg : d.getProcStats().getProcStatsSection().getPackageStatsList()) {
                 if (pkg.getPackage().equals(statsdPkgName)) {
-                    LogUtil.CLog.d("Got proto from statsd:");
-                    LogUtil.CLog.d(pkg.toString());
+                    logDump("Got proto from statsd:\n", pkg);
                     for (ProcessStatsProto process : pkg.getProcessStatsList()) {
                         for (ProcessStatsStateProto state : process.getStatesList()) {
                             if (state.getProcessState()
@@ -325,8 +324,7 @@ public class ProcStatsValidationTests extends ProcStateTestCase {
         long durationProcstats = 0;
         for (ProcessStatsPackageProto pkg : processStatsPackageProtoList) {
             if (pkg.getPackage().equals(statsdPkgName)) {
-                LogUtil.CLog.d("Got proto from procstats dumpsys:");
-                LogUtil.CLog.d(pkg.toString());
+                logDump("Got proto from procstats dumpsys:\n", pkg);
                 for (ProcessStatsProto process : pkg.getProcessStatsList()) {
                     for (ProcessStatsStateProto state : process.getStatesList()) {
                         if (state.getProcessState()
@@ -383,7 +381,7 @@ public class ProcStatsValidationTests extends ProcStateTestCase {
 
         final String fileName = "PROCSTATSQ_PULL_PKG_PROC.pbtxt";
         StatsdConfig config = createValidationUtil().getConfig(fileName);
-        LogUtil.CLog.d("Updating the following config:\n" + config.toString());
+        logDump("Updating the following config:\n", config);
         uploadConfig(config);
         Thread.sleep(WAIT_TIME_SHORT);
         setAppBreadcrumbPredicate();
@@ -407,8 +405,7 @@ public class ProcStatsValidationTests extends ProcStateTestCase {
         for (Atom d : statsdData) {
             for (ProcessStatsPackageProto pkg : d.getProcStatsPkgProc().getProcStatsSection().getPackageStatsList()) {
                 if (pkg.getPackage().equals(statsdPkgName)) {
-                    LogUtil.CLog.d("Got proto from statsd:");
-                    LogUtil.CLog.d(pkg.toString());
+                    logDump("Got proto from statsd:\n", pkg);
                     for (ProcessStatsProto process : pkg.getProcessStatsList()) {
                         for (ProcessStatsStateProto state : process.getStatesList()) {
                             if (state.getProcessState()
@@ -436,8 +433,7 @@ public class ProcStatsValidationTests extends ProcStateTestCase {
         int associationStatsCount = 0;
         for (ProcessStatsPackageProto pkg : processStatsPackageProtoList) {
             if (pkg.getPackage().equals(statsdPkgName)) {
-                LogUtil.CLog.d("Got proto from procstats dumpsys:");
-                LogUtil.CLog.d(pkg.toString());
+                logDump("Got proto from procstats dumpsys:\n", pkg);
                 for (ProcessStatsProto process : pkg.getProcessStatsList()) {
                     for (ProcessStatsStateProto state : process.getStatesList()) {
                         if (state.getProcessState()
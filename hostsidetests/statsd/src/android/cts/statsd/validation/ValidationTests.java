@@ -297,7 +297,7 @@ public class ValidationTests extends DeviceAtomTestCase {
 
     public HashMap<Integer, HashMap<Long, Long>> getStatsdWakelockData() throws Exception {
         StatsLogReport report = getStatsLogReport();
-        CLog.d("Received the following stats log report: \n" + report.toString());
+        logDump("Received the following stats log report: \n", report);
 
         // Stores total duration of each wakelock across buckets.
         HashMap<Integer, HashMap<Long, Long>> statsdWakelockData = new HashMap<>();
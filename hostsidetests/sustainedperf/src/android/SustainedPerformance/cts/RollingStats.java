@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.sustainedPerformance.cts;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+
+/**
+ * Median and variance over the last samples of a series, updated as each sample arrives.
+ */
+class RollingStats {
+    private final int mWindow;
+    private final ArrayDeque<Double> mSamples = new ArrayDeque<Double>();
+    private final ArrayList<Double> mSorted = new ArrayList<Double>();
+    private double mSum = 0;
+    private double mSumOfSquares = 0;
+
+    RollingStats(int window) {
+        mWindow = window;
+    }
+
+    void add(double sample) {
+        if (mSamples.size() == mWindow) {
+            double oldest = mSamples.removeFirst();
+            mSorted.remove(Collections.binarySearch(mSorted, oldest));
+            mSum -= oldest;
+            mSumOfSquares -= oldest * oldest;
+        }
+        mSamples.addLast(sample);
+        int index = Collections.binarySearch(mSorted, sample);
+        mSorted.add(index < 0 ? -index - 1 : index, sample);
+        mSum += sample;
+        mSumOfSquares += sample * sample;
+    }
+
+    int size() {
+        return mSamples.size();
+    }
+
+    double getMedian() {
+        int size = mSorted.size();
+        if (size == 0) {
+            return Double.NaN;
+        }
+        if (size % 2 == 1) {
+            return mSorted.get(size / 2);
+        }
+        return (mSorted.get(size / 2 - 1) + mSorted.get(size / 2)) / 2;
+    }
+
+    double getVariance() {
+        int size = mSamples.size();
+        if (size == 0) {
+            return Double.NaN;
+        }
+        double mean = mSum / size;
+        // Rounding can make it slightly negative for constant samples.
+        return Math.max(0, mSumOfSquares / size - mean * mean);
+    }
+}
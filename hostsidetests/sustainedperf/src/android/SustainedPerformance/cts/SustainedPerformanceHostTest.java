@@ -20,6 +20,8 @@ import com.android.compatibility.common.util.CddTest;
 import com.android.ddmlib.IShellOutputReceiver;
 import com.android.ddmlib.Log;
 import com.android.ddmlib.MultiLineReceiver;
+import com.android.tradefed.config.Option;
+import com.android.tradefed.device.DeviceNotAvailableException;
 import com.android.tradefed.device.ITestDevice;
 import com.android.tradefed.testtype.DeviceTestCase;
 import java.util.*;
@@ -51,6 +53,24 @@ public class SustainedPerformanceHostTest extends DeviceTestCase {
             TEST_PACKAGE, TEST_PACKAGE, TEST_CLASS);
     private static final String DHRYSTONE = "/data/local/tmp/";
     private static final String LOG_TAG = "sustainedPerfTest";
+    private static final String APP_LOG_COMMAND = String.format(
+            "logcat -v brief %s:I *:S", CLASS);
+    /*
+     * Runs dhrystone in a loop on the device and prints "<uptime> <dmips>" after each run,
+     * raising the loop count while the measured time is too small.
+     */
+    private static final String STREAMED_DHRYSTONE_COMMAND = "cd " + DHRYSTONE + " ; n=%d ;"
+            + " while true ; do r=$(echo $n | taskset -a %d ./dhry) ;"
+            + " case \"$r\" in *\"Measured time too small\"*) n=$((n * 10)) ;;"
+            + " ?*) read t x < /proc/uptime ; echo \"$t $r\" ;; esac ; done";
+    private static final long STREAM_OUTPUT_TIMEOUT = 300000; //5 minutes
+    private static final int ROLLING_WINDOW = 10;
+
+    @Option(name = "stream-samples",
+            description = "Run dhrystone in one long-lived loop on the device and stream its "
+                    + "results and the app logs during the run, instead of one adb round trip "
+                    + "per dhrystone run and a logcat dump at the end.")
+    private boolean mStreamSamples = false;
 
     private static ArrayList<Double> appResultsWithMode = new ArrayList<Double>();
     private static ArrayList<Double> appResultsWithoutMode = new ArrayList<Double>();
@@ -71,11 +91,17 @@ public class SustainedPerformanceHostTest extends DeviceTestCase {
             startTime = System.currentTimeMillis();
         }
 
+        private double[] testSet = new double[3];
+        private int index = 0;
+        private RollingStats stats = new RollingStats(ROLLING_WINDOW);
+
         public void run() {
-            double[] testSet = new double[3];
-            int index = 0;
             try {
                 device.executeShellCommand("cd " + DHRYSTONE + " ; chmod 777 dhry");
+                if (mStreamSamples) {
+                    runStreamed();
+                    return;
+                }
                 while (true) {
                     String result = device.executeShellCommand("echo " + loopCount
                           + " | taskset -a " + cpumask + " " + DHRYSTONE + "dhry");
@@ -84,24 +110,7 @@ public class SustainedPerformanceHostTest extends DeviceTestCase {
                     } else if (result.contains("Measured time too small")) {
                          loopCount = loopCount*10;
                     } else if (!result.isEmpty()){
-                         double dmips = Double.parseDouble(result);
-                         testSet[index++] = dmips;
-                         if (index == 3) {
-                             synchronized(this) {
-                                 if (modeEnabled) {
-                                     dhrystoneResultsWithMode.add(testSet[1]);
-                                 } else {
-                                     dhrystoneResultsWithoutMode.add(testSet[1]);
-                                 }
-                                 if (testSet[1] > dhryMax) {
-                                     dhryMax = testSet[1];
-                                 }
-                                 if (testSet[1] < dhryMin) {
-                                     dhryMin = testSet[1];
-                                 }
-                                 index = 0;
-                             }
-                        }
+                         addResult(elapsed() / 1000.0, Double.parseDouble(result));
                     }
                }
            } catch (Exception e) {
@@ -109,17 +118,83 @@ public class SustainedPerformanceHostTest extends DeviceTestCase {
 
            }
         }
+
+        private long elapsed() {
+            return Math.abs(System.currentTimeMillis() - startTime);
+        }
+
+        /*
+         * Keeps consuming the output of the on-device loop until the test duration is over,
+         * which stops the command and with it the loop.
+         */
+        private void runStreamed() throws DeviceNotAvailableException {
+            String command = String.format(STREAMED_DHRYSTONE_COMMAND, loopCount, cpumask);
+            device.executeShellCommand(command, new MultiLineReceiver() {
+                @Override
+                public void processNewLines(String[] lines) {
+                    for (String line : lines) {
+                        String[] fields = line.trim().split(" ");
+                        if (fields.length != 2 || isCancelled()) {
+                            continue;
+                        }
+                        try {
+                            addResult(Double.parseDouble(fields[0]),
+                                    Double.parseDouble(fields[1]));
+                        } catch (NumberFormatException e) {
+                            Log.w(LOG_TAG, "Unexpected dhrystone output: " + line);
+                        }
+                    }
+                }
+
+                @Override
+                public boolean isCancelled() {
+                    return elapsed() >= testDuration;
+                }
+            }, STREAM_OUTPUT_TIMEOUT, TimeUnit.MILLISECONDS, 0);
+        }
+
+        private void addResult(double time, double dmips) {
+            testSet[index++] = dmips;
+            if (index == 3) {
+                synchronized(this) {
+                    if (modeEnabled) {
+                        dhrystoneResultsWithMode.add(testSet[1]);
+                    } else {
+                        dhrystoneResultsWithoutMode.add(testSet[1]);
+                    }
+                    if (testSet[1] > dhryMax) {
+                        dhryMax = testSet[1];
+                    }
+                    if (testSet[1] < dhryMin) {
+                        dhryMin = testSet[1];
+                    }
+                    index = 0;
+                }
+                stats.add(testSet[1]);
+                Log.i(LOG_TAG, String.format("Dhrystone cpumask %d at %.1fs: %.1f DMIPS, "
+                        + "median %.1f, variance %.1f", cpumask, time, testSet[1],
+                        stats.getMedian(), stats.getVariance()));
+            }
+        }
     }
 
-    public void analyzeResults(String logs, boolean mode) {
-        Double[] testSet = new Double[10];
-        int index = 0;
-        double min = Double.MAX_VALUE, max = Double.MIN_VALUE;
-        boolean first = true;
+    /*
+     * Collects the frame times the app logs, keeping the median of every set of 10 after the
+     * first set.
+     */
+    private class AppResults {
+        private Double[] testSet = new Double[10];
+        private int index = 0;
+        private double min = Double.MAX_VALUE, max = Double.MIN_VALUE;
+        private boolean first = true;
+        private boolean mode;
+        private RollingStats stats = new RollingStats(ROLLING_WINDOW);
 
-        Scanner in = new Scanner(logs);
-        while (in.hasNextLine()) {
-            String line = in.nextLine();
+        AppResults(boolean mode) {
+            this.mode = mode;
+        }
+
+        void addLine(String line) {
             if(line.startsWith("I/"+CLASS)) {
                 Double time = Double.parseDouble(line.split(":")[1]);
                 testSet[index++] = time;
@@ -127,7 +202,7 @@ public class SustainedPerformanceHostTest extends DeviceTestCase {
                     if (first) {
                         first = false;
                         index = 0;
-                        continue;
+                        return;
                     }
                     Arrays.sort(testSet);
                     if (mode) {
@@ -142,22 +217,74 @@ public class SustainedPerformanceHostTest extends DeviceTestCase {
                         min = testSet[5];
                     }
                     index = 0;
+                    stats.add(testSet[5]);
+                    Log.i(LOG_TAG, String.format("App: %.1f, median %.1f, variance %.1f",
+                            testSet[5], stats.getMedian(), stats.getVariance()));
                 }
             }
         }
-        in.close();
-        double diff = (max - min)*100/max;
-        if (mode) {
-            appResultsWithMode.add(0, min);
-            appResultsWithMode.add(1, max);
-            appResultsWithMode.add(2, diff);
-        } else {
-            appResultsWithoutMode.add(0, min);
-            appResultsWithoutMode.add(1, max);
-            appResultsWithoutMode.add(2, diff);
+
+        void finish() {
+            double diff = (max - min)*100/max;
+            if (mode) {
+                appResultsWithMode.add(0, min);
+                appResultsWithMode.add(1, max);
+                appResultsWithMode.add(2, diff);
+            } else {
+                appResultsWithoutMode.add(0, min);
+                appResultsWithoutMode.add(1, max);
+                appResultsWithoutMode.add(2, diff);
+            }
+        }
+    }
+
+    /*
+     * Streams the app logs into an AppResults until stopped.
+     */
+    private class AppLogReader implements Runnable {
+        private final AppResults results;
+        private volatile boolean stopped = false;
+
+        AppLogReader(boolean mode) {
+            results = new AppResults(mode);
+        }
+
+        public void run() {
+            try {
+                device.executeShellCommand(APP_LOG_COMMAND, new MultiLineReceiver() {
+                    @Override
+                    public void processNewLines(String[] lines) {
+                        for (String line : lines) {
+                            results.addLine(line);
+                        }
+                    }
+
+                    @Override
+                    public boolean isCancelled() {
+                        return stopped;
+                    }
+                }, STREAM_OUTPUT_TIMEOUT, TimeUnit.MILLISECONDS, 0);
+            } catch (Exception e) {
+                Log.e(LOG_TAG, e.toString());
+            }
+        }
+
+        AppResults stop() {
+            stopped = true;
+            return results;
         }
     }
 
+    public void analyzeResults(String logs, boolean mode) {
+        AppResults results = new AppResults(mode);
+        Scanner in = new Scanner(logs);
+        while (in.hasNextLine()) {
+            results.addLine(in.nextLine());
+        }
+        in.close();
+        results.finish();
+    }
+
     private void setUpEnvironment() throws Exception {
         dhryMin = Double.MAX_VALUE;
         dhryMax = Double.MIN_VALUE;
@@ -202,6 +329,13 @@ public class SustainedPerformanceHostTest extends DeviceTestCase {
          * Run two threads of dhrystone and collect stats.
          */
         setUpEnvironment();
+        AppLogReader appLogReader = null;
+        Thread appLogThread = null;
+        if (mStreamSamples) {
+            appLogReader = new AppLogReader(true);
+            appLogThread = new Thread(appLogReader);
+            appLogThread.start();
+        }
         device.executeShellCommand(START_COMMAND_MODE);
         Thread dhrystone = new Thread(new Dhrystone(true, 1));
         Thread dhrystone1 = new Thread(new Dhrystone(true, 2));
@@ -211,8 +345,14 @@ public class SustainedPerformanceHostTest extends DeviceTestCase {
         device.executeShellCommand(STOP_COMMAND);
         dhrystone.join();
         dhrystone1.join();
-        logs = device.executeAdbCommand("logcat", "-v", "brief", "-d", CLASS + ":I", "*:S");
-        analyzeResults(logs, true);
+        if (mStreamSamples) {
+            AppResults appResults = appLogReader.stop();
+            appLogThread.join();
+            appResults.finish();
+        } else {
+            logs = device.executeAdbCommand("logcat", "-v", "brief", "-d", CLASS + ":I", "*:S");
+            analyzeResults(logs, true);
+        }
         double diff = (dhryMax - dhryMin)*100/dhryMax;
         dhrystoneResultsWithMode.add(0, dhryMin);
         dhrystoneResultsWithMode.add(1, dhryMax);
@@ -22,6 +22,8 @@ import com.android.tradefed.util.Pair;
 
 import java.awt.Color;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.lang.String;
@@ -44,21 +46,29 @@ public class ComparisonTask implements Callable<Pair<String, File>> {
     private static final int MAX_CONSECUTIVE_FAILURES = 2;
 
     private final String mName;
-    private final File mExpected;
-    private final File mActual;
+    private final String mFileName;
+    private final byte[] mExpected;
+    private final byte[] mActual;
 
-    public ComparisonTask(String name, File expected, File actual) {
+    /**
+     * @param name the name the diff is logged with
+     * @param fileName the name of the image files
+     * @param expected the encoded reference image
+     * @param actual the encoded image generated by the device
+     */
+    public ComparisonTask(String name, String fileName, byte[] expected, byte[] actual) {
         mName = name;
+        mFileName = fileName;
         mExpected = expected;
         mActual = actual;
     }
 
     public Pair<String, File> call() {
         try {
-            final BufferedImage expected = ImageIO.read(mExpected);
-            final BufferedImage actual = ImageIO.read(mActual);
+            final BufferedImage expected = ImageIO.read(new ByteArrayInputStream(mExpected));
+            final BufferedImage actual = ImageIO.read(new ByteArrayInputStream(mActual));
             if (!compare(expected, actual, IMAGE_THRESHOLD)) {
-                final File diff = File.createTempFile("diff_" + mExpected.getName(), ".png");
+                final File diff = File.createTempFile("diff_" + mFileName, ".png");
                 createDiff(expected, actual, diff);
                 return new Pair<>(mName, diff);
             }
@@ -87,29 +97,41 @@ public class ComparisonTask implements Callable<Pair<String, File>> {
         return (color & 0xFF000000) >>> 24;
     }
 
-    private static boolean checkNeighbors(int x, int y, BufferedImage reference,
-            BufferedImage generated, int threshold) {
-        final int w = generated.getWidth();
-        final int h = generated.getHeight();
-        for (int i = x - MAX_CONSECUTIVE_FAILURES; i <= x + MAX_CONSECUTIVE_FAILURES; i++) {
-            if (i >= 0 && i != x && i < w) {
-                for (int j = y - MAX_CONSECUTIVE_FAILURES; j <= y + MAX_CONSECUTIVE_FAILURES; j++) {
-                    if (j >= 0 && j != y && j < h) {
-                        final int p1 = reference.getRGB(i, j);
-                        final int p2 = generated.getRGB(i, j);
-
-                        final int dr = getAlphaScaledRed(p1) - getAlphaScaledRed(p2);
-                        final int dg = getAlphaScaledGreen(p1) - getAlphaScaledGreen(p2);
-                        final int db = getAlphaScaledBlue(p1) - getAlphaScaledBlue(p2);
-
-                        if (Math.abs(db) <= threshold &&
-                            Math.abs(dg) <= threshold &&
-                            Math.abs(dr) <= threshold) {
-                            // If we find at least one matching neighbor, we assume the difference
-                            // is in antialiasing.
-                            return true;
-                        }
-                    }
+    /**
+     * Returns the ARGB pixels of an image in row-major order, without copying them when the
+     * image is already backed by an ARGB array.
+     */
+    private static int[] getPixels(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_ARGB) {
+            return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        }
+        final int w = image.getWidth();
+        return image.getRGB(0, 0, w, image.getHeight(), null, 0, w);
+    }
+
+    private static boolean isSimilar(int p1, int p2, int threshold) {
+        if (p1 == p2) {
+            return true;
+        }
+        final int dr = getAlphaScaledRed(p1) - getAlphaScaledRed(p2);
+        final int dg = getAlphaScaledGreen(p1) - getAlphaScaledGreen(p2);
+        final int db = getAlphaScaledBlue(p1) - getAlphaScaledBlue(p2);
+        return Math.abs(db) <= threshold && Math.abs(dg) <= threshold
+                && Math.abs(dr) <= threshold;
+    }
+
+    private static boolean checkNeighbors(int x, int y, int w, int h, int[] reference,
+            int[] generated, int threshold) {
+        for (int j = Math.max(0, y - MAX_CONSECUTIVE_FAILURES);
+                j <= Math.min(h - 1, y + MAX_CONSECUTIVE_FAILURES); j++) {
+            final int row = j * w;
+            for (int i = Math.max(0, x - MAX_CONSECUTIVE_FAILURES);
+                    i <= Math.min(w - 1, x + MAX_CONSECUTIVE_FAILURES); i++) {
+                if (i != x && j != y && isSimilar(reference[row + i], generated[row + i],
+                        threshold)) {
+                    // If we find at least one matching neighbor, we assume the difference
+                    // is in antialiasing.
+                    return true;
                 }
             }
         }
@@ -134,25 +156,16 @@ public class ComparisonTask implements Callable<Pair<String, File>> {
             return false;
         }
 
-        double maxDist = 0;
-        for (int i = 0; i < w; i++) {
-
-            for (int j = 0; j < h; j++) {
-                final int p1 = reference.getRGB(i, j);
-                final int p2 = generated.getRGB(i, j);
-
-                final int dr = getAlphaScaledRed(p1) - getAlphaScaledRed(p2);
-                final int dg = getAlphaScaledGreen(p1) - getAlphaScaledGreen(p2);
-                final int db = getAlphaScaledBlue(p1) - getAlphaScaledBlue(p2);
-
-                if (Math.abs(db) > threshold ||
-                    Math.abs(dg) > threshold ||
-                    Math.abs(dr) > threshold) {
-                    System.err.println("fail dr=" + dr+ " dg=" + dg+ " db=" + db);
-                    if (!checkNeighbors(i, j, reference, generated, threshold)) {
-                        System.err.println("consecutive fail");
-                        return false;
-                    }
+        final int[] referencePixels = getPixels(reference);
+        final int[] generatedPixels = getPixels(generated);
+        for (int j = 0; j < h; j++) {
+            final int row = j * w;
+            for (int i = 0; i < w; i++) {
+                if (!isSimilar(referencePixels[row + i], generatedPixels[row + i], threshold)
+                        && !checkNeighbors(i, j, w, h, referencePixels, generatedPixels,
+                                threshold)) {
+                    System.err.println("consecutive fail at x=" + i + " y=" + j);
+                    return false;
                 }
             }
         }
@@ -167,38 +180,41 @@ public class ComparisonTask implements Callable<Pair<String, File>> {
         final int h2 = actual.getHeight();
         final int width = Math.max(w1, w2);
         final int height = Math.max(h1, h2);
+        final int[] expectedPixels = getPixels(expected);
+        final int[] actualPixels = getPixels(actual);
 
         // The diff will contain image1, image2 and the difference between the two.
         final BufferedImage diff = new BufferedImage(
                 width * 3, height, BufferedImage.TYPE_INT_ARGB);
+        final int[] diffPixels = getPixels(diff);
 
-        for (int i = 0; i < width; i++) {
-            for (int j = 0; j < height; j++) {
+        for (int j = 0; j < height; j++) {
+            for (int i = 0; i < width; i++) {
                 final boolean inBounds1 = i < w1 && j < h1;
                 final boolean inBounds2 = i < w2 && j < h2;
                 int colorExpected = Color.WHITE.getRGB();
                 int colorActual = Color.WHITE.getRGB();
                 int colorDiff;
                 if (inBounds1 && inBounds2) {
-                    colorExpected = expected.getRGB(i, j);
-                    colorActual = actual.getRGB(i, j);
+                    colorExpected = expectedPixels[j * w1 + i];
+                    colorActual = actualPixels[j * w2 + i];
                     colorDiff = colorExpected == colorActual ? colorExpected : Color.RED.getRGB();
                 } else if (inBounds1 && !inBounds2) {
-                    colorExpected = expected.getRGB(i, j);
+                    colorExpected = expectedPixels[j * w1 + i];
                     colorDiff = Color.BLUE.getRGB();
                 } else if (!inBounds1 && inBounds2) {
-                    colorActual = actual.getRGB(i, j);
+                    colorActual = actualPixels[j * w2 + i];
                     colorDiff = Color.GREEN.getRGB();
                 } else {
                     colorDiff = Color.MAGENTA.getRGB();
                 }
 
-                int x = i;
-                diff.setRGB(x, j, colorExpected);
+                int x = j * width * 3 + i;
+                diffPixels[x] = colorExpected;
                 x += width;
-                diff.setRGB(x, j, colorActual);
+                diffPixels[x] = colorActual;
                 x += width;
-                diff.setRGB(x, j, colorDiff);
+                diffPixels[x] = colorDiff;
             }
         }
 
@@ -28,9 +28,9 @@ import com.android.tradefed.testtype.DeviceTestCase;
 import com.android.tradefed.util.Pair;
 import com.android.tradefed.util.StreamUtil;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
@@ -74,8 +74,11 @@ public class ThemeHostTest extends DeviceTestCase {
     /** Overall test timeout is 30 minutes. Should only take about 5. */
     private static final int TEST_RESULT_TIMEOUT = 30 * 60 * 1000;
 
-    /** Map of reference image names and files. */
-    private Map<String, File> mReferences;
+    /** Size of the buffer used to read the images out of the zip files. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** Map of reference image names and encoded images. */
+    private Map<String, byte[]> mReferences;
 
     /** A reference to the device under test. */
     private ITestDevice mDevice;
@@ -103,23 +106,14 @@ public class ThemeHostTest extends DeviceTestCase {
         mCompletionService = new ExecutorCompletionService<>(mExecutionService);
     }
 
-    private Map<String, File> extractReferenceImages(String zipFile) throws Exception {
-        final Map<String, File> references = new HashMap<>();
+    private Map<String, byte[]> extractReferenceImages(String zipFile) throws Exception {
+        final Map<String, byte[]> references = new HashMap<>();
         final InputStream zipStream = ThemeHostTest.class.getResourceAsStream(zipFile);
         if (zipStream != null) {
             try (ZipInputStream in = new ZipInputStream(zipStream)) {
-                final byte[] buffer = new byte[1024];
+                final byte[] buffer = new byte[BUFFER_SIZE];
                 for (ZipEntry ze; (ze = in.getNextEntry()) != null; ) {
-                    final String name = ze.getName();
-                    final File tmp = File.createTempFile("ref_" + name, ".png");
-                    tmp.deleteOnExit();
-                    try (FileOutputStream out = new FileOutputStream(tmp)) {
-                        for (int count; (count = in.read(buffer)) != -1; ) {
-                            out.write(buffer, 0, count);
-                        }
-                    }
-
-                    references.put(name, tmp);
+                    references.put(ze.getName(), readEntry(in, ze, buffer));
                 }
             } catch (IOException e) {
                 fail("Failed to unzip assets: " + zipFile);
@@ -187,28 +181,21 @@ public class ThemeHostTest extends DeviceTestCase {
         assertTrue(failureCount + " failures in theme test", failureCount == 0);
     }
 
-    private int extractGeneratedImages(File localZip, Map<String, File> references)
+    private int extractGeneratedImages(File localZip, Map<String, byte[]> references)
             throws IOException {
         int numTasks = 0;
 
-        // Extract generated images to temporary files.
-        final byte[] data = new byte[8192];
+        // Read generated images into memory, they are decoded by the comparison tasks.
+        final byte[] buffer = new byte[BUFFER_SIZE];
         try (ZipInputStream zipInput = new ZipInputStream(new FileInputStream(localZip))) {
             for (ZipEntry entry; (entry = zipInput.getNextEntry()) != null; ) {
                 final String name = entry.getName();
-                final File expected = references.get(name);
-                if (expected != null && expected.exists()) {
-                    final File actual = File.createTempFile("actual_" + name, ".png");
-                    actual.deleteOnExit();
-
-                    try (FileOutputStream pngOutput = new FileOutputStream(actual)) {
-                        for (int count; (count = zipInput.read(data, 0, data.length)) != -1; ) {
-                            pngOutput.write(data, 0, count);
-                        }
-                    }
-
+                final byte[] expected = references.get(name);
+                if (expected != null) {
+                    final byte[] actual = readEntry(zipInput, entry, buffer);
                     final String shortName = name.substring(0, name.indexOf('.'));
-                    mCompletionService.submit(new ComparisonTask(shortName, expected, actual));
+                    mCompletionService.submit(
+                            new ComparisonTask(shortName, name, expected, actual));
                     numTasks++;
                 } else {
                     Log.logAndDisplay(LogLevel.INFO, LOG_TAG,
@@ -222,6 +209,17 @@ public class ThemeHostTest extends DeviceTestCase {
         return numTasks;
     }
 
+    private static byte[] readEntry(ZipInputStream in, ZipEntry entry, byte[] buffer)
+            throws IOException {
+        final long size = entry.getSize();
+        final ByteArrayOutputStream out =
+                new ByteArrayOutputStream(size > 0 ? (int) size : BUFFER_SIZE);
+        for (int count; (count = in.read(buffer)) != -1; ) {
+            out.write(buffer, 0, count);
+        }
+        return out.toByteArray();
+    }
+
     private boolean generateDeviceImages() throws Exception {
         // Stop any existing instances.
         mDevice.executeShellCommand(STOP_CMD);
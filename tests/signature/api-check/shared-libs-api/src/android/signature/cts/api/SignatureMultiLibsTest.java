@@ -33,8 +33,6 @@ import static com.android.compatibility.common.util.SystemUtil.runShellCommand;
  */
 public class SignatureMultiLibsTest extends SignatureTest {
 
-    private static final String TAG = SignatureMultiLibsTest.class.getSimpleName();
-
     /**
      * Tests that the device's API matches the expected set defined in xml.
      * <p/>
@@ -46,9 +44,11 @@ public class SignatureMultiLibsTest extends SignatureTest {
             ApiComplianceChecker complianceChecker =
                     new ApiComplianceChecker(mResultObserver, classProvider);
 
-            ApiDocumentParser apiDocumentParser = new ApiDocumentParser(TAG);
+            ApiDocumentParser apiDocumentParser = new ApiDocumentParser();
 
+            // Checks the classes in parallel, the checker and observer are thread safe.
             parseApiFilesAsStream(apiDocumentParser, expectedApiFiles)
+                    .parallel()
                     .forEach(complianceChecker::checkSignatureCompliance);
 
             // After done parsing all expected API files, perform any deferred checks.
@@ -17,7 +17,9 @@ package android.signature.cts.api;
 
 import android.os.Bundle;
 import android.signature.cts.ApiDocumentParser;
+import android.signature.cts.ApiSnapshotParser;
 import android.signature.cts.ClassProvider;
+import android.signature.cts.ConcatSpliterator;
 import android.signature.cts.ExcludingClassProvider;
 import android.signature.cts.FailureType;
 import android.signature.cts.JDiffClassDescription;
@@ -34,6 +36,8 @@ import java.nio.file.StandardOpenOption;
 import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.zip.ZipFile;
 import org.xmlpull.v1.XmlPullParserException;
@@ -46,6 +50,8 @@ import static android.signature.cts.CurrentApi.API_FILE_DIRECTORY;
  */
 public class AbstractApiTest extends InstrumentationTestCase {
 
+    private static final String SNAPSHOT_EXTENSION = ".snapshot";
+
     private TestResultObserver mResultObserver;
 
     ClassProvider classProvider;
@@ -122,20 +128,25 @@ public class AbstractApiTest extends InstrumentationTestCase {
                     }
                 });
             } else {
-                try (FileChannel fileChannel = (FileChannel) Files.newByteChannel(file.toPath(),
-                        EnumSet.of(StandardOpenOption.READ))) {
-                    ByteBuffer mappedByteBuffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0,
-                            fileChannel.size());
-                    if (mappedByteBuffer == null) {
-                        throw new IllegalStateException("Could not map " + file);
-                    }
-                    return Stream.of(mappedByteBuffer);
-                }
+                return Stream.of(mapFile(file));
             }
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
+
+    private static ByteBuffer mapFile(File file) throws IOException {
+        try (FileChannel fileChannel = (FileChannel) Files.newByteChannel(file.toPath(),
+                EnumSet.of(StandardOpenOption.READ))) {
+            ByteBuffer mappedByteBuffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    fileChannel.size());
+            if (mappedByteBuffer == null) {
+                throw new IllegalStateException("Could not map " + file);
+            }
+            return mappedByteBuffer;
+        }
+    }
+
     Stream<InputStream> readFile(File file) {
         try {
             if (file.getName().endsWith(".zip")) {
@@ -157,15 +168,44 @@ public class AbstractApiTest extends InstrumentationTestCase {
 
     Stream<JDiffClassDescription> parseApiFilesAsStream(
             ApiDocumentParser apiDocumentParser, String[] apiFiles) {
-        return Stream.of(apiFiles)
+        // Concatenates the sources rather than flat mapping them, as a flat mapped stream is
+        // consumed sequentially even when the resulting stream is parallel.
+        return ConcatSpliterator.concat(Stream.of(apiFiles)
                 .map(name -> new File(API_FILE_DIRECTORY + "/" + name))
-                .flatMap(this::readFile)
-                .flatMap(stream -> {
-                    try {
-                        return apiDocumentParser.parseAsStream(stream);
-                    } catch (IOException | XmlPullParserException e) {
-                        throw new RuntimeException(e);
-                    }
-                });
+                .flatMap(file -> getApiFileSources(apiDocumentParser, file))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Returns the binary snapshot of an api file if the build generated one, otherwise the xml
+     * api file itself, or every xml file in it if it is a zip.
+     *
+     * <p>The sources are only parsed when the stream reaches them.
+     */
+    private Stream<Supplier<Stream<JDiffClassDescription>>> getApiFileSources(
+            ApiDocumentParser apiDocumentParser, File file) {
+        File snapshotFile = new File(file.getPath() + SNAPSHOT_EXTENSION);
+        if (snapshotFile.isFile()) {
+            try {
+                ByteBuffer snapshot = mapFile(snapshotFile);
+                if (ApiSnapshotParser.isSnapshot(snapshot)) {
+                    return Stream.of(() -> new ApiSnapshotParser().parseAsStream(snapshot));
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return readFile(file).map(stream -> getApiSource(apiDocumentParser, stream));
+    }
+
+    private static Supplier<Stream<JDiffClassDescription>> getApiSource(
+            ApiDocumentParser apiDocumentParser, InputStream stream) {
+        return () -> {
+            try {
+                return apiDocumentParser.parseAsStream(stream);
+            } catch (IOException | XmlPullParserException e) {
+                throw new RuntimeException(e);
+            }
+        };
     }
 }
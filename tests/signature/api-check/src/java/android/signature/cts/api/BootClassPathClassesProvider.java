@@ -28,33 +28,72 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.stream.Stream;
 
 @SuppressWarnings("deprecation")
 public class BootClassPathClassesProvider extends ClassProvider {
     private static boolean sJvmtiAttached = false;
 
+    private static Class<?>[] sBootClassPathClasses;
+
+    private static BootClassPathMembers sBootClassPathMembers;
+
     @Override
     public Stream<Class<?>> getAllClasses() {
-        maybeAttachJvmtiAgent();
-        return Arrays.stream(getClassloaderDescriptors(Object.class.getClassLoader()))
-                .map(descriptor -> {
-                    String classname = descriptor.replace('/', '.');
-                    // omit L and ; at the front and at the end
-                    return classname.substring(1, classname.length() - 1);
-                })
-                .map(classname -> {
-                    try {
-                        return getClass(classname);
-                    } catch (ClassNotFoundException e) {
-                        throw new RuntimeException("Cannot load " + classname, e);
-                    }
-                });
+        return Arrays.stream(getBootClassPathClasses());
     }
 
     @Override
     public Stream<DexMember> getAllMembers(Class<?> klass) {
+        DexMember[] members = getBootClassPathMembers().getMembers(klass);
+        if (members == null) {
+            // Not a boot classpath class, look it up on its own.
+            members = getClassMembers(klass);
+        }
+        return Arrays.stream(members);
+    }
+
+    private Class<?>[] getBootClassPathClasses() {
+        synchronized (BootClassPathClassesProvider.class) {
+            if (sBootClassPathClasses == null) {
+                maybeAttachJvmtiAgent();
+                sBootClassPathClasses =
+                        Arrays.stream(getClassloaderDescriptors(Object.class.getClassLoader()))
+                        .map(descriptor -> {
+                            String classname = descriptor.replace('/', '.');
+                            // omit L and ; at the front and at the end
+                            return classname.substring(1, classname.length() - 1);
+                        })
+                        .map(classname -> {
+                            try {
+                                return getClass(classname);
+                            } catch (ClassNotFoundException e) {
+                                throw new RuntimeException("Cannot load " + classname, e);
+                            }
+                        })
+                        .toArray(Class<?>[]::new);
+            }
+            return sBootClassPathClasses;
+        }
+    }
+
+    private BootClassPathMembers getBootClassPathMembers() {
+        synchronized (BootClassPathClassesProvider.class) {
+            if (sBootClassPathMembers == null) {
+                Class<?>[] classes = getBootClassPathClasses();
+                sBootClassPathMembers = new BootClassPathMembers(
+                        classes, getAllClassMemberNamesAndTypes(classes));
+            }
+            return sBootClassPathMembers;
+        }
+    }
+
+    private static DexMember[] getClassMembers(Class<?> klass) {
         maybeAttachJvmtiAgent();
 
         String[][] field_infos = getClassMemberNamesAndTypes(klass, /* fields */ true);
@@ -64,7 +103,7 @@ public class BootClassPathClassesProvider extends ClassProvider {
           throw new RuntimeException("Invalid result from getClassMemberNamesAndTypes");
         }
 
-        String klass_desc = "L" + klass.getName().replace('.', '/') + ";";
+        String klass_desc = getDescriptor(klass);
         DexMember[] members = new DexMember[field_infos[0].length + method_infos[0].length];
         for (int i = 0; i < field_infos[0].length; i++) {
             members[i] = new DexField(klass_desc, field_infos[0][i], field_infos[1][i], null);
@@ -73,7 +112,100 @@ public class BootClassPathClassesProvider extends ClassProvider {
             members[i + field_infos[0].length] =
                 new DexMethod(klass_desc, method_infos[0][i], method_infos[1][i], null);
         }
-        return Arrays.stream(members);
+        return members;
+    }
+
+    private static String getDescriptor(Class<?> klass) {
+        return "L" + klass.getName().replace('.', '/') + ";";
+    }
+
+    /**
+     * The names and types of the members of all the boot classpath classes, fetched from the
+     * JVMTI agent in a single call rather than two calls per class.
+     *
+     * <p>The packed result is kept as is and the members of a class are only created when they
+     * are asked for. See getAllClassMemberNamesAndTypes in classdescriptors.cpp for the layout.
+     */
+    private static class BootClassPathMembers {
+        private final String[] mStrings;
+        private final ByteBuffer mRecords;
+        private final Map<Class<?>, Integer> mRecordOffsets;
+
+        BootClassPathMembers(Class<?>[] classes, byte[] packed) {
+            ByteBuffer buffer = ByteBuffer.wrap(packed).order(ByteOrder.nativeOrder());
+
+            mStrings = new String[buffer.getInt()];
+            for (int i = 0; i < mStrings.length; i++) {
+                int length = buffer.getInt();
+                mStrings[i] = decodeModifiedUtf8(packed, buffer.position(), length);
+                buffer.position(buffer.position() + length);
+            }
+
+            mRecords = buffer.slice().order(ByteOrder.nativeOrder());
+            mRecordOffsets = new IdentityHashMap<>(classes.length * 2);
+            int offset = 0;
+            for (Class<?> klass : classes) {
+                mRecordOffsets.put(klass, offset);
+                // Skip the name and type indexes of the fields, then of the methods.
+                offset += Integer.BYTES * (1 + 2 * mRecords.getInt(offset));
+                offset += Integer.BYTES * (1 + 2 * mRecords.getInt(offset));
+            }
+            if (offset != mRecords.limit()) {
+                throw new RuntimeException("Invalid result from getAllClassMemberNamesAndTypes");
+            }
+        }
+
+        /**
+         * Decodes the modified UTF-8 that JVMTI returns names and types in, where supplementary
+         * characters are encoded as two 3-byte surrogates and NUL as two bytes.
+         */
+        private static String decodeModifiedUtf8(byte[] bytes, int offset, int length) {
+            char[] chars = new char[length];
+            int count = 0;
+            int end = offset + length;
+            while (offset < end) {
+                int b = bytes[offset++] & 0xff;
+                if (b < 0x80) {
+                    chars[count++] = (char) b;
+                } else if ((b & 0xe0) == 0xc0 && offset < end) {
+                    chars[count++] = (char) (((b & 0x1f) << 6) | (bytes[offset++] & 0x3f));
+                } else if ((b & 0xf0) == 0xe0 && offset + 1 < end) {
+                    chars[count++] = (char) (((b & 0x0f) << 12)
+                            | ((bytes[offset++] & 0x3f) << 6) | (bytes[offset++] & 0x3f));
+                } else {
+                    throw new RuntimeException("Invalid modified UTF-8 in member names");
+                }
+            }
+            return new String(chars, 0, count);
+        }
+
+        /**
+         * @return the members of the class or null if it is not a boot classpath class.
+         */
+        DexMember[] getMembers(Class<?> klass) {
+            Integer recordOffset = mRecordOffsets.get(klass);
+            if (recordOffset == null) {
+                return null;
+            }
+
+            String klass_desc = getDescriptor(klass);
+            int offset = recordOffset;
+            int field_count = mRecords.getInt(offset);
+            int method_count = mRecords.getInt(offset + Integer.BYTES * (1 + 2 * field_count));
+            DexMember[] members = new DexMember[field_count + method_count];
+            offset += Integer.BYTES;
+            for (int i = 0; i < field_count; i++, offset += 2 * Integer.BYTES) {
+                members[i] = new DexField(klass_desc, mStrings[mRecords.getInt(offset)],
+                        mStrings[mRecords.getInt(offset + Integer.BYTES)], null);
+            }
+            offset += Integer.BYTES;
+            for (int i = 0; i < method_count; i++, offset += 2 * Integer.BYTES) {
+                members[i + field_count] = new DexMethod(klass_desc,
+                        mStrings[mRecords.getInt(offset)],
+                        mStrings[mRecords.getInt(offset + Integer.BYTES)], null);
+            }
+            return members;
+        }
     }
 
     private static void maybeAttachJvmtiAgent() {
@@ -114,4 +246,5 @@ public class BootClassPathClassesProvider extends ClassProvider {
 
     private static native String[] getClassloaderDescriptors(ClassLoader loader);
     private static native String[][] getClassMemberNamesAndTypes(Class<?> klass, boolean getFields);
+    private static native byte[] getAllClassMemberNamesAndTypes(Class<?>[] klasses);
 }
@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.signature.cts.api;
+
+import android.signature.cts.FailureType;
+import android.signature.cts.ResultObserver;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records the progress of a hidden API test so that when its process dies, e.g. because a slow
+ * lookup hit the instrumentation timeout, the rerun resumes where it stopped.
+ *
+ * <p>The api files are checked in batches of lines, in order, and a position is the offset of a
+ * line in the concatenated api files. A begin marker is appended to the checkpoint file before a
+ * batch is checked, and its failures and a done marker once it is checked. The failures of a
+ * batch only count once its done marker is read, so a batch left incomplete by a crash is checked
+ * again. The rerun checks it one member at a time, with a begin marker for every member, and a
+ * member that was begun {@link #MAX_ATTEMPTS} times is not checked again.
+ *
+ * <p>The file is not synced after a write. The lines outlive the process, which is what the
+ * checkpoint is for, but may be lost if the device reboots.
+ */
+class HiddenApiCheckpoint {
+
+    /** The number of times a member is started before the test gives up on it. */
+    static final int MAX_ATTEMPTS = 2;
+
+    private static final String BEGIN_BATCH = "B";
+    private static final String BEGIN_MEMBER = "M";
+    private static final String DONE = "D";
+    private static final String FAILURE = "F";
+    private static final String SEPARATOR = "\t";
+
+    private final File mFile;
+
+    private long mResumePosition = 0;
+
+    /** The position of the last batch or member begun by an earlier run. */
+    private long mLastBegin = -1;
+
+    private final Map<Long, Integer> mMemberAttempts = new HashMap<>();
+
+    private final List<Failure> mDoneFailures = new ArrayList<>();
+
+    /**
+     * @param file the checkpoint file, the progress recorded in it is loaded if it exists.
+     */
+    HiddenApiCheckpoint(File file) throws IOException {
+        mFile = file;
+        if (!file.isFile()) {
+            return;
+        }
+
+        Map<Long, List<Failure>> pendingFailures = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(SEPARATOR, -1);
+                try {
+                    if (parts.length == 2
+                            && (BEGIN_BATCH.equals(parts[0]) || BEGIN_MEMBER.equals(parts[0]))) {
+                        long position = Long.parseLong(parts[1]);
+                        if (BEGIN_MEMBER.equals(parts[0])) {
+                            mMemberAttempts.merge(position, 1, Integer::sum);
+                        }
+                        mLastBegin = Math.max(mLastBegin, position);
+                        pendingFailures.put(position, new ArrayList<>());
+                    } else if (parts.length == 5 && FAILURE.equals(parts[0])) {
+                        Failure failure = new Failure(Long.parseLong(parts[1]),
+                                FailureType.valueOf(parts[2]), parts[3], parts[4]);
+                        pendingFailures.computeIfAbsent(failure.position, k -> new ArrayList<>())
+                                .add(failure);
+                    } else if (parts.length == 3 && DONE.equals(parts[0])) {
+                        // A member that is not checked again, and the end of a batch whose
+                        // members were checked one at a time, are done without a begin marker.
+                        List<Failure> failures = pendingFailures.remove(Long.parseLong(parts[1]));
+                        if (failures != null) {
+                            mDoneFailures.addAll(failures);
+                        }
+                        mResumePosition = Math.max(mResumePosition, Long.parseLong(parts[2]));
+                    }
+                } catch (IllegalArgumentException e) {
+                    // Incomplete line, ignore.
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the position of the first line that is not checked yet.
+     */
+    long getResumePosition() {
+        return mResumePosition;
+    }
+
+    /**
+     * Returns whether an earlier run died while checking the lines from the resume position on.
+     */
+    boolean isInterrupted() {
+        return mLastBegin >= mResumePosition;
+    }
+
+    /**
+     * Gets the number of times earlier runs started checking the member at a position.
+     */
+    int getMemberAttempts(long position) {
+        return mMemberAttempts.getOrDefault(position, 0);
+    }
+
+    /**
+     * Reports the failures of the batches and members that were done before the checkpoint was
+     * loaded.
+     */
+    void replayFailures(ResultObserver resultObserver) {
+        for (Failure failure : mDoneFailures) {
+            failure.report(resultObserver);
+        }
+    }
+
+    /**
+     * Records that the batch of lines starting at a position is being checked.
+     */
+    void beginBatch(long position) throws IOException {
+        begin(BEGIN_BATCH, position);
+    }
+
+    /**
+     * Records that the member at a position is being checked on its own.
+     */
+    void beginMember(long position) throws IOException {
+        begin(BEGIN_MEMBER, position);
+    }
+
+    private void begin(String marker, long position) throws IOException {
+        // Starts on a new line in case the last write was cut short.
+        append("\n" + marker + SEPARATOR + position + "\n");
+    }
+
+    /**
+     * Records that the batch or member starting at a position is done.
+     *
+     * @param end the position of the first line after the batch or member.
+     * @param failures the failures found in the batch or member.
+     */
+    void markDone(long position, long end, List<Failure> failures) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (Failure failure : failures) {
+            lines.append(FAILURE).append(SEPARATOR)
+                    .append(position).append(SEPARATOR)
+                    .append(failure.type.name()).append(SEPARATOR)
+                    .append(sanitize(failure.name)).append(SEPARATOR)
+                    .append(sanitize(failure.errorMessage)).append('\n');
+        }
+        lines.append(DONE).append(SEPARATOR).append(position).append(SEPARATOR).append(end)
+                .append('\n');
+        append(lines.toString());
+        mResumePosition = end;
+    }
+
+    /**
+     * Deletes the checkpoint once the test is finished, or failed without its process dying, so
+     * the next run starts over.
+     */
+    void delete() {
+        mFile.delete();
+    }
+
+    private void append(String lines) throws IOException {
+        try (Writer writer = new OutputStreamWriter(
+                new FileOutputStream(mFile, /* append= */ true), StandardCharsets.UTF_8)) {
+            writer.write(lines);
+        }
+    }
+
+    private static String sanitize(String value) {
+        return value.replace('\t', ' ').replace('\n', ' ');
+    }
+
+    /**
+     * A failure found in the batch or member starting at a position.
+     */
+    static class Failure {
+        final long position;
+        final FailureType type;
+        final String name;
+        final String errorMessage;
+
+        Failure(long position, FailureType type, String name, String errorMessage) {
+            this.position = position;
+            this.type = type;
+            this.name = name;
+            this.errorMessage = errorMessage;
+        }
+
+        void report(ResultObserver resultObserver) {
+            resultObserver.notifyFailure(type, name, errorMessage);
+        }
+    }
+}
@@ -25,23 +25,61 @@ import android.signature.cts.DexMember;
 import android.signature.cts.DexMemberChecker;
 import android.signature.cts.DexMethod;
 import android.signature.cts.FailureType;
+import android.signature.cts.ResultObserver;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 /**
  * Checks that it is not possible to access hidden APIs.
+ *
+ * <p>The members can be split across devices with the hiddenapi-shard-count and
+ * hiddenapi-shard-index instrumentation arguments, members are assigned to shards by their class.
+ * The api files are parsed and checked in parallel, in batches of lines, and the progress is
+ * checkpointed after every batch in the directory given by the hiddenapi-checkpoint-dir argument,
+ * or the files directory of the test package. If the process dies, e.g. on a slow lookup, the
+ * rerun resumes from the checkpoint, and a member that keeps killing the process is reported as a
+ * failure instead of being checked again.
  */
 public class HiddenApiTest extends AbstractApiTest {
 
+    /** The number of bytes of the api files checked between two checkpoints. */
+    private static final int BATCH_SIZE = 256 * 1024;
+
     private String[] hiddenapiFiles;
-    private String[] hiddenapiTestFlags;
+    private Set<String> hiddenapiTestFlags;
+    private int shardCount;
+    private int shardIndex;
+    private File checkpointDir;
 
     @Override
     protected void initializeFromArgs(Bundle instrumentationArgs) throws Exception {
         hiddenapiFiles = getCommaSeparatedList(instrumentationArgs, "hiddenapi-files");
-        hiddenapiTestFlags = getCommaSeparatedList(instrumentationArgs, "hiddenapi-test-flags");
+        hiddenapiTestFlags = new HashSet<>(Arrays.asList(
+                getCommaSeparatedList(instrumentationArgs, "hiddenapi-test-flags")));
+        shardCount = Integer.parseInt(
+                instrumentationArgs.getString("hiddenapi-shard-count", "1"));
+        shardIndex = Integer.parseInt(
+                instrumentationArgs.getString("hiddenapi-shard-index", "0"));
+        if (shardCount < 1 || shardIndex < 0 || shardIndex >= shardCount) {
+            throw new IllegalArgumentException(
+                    "Invalid shard " + shardIndex + " of " + shardCount + " shards");
+        }
+        String checkpointDirName = instrumentationArgs.getString("hiddenapi-checkpoint-dir");
+        checkpointDir = checkpointDirName != null
+                ? new File(checkpointDirName) : getInstrumentation().getContext().getFilesDir();
     }
 
     @Override
@@ -83,95 +121,238 @@ public class HiddenApiTest extends AbstractApiTest {
     private void doTestSignature(Predicate<DexMember> memberFilter, boolean reflection,
             boolean jni) {
         runWithTestResultObserver(resultObserver -> {
-            DexMemberChecker.Observer observer = new DexMemberChecker.Observer() {
-                @Override
-                public void classAccessible(boolean accessible, DexMember member) {
-                }
+            HiddenApiCheckpoint checkpoint = new HiddenApiCheckpoint(getCheckpointFile());
+            try {
+                checkpoint.replayFailures(resultObserver);
+                Predicate<DexMember> shardFilter = memberFilter
+                        .and(this::shouldTestMember)
+                        .and(dexMember -> getShard(dexMember) == shardIndex);
+                DexApiDocumentParser dexApiDocumentParser = new DexApiDocumentParser();
 
-                @Override
-                public void fieldAccessibleViaReflection(boolean accessible, DexField field) {
-                    if (accessible) {
-                        synchronized(resultObserver) {
-                            resultObserver.notifyFailure(
-                                    FailureType.EXTRA_FIELD,
-                                    field.toString(),
-                                    "Hidden field accessible through reflection");
+                // The position of a line is its offset in the api files one after the other, so
+                // that it is the same on every run.
+                long base = 0;
+                Iterator<ByteBuffer> buffers = readDexApiFiles(hiddenapiFiles);
+                while (buffers.hasNext()) {
+                    ByteBuffer buffer = buffers.next();
+                    long end = base + buffer.limit();
+                    while (checkpoint.getResumePosition() < end) {
+                        int start = (int) (checkpoint.getResumePosition() - base);
+                        int limit = getBatchLimit(buffer, start);
+                        if (checkpoint.isInterrupted()) {
+                            checkMembers(dexApiDocumentParser, buffer, base, start, limit,
+                                    shardFilter, reflection, jni, checkpoint, resultObserver);
+                        } else {
+                            checkBatch(dexApiDocumentParser, buffer, base, start, limit,
+                                    shardFilter, reflection, jni, checkpoint, resultObserver);
                         }
                     }
+                    base = end;
                 }
 
-                @Override
-                public void fieldAccessibleViaJni(boolean accessible, DexField field) {
-                    if (accessible) {
-                        synchronized(resultObserver) {
-                            resultObserver.notifyFailure(
-                                    FailureType.EXTRA_FIELD,
-                                    field.toString(),
-                                    "Hidden field accessible through JNI");
-                        }
-                    }
+                // Finished, so the next run starts over.
+                checkpoint.delete();
+            } catch (Exception e) {
+                // The process did not die, so the next run must not resume from the checkpoint.
+                checkpoint.delete();
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Checks the members in a batch of lines in parallel, with a single checkpoint for the batch.
+     */
+    private void checkBatch(DexApiDocumentParser dexApiDocumentParser, ByteBuffer buffer,
+            long base, int start, int limit, Predicate<DexMember> shardFilter, boolean reflection,
+            boolean jni, HiddenApiCheckpoint checkpoint, ResultObserver resultObserver)
+            throws IOException {
+        long position = base + start;
+        List<HiddenApiCheckpoint.Failure> failures =
+                Collections.synchronizedList(new ArrayList<>());
+        DexMemberChecker.Observer observer = createObserver(
+                (type, name, errorMessage) -> failures.add(
+                        new HiddenApiCheckpoint.Failure(position, type, name, errorMessage)));
+        checkpoint.beginBatch(position);
+        dexApiDocumentParser.parseAsStream(slice(buffer, start, limit))
+                .filter(shardFilter)
+                .forEach(dexMember -> DexMemberChecker.checkSingleMember(
+                        dexMember, reflection, jni, observer));
+        checkpoint.markDone(position, base + limit, failures);
+        report(failures, resultObserver);
+    }
+
+    /**
+     * Checks the members in a batch of lines one at a time, with a checkpoint for every member,
+     * after an earlier run died while checking them. A member that keeps killing the process is
+     * reported as a failure instead of being checked again.
+     */
+    private void checkMembers(DexApiDocumentParser dexApiDocumentParser, ByteBuffer buffer,
+            long base, int start, int limit, Predicate<DexMember> shardFilter, boolean reflection,
+            boolean jni, HiddenApiCheckpoint checkpoint, ResultObserver resultObserver)
+            throws IOException {
+        int lineStart = start;
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int nextLineStart = Math.min(lineEnd + 1, limit);
+            DexMember dexMember = dexApiDocumentParser
+                    .parseAsStream(slice(buffer, lineStart, lineEnd))
+                    .findFirst()
+                    .get();
+            if (shardFilter.test(dexMember)) {
+                long position = base + lineStart;
+                List<HiddenApiCheckpoint.Failure> failures = new ArrayList<>();
+                int attempts = checkpoint.getMemberAttempts(position);
+                if (attempts >= HiddenApiCheckpoint.MAX_ATTEMPTS) {
+                    failures.add(new HiddenApiCheckpoint.Failure(position,
+                            FailureType.CAUGHT_EXCEPTION, dexMember.toString(),
+                            "Process died " + attempts + " times while checking this member"));
+                } else {
+                    checkpoint.beginMember(position);
+                    DexMemberChecker.checkSingleMember(dexMember, reflection, jni,
+                            createObserver((type, name, errorMessage) -> failures.add(
+                                    new HiddenApiCheckpoint.Failure(
+                                            position, type, name, errorMessage))));
                 }
+                checkpoint.markDone(position, base + nextLineStart, failures);
+                report(failures, resultObserver);
+            }
+            lineStart = nextLineStart;
+        }
+        checkpoint.markDone(base + start, base + limit, Collections.emptyList());
+    }
 
-                @Override
-                public void methodAccessibleViaReflection(boolean accessible, DexMethod method) {
-                    if (accessible) {
-                        synchronized(resultObserver) {
-                            resultObserver.notifyFailure(
-                                    FailureType.EXTRA_METHOD,
-                                    method.toString(),
-                                    "Hidden method accessible through reflection");
-                        }
-                    }
+    private static void report(List<HiddenApiCheckpoint.Failure> failures,
+            ResultObserver resultObserver) {
+        for (HiddenApiCheckpoint.Failure failure : failures) {
+            failure.report(resultObserver);
+        }
+    }
+
+    /**
+     * Gets the end of the batch of lines starting at an offset, the batches are cut at the first
+     * line break after {@link #BATCH_SIZE} bytes.
+     */
+    private static int getBatchLimit(ByteBuffer buffer, int start) {
+        int limit = Math.min(start + BATCH_SIZE, buffer.limit());
+        while (limit < buffer.limit() && buffer.get(limit - 1) != '\n') {
+            limit++;
+        }
+        return limit;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int start, int limit) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.limit(limit).position(start);
+        return slice.slice();
+    }
+
+    private DexMemberChecker.Observer createObserver(ResultObserver resultObserver) {
+        return new DexMemberChecker.Observer() {
+            @Override
+            public void classAccessible(boolean accessible, DexMember member) {
+            }
+
+            @Override
+            public void fieldAccessibleViaReflection(boolean accessible, DexField field) {
+                if (accessible) {
+                    resultObserver.notifyFailure(
+                            FailureType.EXTRA_FIELD,
+                            field.toString(),
+                            "Hidden field accessible through reflection");
                 }
+            }
 
-                @Override
-                public void methodAccessibleViaJni(boolean accessible, DexMethod method) {
-                    if (accessible) {
-                        synchronized(resultObserver) {
-                            resultObserver.notifyFailure(
-                                    FailureType.EXTRA_METHOD,
-                                    method.toString(),
-                                    "Hidden method accessible through JNI");
-                        }
-                    }
+            @Override
+            public void fieldAccessibleViaJni(boolean accessible, DexField field) {
+                if (accessible) {
+                    resultObserver.notifyFailure(
+                            FailureType.EXTRA_FIELD,
+                            field.toString(),
+                            "Hidden field accessible through JNI");
                 }
-            };
-            parseDexApiFilesAsStream(hiddenapiFiles)
-                    .filter(memberFilter)
-                    .forEach(dexMember -> {
-                        if (shouldTestMember(dexMember)) {
-                            DexMemberChecker.checkSingleMember(dexMember, reflection, jni,
-                                    observer);
-                        }
-                    });
-        });
+            }
+
+            @Override
+            public void methodAccessibleViaReflection(boolean accessible, DexMethod method) {
+                if (accessible) {
+                    resultObserver.notifyFailure(
+                            FailureType.EXTRA_METHOD,
+                            method.toString(),
+                            "Hidden method accessible through reflection");
+                }
+            }
+
+            @Override
+            public void methodAccessibleViaJni(boolean accessible, DexMethod method) {
+                if (accessible) {
+                    resultObserver.notifyFailure(
+                            FailureType.EXTRA_METHOD,
+                            method.toString(),
+                            "Hidden method accessible through JNI");
+                }
+            }
+        };
     }
 
-    private Stream<DexMember> parseDexApiFilesAsStream(String[] apiFiles) {
-        DexApiDocumentParser dexApiDocumentParser = new DexApiDocumentParser();
-        // To allow parallelization with a DexMember output type, we need two
-        // pipes.
-        Stream<Stream<DexMember>> inputsAsStreams = Stream.of(apiFiles).parallel()
+    /**
+     * Gets the shard of a member. Members of the same class share a shard, and String.hashCode()
+     * is the same on every device.
+     */
+    private int getShard(DexMember member) {
+        return Math.floorMod(member.getDexClassName().hashCode(), shardCount);
+    }
+
+    /**
+     * Gets the checkpoint of the current test, specific to the shard and to the api files so that
+     * a checkpoint is never used for different inputs.
+     */
+    private File getCheckpointFile() {
+        StringBuilder inputs = new StringBuilder();
+        for (String name : hiddenapiFiles) {
+            File file = new File(API_FILE_DIRECTORY + "/" + name);
+            inputs.append(name).append(':').append(file.length()).append(':')
+                    .append(file.lastModified()).append(',');
+        }
+        inputs.append(hiddenapiTestFlags);
+        return new File(checkpointDir, String.format("hiddenapi-%s-%s-%d-of-%d-%08x.checkpoint",
+                getClass().getSimpleName(), getName(), shardIndex, shardCount,
+                inputs.toString().hashCode()));
+    }
+
+    /**
+     * Reads the api files one after the other, the entries of a zip are read into memory.
+     */
+    private Iterator<ByteBuffer> readDexApiFiles(String[] apiFiles) {
+        return Stream.of(apiFiles)
                 .map(name -> new File(API_FILE_DIRECTORY + "/" + name))
                 .flatMap(file -> readFileOptimized(file))
-                .map(obj -> dexApiDocumentParser.parseAsStream(obj));
-        // The flatMap inherently serializes the pipe. The number of inputs is
-        // still small here, so reduce by concatenating (note the caveats of
-        // concats).
-        return inputsAsStreams.reduce(null, (prev, stream) -> {
-            if (prev == null) {
-                return stream;
+                .map(obj -> obj instanceof ByteBuffer
+                        ? (ByteBuffer) obj : readFully((InputStream) obj))
+                .iterator();
+    }
+
+    private static ByteBuffer readFully(InputStream inputStream) {
+        try (InputStream input = inputStream) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[64 * 1024];
+            int length;
+            while ((length = input.read(buffer)) > 0) {
+                output.write(buffer, 0, length);
             }
-            return Stream.concat(prev, stream);
-        });
+            return ByteBuffer.wrap(output.toByteArray());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     private boolean shouldTestMember(DexMember member) {
-        for (String testFlag : hiddenapiTestFlags) {
-            for (String memberFlag : member.getHiddenapiFlags()) {
-                if (testFlag.equals(memberFlag)) {
-                    return true;
-                }
+        for (String memberFlag : member.getHiddenapiFlags()) {
+            if (hiddenapiTestFlags.contains(memberFlag)) {
+                return true;
             }
         }
         return false;
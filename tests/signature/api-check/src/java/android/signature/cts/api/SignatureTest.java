@@ -36,8 +36,6 @@ import org.xmlpull.v1.XmlPullParserException;
  */
 public class SignatureTest extends AbstractApiTest {
 
-    private static final String TAG = SignatureTest.class.getSimpleName();
-
     protected String[] expectedApiFiles;
     protected String[] baseApiFiles;
     private String[] unexpectedApiFiles;
@@ -73,9 +71,11 @@ public class SignatureTest extends AbstractApiTest {
             // Load classes from any API files that form the base which the expected APIs extend.
             loadBaseClasses(complianceChecker);
 
-            ApiDocumentParser apiDocumentParser = new ApiDocumentParser(TAG);
+            ApiDocumentParser apiDocumentParser = new ApiDocumentParser();
 
+            // Checks the classes in parallel, the checker and observer are thread safe.
             parseApiFilesAsStream(apiDocumentParser, expectedApiFiles)
+                    .parallel()
                     .filter(not(unexpectedClasses::contains))
                     .forEach(complianceChecker::checkSignatureCompliance);
 
@@ -100,7 +100,7 @@ public class SignatureTest extends AbstractApiTest {
     private Set<JDiffClassDescription> loadUnexpectedClasses()
             throws IOException, XmlPullParserException {
 
-        ApiDocumentParser apiDocumentParser = new ApiDocumentParser(TAG);
+        ApiDocumentParser apiDocumentParser = new ApiDocumentParser();
         return parseApiFilesAsStream(apiDocumentParser, unexpectedApiFiles)
                 .collect(Collectors.toCollection(SignatureTest::newSetOfClassDescriptions));
     }
@@ -112,8 +112,7 @@ public class SignatureTest extends AbstractApiTest {
     private void loadBaseClasses(ApiComplianceChecker complianceChecker)
             throws IOException, XmlPullParserException {
 
-        ApiDocumentParser apiDocumentParser =
-                new ApiDocumentParser(TAG);
+        ApiDocumentParser apiDocumentParser = new ApiDocumentParser();
         parseApiFilesAsStream(apiDocumentParser, baseApiFiles)
                 .forEach(complianceChecker::addBaseClass);
     }
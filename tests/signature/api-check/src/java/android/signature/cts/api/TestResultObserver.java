@@ -21,6 +21,8 @@ import android.signature.cts.ResultObserver;
 
 /**
  * Keeps track of any reported failures.
+ *
+ * <p>Failures may be reported concurrently, the results must only be read once checking is done.
  */
 class TestResultObserver implements ResultObserver {
 
@@ -30,7 +32,7 @@ class TestResultObserver implements ResultObserver {
     StringBuilder mErrorString = new StringBuilder();
 
     @Override
-    public void notifyFailure(FailureType type, String name, String errorMessage) {
+    public synchronized void notifyFailure(FailureType type, String name, String errorMessage) {
         mDidFail = true;
         failures++;
         if (failures <= 100) {
@@ -23,6 +23,9 @@
 
 #include <iostream>
 #include <sstream>
+#include <string>
+#include <unordered_map>
+#include <vector>
 
 namespace android {
 namespace signature {
@@ -156,56 +159,98 @@ extern "C" JNIEXPORT void JNICALL Java_android_signature_cts_api_BootClassPathCl
   }
 }
 
-extern "C" JNIEXPORT jobjectArray JNICALL
-Java_android_signature_cts_api_BootClassPathClassesProvider_getClassMemberNamesAndTypes(
-    JNIEnv* env, jclass, jclass klass, jboolean getFields) {
+// Deduplicates the member names and types of all the classes, so that the strings shared by many
+// members, e.g. "()V", are only copied to the Java heap once.
+class StringTable {
+ public:
+  int32_t Add(const char* str) {
+    auto it = indexes_.find(str);
+    if (it != indexes_.end()) {
+      return it->second;
+    }
+    int32_t index = static_cast<int32_t>(strings_.size());
+    strings_.push_back(str);
+    indexes_.emplace(strings_.back(), index);
+    return index;
+  }
+
+  const std::vector<std::string>& Strings() const { return strings_; }
+
+ private:
+  std::unordered_map<std::string, int32_t> indexes_;
+  std::vector<std::string> strings_;
+};
+
+static void AppendInt(std::vector<uint8_t>* buffer, int32_t value) {
+  const uint8_t* bytes = reinterpret_cast<const uint8_t*>(&value);
+  buffer->insert(buffer->end(), bytes, bytes + sizeof(value));
+}
+
+static void ThrowJvmtiError(JNIEnv* env, const char* function, jvmtiError error) {
+  std::stringstream ss;
+  ss << "Error while executing " << function << ", error code: "
+     << static_cast<unsigned>(error);
+  std::string message = ss.str();
+  jclass rt_exception = env->FindClass("java/lang/RuntimeException");
+  env->ThrowNew(rt_exception, message.c_str());
+}
+
+// Appends the count and the name and type indexes of the fields or methods of a class.
+static bool AppendMembers(JNIEnv* env, jclass klass, bool getFields, StringTable* strings,
+                          std::vector<int32_t>* records) {
   jvmtiError error;
 
   jint count;
   ScopedJvmtiReference<jfieldID*> fids;
   ScopedJvmtiReference<jmethodID*> mids;
 
-  // Request a list of field/method IDs using JVMTI.
-  error = (getFields != JNI_FALSE) ? jvmti_env->GetClassFields(klass, &count, fids.GetPtr())
-                                   : jvmti_env->GetClassMethods(klass, &count, mids.GetPtr());
+  error = getFields ? jvmti_env->GetClassFields(klass, &count, fids.GetPtr())
+                    : jvmti_env->GetClassMethods(klass, &count, mids.GetPtr());
   if (error != JVMTI_ERROR_NONE) {
-    std::stringstream ss;
-    ss << "Error while executing "
-       << ((getFields != JNI_FALSE) ? "GetClassFields" : "GetClassMethods")
-       << ", error code: " << static_cast<unsigned>(error);
-    std::string error = ss.str();
-    jclass rt_exception = env->FindClass("java/lang/RuntimeException");
-    env->ThrowNew(rt_exception, error.c_str());
-    return nullptr;
+    ThrowJvmtiError(env, getFields ? "GetClassFields" : "GetClassMethods", error);
+    return false;
   }
 
-  jobjectArray names = env->NewObjectArray(count, env->FindClass("java/lang/String"), nullptr);
-  abortIfExceptionPending(env);
-  jobjectArray types = env->NewObjectArray(count, env->FindClass("java/lang/String"), nullptr);
-  abortIfExceptionPending(env);
-
-  // Convert IDs to names and types using JVMTI.
+  records->push_back(count);
   for (jint i = 0; i < count; ++i) {
     ScopedJvmtiReference<char*> name;
     ScopedJvmtiReference<char*> type;
 
-    error = (getFields != JNI_FALSE)
+    error = getFields
         ? jvmti_env->GetFieldName(klass, fids.Get()[i], name.GetPtr(), type.GetPtr(), nullptr)
         : jvmti_env->GetMethodName(mids.Get()[i], name.GetPtr(), type.GetPtr(), nullptr);
     if (error != JVMTI_ERROR_NONE) {
-      std::stringstream ss;
-      ss << "Error while executing "
-         << ((getFields != JNI_FALSE) ? "GetFieldName" : "GetMethodName")
-         << ", error code: " << static_cast<unsigned>(error);
-      std::string error = ss.str();
-      jclass rt_exception = env->FindClass("java/lang/RuntimeException");
-      env->ThrowNew(rt_exception, error.c_str());
-      return nullptr;
+      ThrowJvmtiError(env, getFields ? "GetFieldName" : "GetMethodName", error);
+      return false;
     }
 
-    env->SetObjectArrayElement(names, i, env->NewStringUTF(name.Get()));
+    records->push_back(strings->Add(name.Get()));
+    records->push_back(strings->Add(type.Get()));
+  }
+  return true;
+}
+
+extern "C" JNIEXPORT jobjectArray JNICALL
+Java_android_signature_cts_api_BootClassPathClassesProvider_getClassMemberNamesAndTypes(
+    JNIEnv* env, jclass, jclass klass, jboolean getFields) {
+  StringTable strings;
+  std::vector<int32_t> records;
+  if (!AppendMembers(env, klass, getFields != JNI_FALSE, &strings, &records)) {
+    return nullptr;
+  }
+
+  jint count = records[0];
+  jobjectArray names = env->NewObjectArray(count, env->FindClass("java/lang/String"), nullptr);
+  abortIfExceptionPending(env);
+  jobjectArray types = env->NewObjectArray(count, env->FindClass("java/lang/String"), nullptr);
+  abortIfExceptionPending(env);
+
+  for (jint i = 0; i < count; ++i) {
+    const std::string& name = strings.Strings()[records[1 + 2 * i]];
+    const std::string& type = strings.Strings()[records[2 + 2 * i]];
+    env->SetObjectArrayElement(names, i, env->NewStringUTF(name.c_str()));
     abortIfExceptionPending(env);
-    env->SetObjectArrayElement(types, i, env->NewStringUTF(type.Get()));
+    env->SetObjectArrayElement(types, i, env->NewStringUTF(type.c_str()));
     abortIfExceptionPending(env);
   }
 
@@ -222,6 +267,50 @@ Java_android_signature_cts_api_BootClassPathClassesProvider_getClassMemberNamesA
   return result;
 }
 
+// Returns the names and types of the fields and methods of all the given classes packed in a
+// single byte array, all ints are in native byte order:
+//
+//   int string_count
+//   string_count times: int length, length bytes of modified UTF-8
+//   for every class, in the order of the given array:
+//     int field_count, field_count times: int name_index, int type_index
+//     int method_count, method_count times: int name_index, int type_index
+extern "C" JNIEXPORT jbyteArray JNICALL
+Java_android_signature_cts_api_BootClassPathClassesProvider_getAllClassMemberNamesAndTypes(
+    JNIEnv* env, jclass, jobjectArray klasses) {
+  StringTable strings;
+  std::vector<int32_t> records;
+
+  jsize klass_count = env->GetArrayLength(klasses);
+  for (jsize i = 0; i < klass_count; ++i) {
+    jclass klass = static_cast<jclass>(env->GetObjectArrayElement(klasses, i));
+    abortIfExceptionPending(env);
+    bool ok = AppendMembers(env, klass, /* getFields */ true, &strings, &records) &&
+        AppendMembers(env, klass, /* getFields */ false, &strings, &records);
+    env->DeleteLocalRef(klass);
+    if (!ok) {
+      return nullptr;
+    }
+  }
+
+  std::vector<uint8_t> buffer;
+  AppendInt(&buffer, static_cast<int32_t>(strings.Strings().size()));
+  for (const std::string& str : strings.Strings()) {
+    AppendInt(&buffer, static_cast<int32_t>(str.size()));
+    buffer.insert(buffer.end(), str.begin(), str.end());
+  }
+  const uint8_t* record_bytes = reinterpret_cast<const uint8_t*>(records.data());
+  buffer.insert(buffer.end(), record_bytes, record_bytes + records.size() * sizeof(int32_t));
+
+  jbyteArray result = env->NewByteArray(static_cast<jsize>(buffer.size()));
+  if (result == nullptr) {
+    return nullptr;
+  }
+  env->SetByteArrayRegion(result, 0, static_cast<jsize>(buffer.size()),
+                          reinterpret_cast<const jbyte*>(buffer.data()));
+  return result;
+}
+
 }  // namespace api
 }  // namespace cts
 }  // namespace signature
@@ -29,8 +29,6 @@ import com.android.compatibility.common.util.PropertyUtil;
  */
 public class AnnotationTest extends AbstractApiTest {
 
-    private static final String TAG = AnnotationTest.class.getSimpleName();
-
     private String[] expectedApiFiles;
     private String annotationForExactMatch;
 
@@ -51,7 +49,7 @@ public class AnnotationTest extends AbstractApiTest {
                 AnnotationChecker complianceChecker = new AnnotationChecker(resultObserver,
                         classProvider, annotationForExactMatch);
 
-                ApiDocumentParser apiDocumentParser = new ApiDocumentParser(TAG);
+                ApiDocumentParser apiDocumentParser = new ApiDocumentParser();
 
                 parseApiFilesAsStream(apiDocumentParser, expectedApiFiles)
                         .forEach(complianceChecker::checkSignatureCompliance);
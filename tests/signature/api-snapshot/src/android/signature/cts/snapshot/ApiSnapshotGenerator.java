@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.signature.cts.snapshot;
+
+import android.signature.cts.ApiDocumentParser;
+import android.signature.cts.ApiSnapshotWriter;
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Converts an XML api file to a binary API snapshot, so the signature tests do not have to parse
+ * the XML on the device.
+ */
+public class ApiSnapshotGenerator {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            System.err.println("Usage: signature-api-snapshot <api xml file> <snapshot file>");
+            System.exit(1);
+        }
+
+        ApiDocumentParser apiDocumentParser = new ApiDocumentParser();
+        try (InputStream input = new FileInputStream(args[0]);
+                OutputStream output = new BufferedOutputStream(new FileOutputStream(args[1]))) {
+            new ApiSnapshotWriter().write(apiDocumentParser.parseAsStream(input), output);
+        }
+    }
+}
@@ -29,6 +29,19 @@ $$(LOCAL_BUILT_MODULE): $(2) | $(APICHECK)
 	@echo "Convert API file $$< -> $$@"
 	@mkdir -p $$(dir $$@)
 	$(hide) $(APICHECK_COMMAND) -convert2xmlnostrip $$< $$@
+cts_api_xml_file := $$(LOCAL_BUILT_MODULE)
+
+# The binary snapshot of the same api, read by the signature tests in place of the xml file
+include $(CLEAR_VARS)
+LOCAL_MODULE := cts-$(subst .,-,$(1))-snapshot
+LOCAL_MODULE_STEM := $(1).snapshot
+LOCAL_MODULE_CLASS := ETC
+LOCAL_COMPATIBILITY_SUITE := arcts cts vts general-tests
+include $(BUILD_SYSTEM)/base_rules.mk
+$$(LOCAL_BUILT_MODULE): $$(cts_api_xml_file) $(HOST_OUT_EXECUTABLES)/signature-api-snapshot
+	@echo "Convert API file $$< -> $$@"
+	@mkdir -p $$(dir $$@)
+	$(hide) $(HOST_OUT_EXECUTABLES)/signature-api-snapshot $$< $$@
 endef
 
 # NOTE: the output XML file is also used
@@ -127,7 +127,7 @@ public class IntentTest {
 
         Set<String> androidIntents = new HashSet<>();
 
-        ApiDocumentParser apiDocumentParser = new ApiDocumentParser(TAG);
+        ApiDocumentParser apiDocumentParser = new ApiDocumentParser();
 
         apiDocumentParser.parseAsStream(new FileInputStream(new File(apiFileName))).forEach(
                 classDescription -> {
@@ -28,13 +28,13 @@ import static android.signature.cts.CurrentApi.TAG_PACKAGE;
 import static android.signature.cts.CurrentApi.TAG_PARAM;
 import static android.signature.cts.CurrentApi.TAG_ROOT;
 
-import android.util.Log;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -47,6 +47,8 @@ import org.xmlpull.v1.XmlPullParserFactory;
  * for every class.
  *
  * <p>The definition file is converted into a {@link Stream} of {@link JDiffClassDescription}.
+ * The XML is parsed sequentially but the stream splits off batches of parsed classes so that a
+ * parallel stream can check them concurrently.
  */
 public class ApiDocumentParser {
 
@@ -65,12 +67,12 @@ public class ApiDocumentParser {
                 TAG_FIELD);
     }
 
-    private final String tag;
+    /** The number of parsed classes handed off by each split of the stream. */
+    private static final int SPLIT_BATCH_SIZE = 64;
 
     private final XmlPullParserFactory factory;
 
-    public ApiDocumentParser(String tag) throws XmlPullParserException {
-        this.tag = tag;
+    public ApiDocumentParser() throws XmlPullParserException {
         factory = XmlPullParserFactory.newInstance();
     }
 
@@ -88,27 +90,16 @@ public class ApiDocumentParser {
         JDiffClassDescription currentClass = null;
         String currentPackage = "";
         JDiffClassDescription.JDiffMethod currentMethod = null;
+        boolean finished = false;
 
         ClassDescriptionSpliterator(XmlPullParser parser) throws IOException, XmlPullParserException {
             this.parser = parser;
-            logd(String.format("Name: %s", parser.getName()));
-            logd(String.format("Text: %s", parser.getText()));
-            logd(String.format("Namespace: %s", parser.getNamespace()));
-            logd(String.format("Line Number: %s", parser.getLineNumber()));
-            logd(String.format("Column Number: %s", parser.getColumnNumber()));
-            logd(String.format("Position Description: %s", parser.getPositionDescription()));
             beginDocument(parser, TAG_ROOT);
         }
 
         @Override
         public boolean tryAdvance(Consumer<? super JDiffClassDescription> action) {
-            JDiffClassDescription classDescription;
-            try {
-                classDescription = next();
-            } catch (IOException|XmlPullParserException e) {
-                throw new RuntimeException(e);
-            }
-
+            JDiffClassDescription classDescription = nextOrNull();
             if (classDescription == null) {
                 return false;
             }
@@ -118,7 +109,18 @@ public class ApiDocumentParser {
 
         @Override
         public Spliterator<JDiffClassDescription> trySplit() {
-            return null;
+            // Parses the next batch of classes and hands them off, the remaining classes are
+            // parsed by this spliterator so the batch is the prefix.
+            JDiffClassDescription[] batch = new JDiffClassDescription[SPLIT_BATCH_SIZE];
+            int size = 0;
+            JDiffClassDescription classDescription;
+            while (size < batch.length && (classDescription = nextOrNull()) != null) {
+                batch[size++] = classDescription;
+            }
+            if (size == 0) {
+                return null;
+            }
+            return Spliterators.spliterator(batch, 0, size, characteristics());
         }
 
         @Override
@@ -148,6 +150,20 @@ public class ApiDocumentParser {
             }
         }
 
+        private JDiffClassDescription nextOrNull() {
+            if (finished) {
+                return null;
+            }
+            JDiffClassDescription classDescription;
+            try {
+                classDescription = next();
+            } catch (IOException|XmlPullParserException e) {
+                throw new RuntimeException(e);
+            }
+            finished = classDescription == null;
+            return classDescription;
+        }
+
         private JDiffClassDescription next() throws IOException, XmlPullParserException {
             int type;
             while (true) {
@@ -157,14 +173,12 @@ public class ApiDocumentParser {
                         && type != XmlPullParser.END_TAG);
 
                 if (type == XmlPullParser.END_DOCUMENT) {
-                    logd("Reached end of document");
                     break;
                 }
 
                 String tagname = parser.getName();
                 if (type == XmlPullParser.END_TAG) {
                     if (TAG_CLASS.equals(tagname) || TAG_INTERFACE.equals(tagname)) {
-                        logd("Reached end of class: " + currentClass);
                         return currentClass;
                     } else if (TAG_PACKAGE.equals(tagname)) {
                         currentPackage = "";
@@ -205,22 +219,9 @@ public class ApiDocumentParser {
                     throw new RuntimeException(
                             "unknown tag exception:" + tagname);
                 }
-                if (currentPackage != null) {
-                    logd(String.format("currentPackage: %s", currentPackage));
-                }
-                if (currentClass != null) {
-                    logd(String.format("currentClass: %s", currentClass.toSignatureString()));
-                }
-                if (currentMethod != null) {
-                    logd(String.format("currentMethod: %s", currentMethod.toSignatureString()));
-                }
             }
 
             return null;
         }
     }
-
-    private void logd(String msg) {
-        Log.d(tag, msg);
-    }
 }
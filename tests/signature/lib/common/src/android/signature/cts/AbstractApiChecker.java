@@ -31,6 +31,9 @@ public abstract class AbstractApiChecker {
 
     final ClassProvider classProvider;
 
+    final ReflectionHelper.DeclaredMembersCache declaredMembersCache =
+            new ReflectionHelper.DeclaredMembersCache();
+
     AbstractApiChecker(ClassProvider classProvider, ResultObserver resultObserver) {
         this.classProvider = classProvider;
         this.resultObserver = resultObserver;
@@ -189,7 +192,8 @@ public abstract class AbstractApiChecker {
             Class<?> runtimeClass) {
         for (JDiffClassDescription.JDiffConstructor con : classDescription.getConstructors()) {
             try {
-                Constructor<?> c = ReflectionHelper.findMatchingConstructor(runtimeClass, con);
+                Constructor<?> c = ReflectionHelper.findMatchingConstructor(
+                        declaredMembersCache, runtimeClass, con);
                 if (c == null) {
                     resultObserver.notifyFailure(FailureType.MISSING_CONSTRUCTOR,
                             con.toReadableString(classDescription.getAbsoluteClassName()),
@@ -223,7 +227,8 @@ public abstract class AbstractApiChecker {
         for (JDiffClassDescription.JDiffMethod method : classDescription.getMethods()) {
             try {
 
-                Method m = ReflectionHelper.findMatchingMethod(runtimeClass, method);
+                Method m = ReflectionHelper.findMatchingMethod(
+                        declaredMembersCache, runtimeClass, method);
                 if (m == null) {
                     resultObserver.notifyFailure(FailureType.MISSING_METHOD,
                             method.toReadableString(classDescription.getAbsoluteClassName()),
@@ -48,16 +48,18 @@ public class AnnotationChecker extends AbstractApiChecker {
             if (clazz.isAnnotationPresent(annotationClass)) {
                 annotatedClassesMap.put(clazz.getName(), clazz);
             }
-            Set<Constructor<?>> constructors = ReflectionHelper.getAnnotatedConstructors(clazz,
-                    annotationClass);
+            Set<Constructor<?>> constructors = ReflectionHelper.getAnnotatedConstructors(
+                    declaredMembersCache, clazz, annotationClass);
             if (!constructors.isEmpty()) {
                 annotatedConstructorsMap.put(clazz.getName(), constructors);
             }
-            Set<Method> methods = ReflectionHelper.getAnnotatedMethods(clazz, annotationClass);
+            Set<Method> methods = ReflectionHelper.getAnnotatedMethods(
+                    declaredMembersCache, clazz, annotationClass);
             if (!methods.isEmpty()) {
                 annotatedMethodsMap.put(clazz.getName(), methods);
             }
-            Set<Field> fields = ReflectionHelper.getAnnotatedFields(clazz, annotationClass);
+            Set<Field> fields = ReflectionHelper.getAnnotatedFields(
+                    declaredMembersCache, clazz, annotationClass);
             if (!fields.isEmpty()) {
                 annotatedFieldsMap.put(clazz.getName(), fields);
             }
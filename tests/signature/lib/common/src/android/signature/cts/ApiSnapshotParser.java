@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.signature.cts;
+
+import android.signature.cts.JDiffClassDescription.JDiffConstructor;
+import android.signature.cts.JDiffClassDescription.JDiffField;
+import android.signature.cts.JDiffClassDescription.JDiffMethod;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Parses a binary API snapshot, as written by {@link ApiSnapshotWriter}, and constructs a
+ * {@link JDiffClassDescription} for every class.
+ *
+ * <p>The snapshot is usually a memory mapped file. Its string table is decoded once up front,
+ * class records are decoded as the stream is consumed.
+ */
+public class ApiSnapshotParser {
+
+    // "APIS"
+    static final int MAGIC = 0x41504953;
+    static final int VERSION = 1;
+    static final int NO_STRING = -1;
+
+    /**
+     * Checks whether the buffer holds a snapshot of a version this parser can read.
+     */
+    public static boolean isSnapshot(ByteBuffer buffer) {
+        return buffer.remaining() >= 8
+                && buffer.getInt(buffer.position()) == MAGIC
+                && buffer.getInt(buffer.position() + 4) == VERSION;
+    }
+
+    public Stream<JDiffClassDescription> parseAsStream(ByteBuffer buffer) {
+        if (!isSnapshot(buffer)) {
+            throw new IllegalArgumentException("Not an API snapshot of version " + VERSION);
+        }
+        ByteBuffer snapshot = buffer.slice();
+        snapshot.position(8);
+        String[] strings = new String[snapshot.getInt()];
+        for (int i = 0; i < strings.length; i++) {
+            int length = snapshot.getInt();
+            byte[] bytes = new byte[length];
+            snapshot.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        int classCount = snapshot.getInt();
+        int offsetsStart = snapshot.position();
+        return StreamSupport.stream(
+                new ClassRecordSpliterator(snapshot, strings, offsetsStart, 0, classCount), false);
+    }
+
+    private static class ClassRecordSpliterator implements Spliterator<JDiffClassDescription> {
+
+        private final ByteBuffer mSnapshot;
+        private final String[] mStrings;
+        private final int mOffsetsStart;
+        private int mIndex;
+        private final int mEnd;
+
+        ClassRecordSpliterator(ByteBuffer snapshot, String[] strings, int offsetsStart,
+                int index, int end) {
+            // Each spliterator has its own position
+            mSnapshot = snapshot.duplicate();
+            mStrings = strings;
+            mOffsetsStart = offsetsStart;
+            mIndex = index;
+            mEnd = end;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super JDiffClassDescription> action) {
+            if (mIndex >= mEnd) {
+                return false;
+            }
+            mSnapshot.position(mSnapshot.getInt(mOffsetsStart + 4 * mIndex));
+            mIndex++;
+            action.accept(readClass());
+            return true;
+        }
+
+        @Override
+        public Spliterator<JDiffClassDescription> trySplit() {
+            int middle = (mIndex + mEnd) >>> 1;
+            if (middle <= mIndex) {
+                return null;
+            }
+            Spliterator<JDiffClassDescription> prefix = new ClassRecordSpliterator(
+                    mSnapshot, mStrings, mOffsetsStart, mIndex, middle);
+            mIndex = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return mEnd - mIndex;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | DISTINCT | NONNULL | IMMUTABLE | SIZED | SUBSIZED;
+        }
+
+        private JDiffClassDescription readClass() {
+            String packageName = readString();
+            String className = readString();
+            JDiffClassDescription classDescription =
+                    new JDiffClassDescription(packageName, className);
+            classDescription.setModifier(mSnapshot.getInt());
+            classDescription.setType(mSnapshot.get() != 0
+                    ? JDiffClassDescription.JDiffType.INTERFACE
+                    : JDiffClassDescription.JDiffType.CLASS);
+            classDescription.setExtendsClass(readString());
+            for (int i = mSnapshot.getInt(); i > 0; i--) {
+                classDescription.addImplInterface(readString());
+            }
+
+            for (int i = mSnapshot.getInt(); i > 0; i--) {
+                String name = readString();
+                String type = readString();
+                int modifier = mSnapshot.getInt();
+                String value = readString();
+                classDescription.addField(new JDiffField(name, type, modifier, value));
+            }
+
+            for (int i = mSnapshot.getInt(); i > 0; i--) {
+                String name = readString();
+                int modifier = mSnapshot.getInt();
+                JDiffConstructor constructor = new JDiffConstructor(name, modifier);
+                readParamsAndExceptions(constructor);
+                classDescription.addConstructor(constructor);
+            }
+
+            for (int i = mSnapshot.getInt(); i > 0; i--) {
+                String name = readString();
+                int modifier = mSnapshot.getInt();
+                String returnType = readString();
+                JDiffMethod method = new JDiffMethod(name, modifier, returnType);
+                readParamsAndExceptions(method);
+                classDescription.addMethod(method);
+            }
+            return classDescription;
+        }
+
+        private void readParamsAndExceptions(JDiffMethod method) {
+            for (int i = mSnapshot.getInt(); i > 0; i--) {
+                method.addParam(readString());
+            }
+            for (int i = mSnapshot.getInt(); i > 0; i--) {
+                method.addException(readString());
+            }
+        }
+
+        private String readString() {
+            int index = mSnapshot.getInt();
+            return index == NO_STRING ? null : mStrings[index];
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.signature.cts;
+
+import static android.signature.cts.ApiSnapshotParser.MAGIC;
+import static android.signature.cts.ApiSnapshotParser.NO_STRING;
+import static android.signature.cts.ApiSnapshotParser.VERSION;
+
+import android.signature.cts.JDiffClassDescription.JDiffConstructor;
+import android.signature.cts.JDiffClassDescription.JDiffField;
+import android.signature.cts.JDiffClassDescription.JDiffMethod;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Writes {@link JDiffClassDescription}s in the binary API snapshot format read by
+ * {@link ApiSnapshotParser}.
+ *
+ * <p>The snapshot is laid out as:
+ * <pre>
+ * int magic, int version
+ * int string count, then for each string: int length, UTF-8 bytes
+ * int class count, then the int offset of each class record
+ * class records: strings are referred to by their index in the string table
+ * </pre>
+ */
+public class ApiSnapshotWriter {
+
+    private final List<String> mStrings = new ArrayList<>();
+    private final Map<String, Integer> mStringIndexes = new HashMap<>();
+
+    public void write(Stream<JDiffClassDescription> classDescriptions, OutputStream outputStream)
+            throws IOException {
+        mStrings.clear();
+        mStringIndexes.clear();
+        List<JDiffClassDescription> classes = classDescriptions.collect(Collectors.toList());
+
+        // Writes the class records first to build the string table and find their offsets
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        DataOutputStream recordsOut = new DataOutputStream(records);
+        int[] recordOffsets = new int[classes.size()];
+        for (int i = 0; i < classes.size(); i++) {
+            recordOffsets[i] = recordsOut.size();
+            writeClass(recordsOut, classes.get(i));
+        }
+        recordsOut.flush();
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream headerOut = new DataOutputStream(header);
+        headerOut.writeInt(MAGIC);
+        headerOut.writeInt(VERSION);
+        headerOut.writeInt(mStrings.size());
+        for (String string : mStrings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            headerOut.writeInt(bytes.length);
+            headerOut.write(bytes);
+        }
+        headerOut.writeInt(classes.size());
+        int recordsStart = headerOut.size() + 4 * classes.size();
+        for (int recordOffset : recordOffsets) {
+            headerOut.writeInt(recordsStart + recordOffset);
+        }
+        headerOut.flush();
+
+        header.writeTo(outputStream);
+        records.writeTo(outputStream);
+        outputStream.flush();
+    }
+
+    private void writeClass(DataOutputStream out, JDiffClassDescription classDescription)
+            throws IOException {
+        writeString(out, classDescription.getPackageName());
+        writeString(out, classDescription.getShortClassName());
+        out.writeInt(classDescription.getModifier());
+        out.writeBoolean(
+                JDiffClassDescription.JDiffType.INTERFACE.equals(classDescription.getClassType()));
+        writeString(out, classDescription.getExtendedClass());
+        writeStrings(out, classDescription.getImplInterfaces());
+
+        List<JDiffField> fields = classDescription.getFields();
+        out.writeInt(fields.size());
+        for (JDiffField field : fields) {
+            writeString(out, field.mName);
+            writeString(out, field.mFieldType);
+            out.writeInt(field.mModifier);
+            writeString(out, field.getValueString());
+        }
+
+        List<JDiffConstructor> constructors = classDescription.getConstructors();
+        out.writeInt(constructors.size());
+        for (JDiffConstructor constructor : constructors) {
+            writeString(out, constructor.mName);
+            out.writeInt(constructor.mModifier);
+            writeStrings(out, constructor.mParamList);
+            writeStrings(out, constructor.mExceptionList);
+        }
+
+        List<JDiffMethod> methods = classDescription.getMethods();
+        out.writeInt(methods.size());
+        for (JDiffMethod method : methods) {
+            writeString(out, method.mName);
+            out.writeInt(method.mModifier);
+            writeString(out, method.mReturnType);
+            writeStrings(out, method.mParamList);
+            writeStrings(out, method.mExceptionList);
+        }
+    }
+
+    private void writeStrings(DataOutputStream out, List<String> strings) throws IOException {
+        out.writeInt(strings.size());
+        for (String string : strings) {
+            writeString(out, string);
+        }
+    }
+
+    private void writeString(DataOutputStream out, String string) throws IOException {
+        if (string == null) {
+            out.writeInt(NO_STRING);
+            return;
+        }
+        Integer index = mStringIndexes.get(string);
+        if (index == null) {
+            index = mStrings.size();
+            mStrings.add(string);
+            mStringIndexes.put(string, index);
+        }
+        out.writeInt(index);
+    }
+}
@@ -5,6 +5,7 @@ import java.nio.charset.Charset;
 import java.util.Spliterator;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * A spliterator breaking up a ByteBuffer into lines of text. A converter will translate a line to
@@ -16,15 +17,44 @@ import java.util.function.Function;
 public class ByteBufferLineSpliterator<T> implements Spliterator<T> {
     private final ByteBuffer mBuffer;
     private final int mLineLengthEstimate;
-    private final Function<String, T> mConverter;
+    private final Supplier<LineConverter<T>> mConverterFactory;
+    private final LineConverter<T> mConverter;
 
     private static final Charset CHAR_SET = Charset.defaultCharset();
 
+    /**
+     * Translates the bytes of a line, without the line break, straight from the buffer.
+     */
+    public interface LineConverter<T> {
+        /**
+         * @param buffer the buffer containing the line, its position must not be changed.
+         * @param start the absolute index of the first byte of the line.
+         * @param end the absolute index after the last byte of the line.
+         */
+        T convert(ByteBuffer buffer, int start, int end);
+    }
+
     public ByteBufferLineSpliterator(ByteBuffer buffer, int lineLengthEstimate,
             Function<String, T> converter) {
+        this(buffer, lineLengthEstimate,
+                (LineConverter<T>) (b, start, end) -> converter.apply(decode(b, start, end)));
+    }
+
+    public ByteBufferLineSpliterator(ByteBuffer buffer, int lineLengthEstimate,
+            LineConverter<T> converter) {
+        this(buffer, lineLengthEstimate, () -> converter);
+    }
+
+    /**
+     * @param converterFactory creates the converter of this spliterator and of each split, for
+     *     converters which are not thread safe.
+     */
+    public ByteBufferLineSpliterator(ByteBuffer buffer, int lineLengthEstimate,
+            Supplier<LineConverter<T>> converterFactory) {
         mBuffer = buffer;
         mLineLengthEstimate = lineLengthEstimate;
-        mConverter = converter;
+        mConverterFactory = converterFactory;
+        mConverter = converterFactory.get();
     }
 
     @Override
@@ -45,12 +75,14 @@ public class ByteBufferLineSpliterator<T> implements Spliterator<T> {
         mBuffer.position(curPos + mBuffer.remaining() / 2);
         int nextNewLine = findNextNewLine();
         if (nextNewLine == -1) {
+            // Still has to parse the whole segment.
+            mBuffer.position(curPos);
             return null;
         }
 
         mBuffer.position(mBuffer.position() + nextNewLine + 1);
         Spliterator<T> retValue = new ByteBufferLineSpliterator<T>(mBuffer.slice(),
-                mLineLengthEstimate, mConverter);
+                mLineLengthEstimate, mConverterFactory);
 
         // Reset this buffer and set limit.
         mBuffer.position(curPos).limit(curPos + mBuffer.remaining() / 2 + nextNewLine);
@@ -69,61 +101,63 @@ public class ByteBufferLineSpliterator<T> implements Spliterator<T> {
     }
 
     private int findNextNewLine() {
-        if (!mBuffer.hasRemaining()) {
-            return -1;
-        }
-        mBuffer.mark();
-        int index = 0;
-        try {
-            while (mBuffer.hasRemaining()) {
-                if (mBuffer.get() == '\n') {
-                    return index;
-                }
-                index++;
+        // Uses absolute gets, the hot path should not touch the position and mark.
+        int position = mBuffer.position();
+        int limit = mBuffer.limit();
+        for (int i = position; i < limit; i++) {
+            if (mBuffer.get(i) == '\n') {
+                return i - position;
             }
-            return -1;
-        } finally {
-            mBuffer.reset();
         }
+        return -1;
     }
 
-    private ByteBuffer subsequence(int start, int end) {
-        int curPos = mBuffer.position();
-        mBuffer.position(curPos + start);
-        int curLimit = mBuffer.limit();
-        mBuffer.limit(curPos + end);
-        ByteBuffer retValue = mBuffer.slice();
-        mBuffer.position(curPos).limit(curLimit);
-        return retValue;
+    private static String decode(ByteBuffer buffer, int start, int end) {
+        ByteBuffer line = buffer.duplicate();
+        line.limit(end);
+        line.position(start);
+        return CHAR_SET.decode(line).toString();
     }
 
-    protected String nextLine() {
+    /**
+     * Advances past the next line.
+     *
+     * @return the absolute index after the last byte of the line, or -1 if there are no more lines.
+     */
+    private int advanceLine() {
         if (!mBuffer.hasRemaining()) {
-            return null;
+            return -1;
         }
 
         int nextLineBreakIndex = findNextNewLine();
         if (nextLineBreakIndex == 0) {
             throw new IllegalStateException("Empty line.");
         }
-        String line;
+        int end;
         if (nextLineBreakIndex > 0) {
-            line = CHAR_SET.decode(subsequence(0, nextLineBreakIndex)).toString();
-            mBuffer.position(mBuffer.position() + nextLineBreakIndex + 1);
+            end = mBuffer.position() + nextLineBreakIndex;
+            mBuffer.position(end + 1);
         } else {
-            line = CHAR_SET.decode(mBuffer).toString();
-            mBuffer.position(mBuffer.limit()); // Should not be necessary?
+            end = mBuffer.limit();
+            mBuffer.position(end);
         }
-        return line;
+        return end;
+    }
+
+    protected String nextLine() {
+        int start = mBuffer.position();
+        int end = advanceLine();
+        return end == -1 ? null : decode(mBuffer, start, end);
     }
 
     @Override
     public boolean tryAdvance(Consumer<? super T> action) {
-        String nextLine = nextLine();
-        if (nextLine == null) {
+        int start = mBuffer.position();
+        int end = advanceLine();
+        if (end == -1) {
             return false;
         }
-        action.accept(mConverter.apply(nextLine));
+        action.accept(mConverter.convert(mBuffer, start, end));
         return true;
     }
 }
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.signature.cts;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+
+/**
+ * Interns values created from UTF-8 encoded strings, looked up by the bytes of the string so that
+ * nothing is allocated when the value already exists.
+ *
+ * <p>Not thread safe.
+ */
+final class ByteStringInterner<V> {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final Function<String, V> mFactory;
+
+    private Entry<V>[] mTable = newTable(INITIAL_CAPACITY);
+    private int mSize;
+
+    /**
+     * @param factory creates the value of a string that has not been interned yet.
+     */
+    ByteStringInterner(Function<String, V> factory) {
+        mFactory = factory;
+    }
+
+    /**
+     * Gets the value of the string encoded in the buffer.
+     *
+     * @param buffer the buffer containing the string, its position is not changed.
+     * @param start the absolute index of the first byte of the string.
+     * @param end the absolute index after the last byte of the string.
+     */
+    V intern(ByteBuffer buffer, int start, int end) {
+        int hash = 1;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + buffer.get(i);
+        }
+        int index = hash & (mTable.length - 1);
+        for (Entry<V> entry = mTable[index]; entry != null; entry = entry.mNext) {
+            if (entry.mHash == hash && entry.equals(buffer, start, end)) {
+                return entry.mValue;
+            }
+        }
+
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        V value = mFactory.apply(new String(bytes, StandardCharsets.UTF_8));
+        mTable[index] = new Entry<>(bytes, hash, value, mTable[index]);
+        if (++mSize > mTable.length * 3 / 4) {
+            resize();
+        }
+        return value;
+    }
+
+    private void resize() {
+        Entry<V>[] oldTable = mTable;
+        mTable = newTable(oldTable.length * 2);
+        for (Entry<V> entry : oldTable) {
+            while (entry != null) {
+                Entry<V> next = entry.mNext;
+                int index = entry.mHash & (mTable.length - 1);
+                entry.mNext = mTable[index];
+                mTable[index] = entry;
+                entry = next;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> Entry<V>[] newTable(int capacity) {
+        return (Entry<V>[]) new Entry<?>[capacity];
+    }
+
+    private static class Entry<V> {
+        final byte[] mBytes;
+        final int mHash;
+        final V mValue;
+        Entry<V> mNext;
+
+        Entry(byte[] bytes, int hash, V value, Entry<V> next) {
+            mBytes = bytes;
+            mHash = hash;
+            mValue = value;
+            mNext = next;
+        }
+
+        boolean equals(ByteBuffer buffer, int start, int end) {
+            if (mBytes.length != end - start) {
+                return false;
+            }
+            for (int i = 0; i < mBytes.length; i++) {
+                if (mBytes[i] != buffer.get(start + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.signature.cts;
+
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A spliterator concatenating the streams of a list of sources, e.g. API files, in order.
+ *
+ * <p>Unlike a flat mapped stream, which is consumed sequentially even when it is parallel, this
+ * splits across the sources first and then delegates to the spliterator of the last remaining
+ * source. A source is only opened when it is first traversed or split.
+ */
+public class ConcatSpliterator<T> implements Spliterator<T> {
+    private final List<Supplier<Stream<T>>> mSources;
+    private int mIndex;
+    private final int mEnd;
+
+    /** The spliterator of the source at mIndex, or null if it has not been opened yet. */
+    private Spliterator<T> mCurrent;
+
+    /**
+     * @return a stream of the elements of all the sources, in order.
+     */
+    public static <T> Stream<T> concat(List<Supplier<Stream<T>>> sources) {
+        return StreamSupport.stream(new ConcatSpliterator<>(sources, 0, sources.size(), null),
+                false);
+    }
+
+    private ConcatSpliterator(List<Supplier<Stream<T>>> sources, int index, int end,
+            Spliterator<T> current) {
+        mSources = sources;
+        mIndex = index;
+        mEnd = end;
+        mCurrent = current;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        while (mIndex < mEnd) {
+            if (current().tryAdvance(action)) {
+                return true;
+            }
+            nextSource();
+        }
+        return false;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+        while (mIndex < mEnd) {
+            current().forEachRemaining(action);
+            nextSource();
+        }
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        int remaining = mEnd - mIndex;
+        if (remaining == 0) {
+            return null;
+        } else if (remaining == 1) {
+            Spliterator<T> split = current().trySplit();
+            // Wrapped so that the split is split further, see estimateSize().
+            return split == null
+                    ? null : new ConcatSpliterator<>(mSources, mIndex, mIndex + 1, split);
+        }
+
+        Spliterator<T> prefix;
+        if (mCurrent != null) {
+            // Hand off the source that is already open.
+            prefix = new ConcatSpliterator<>(mSources, mIndex, mIndex + 1, mCurrent);
+            nextSource();
+        } else {
+            int middle = (mIndex + mEnd) >>> 1;
+            prefix = new ConcatSpliterator<>(mSources, mIndex, middle, null);
+            mIndex = middle;
+        }
+        return prefix;
+    }
+
+    /**
+     * The size is unknown until all the sources have been read. A parallel stream stops splitting
+     * at a fraction of the initial estimate, so the actual size of a source must not be reported
+     * either, or it would not be split.
+     */
+    @Override
+    public long estimateSize() {
+        return mIndex < mEnd ? Long.MAX_VALUE : 0;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED;
+    }
+
+    private Spliterator<T> current() {
+        if (mCurrent == null) {
+            mCurrent = mSources.get(mIndex).get().spliterator();
+        }
+        return mCurrent;
+    }
+
+    private void nextSource() {
+        mCurrent = null;
+        mIndex++;
+    }
+}
@@ -21,7 +21,6 @@ import java.io.InputStreamReader;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.function.BiFunction;
-import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
@@ -47,14 +46,6 @@ public class DexApiDocumentParser {
     // Estimate of the length of a line.
     private static final int LINE_LENGTH_ESTIMATE = 100;
 
-    // Converter from String to DexMember. Cached here.
-    private static final Function<String, DexMember> DEX_MEMBER_CONVERTER = str -> {
-        try {
-            return parseLine(str, /* lineNum= */ -1); // No line info available.
-        } catch (ParseException e) {
-            throw new RuntimeException(e);
-        }
-    };
     private static final BiFunction<String, Integer, DexMember> DEX_MEMBER_LINE_NUM_CONVERTER = (
             str, lineNum) -> {
         try {
@@ -84,8 +75,21 @@ public class DexApiDocumentParser {
     }
     public Stream<DexMember> parseAsStream(ByteBuffer buffer, int lineLengthEstimate) {
         // TODO: Ensurance that the input conforms to ByteBufferLineSpliterator requirements.
+        // Scans the lines straight from the buffer rather than decoding and matching them as
+        // Strings. The scanners are not thread safe so each split of the stream has its own.
         return StreamSupport.stream(new ByteBufferLineSpliterator<DexMember>(buffer,
-                lineLengthEstimate, DEX_MEMBER_CONVERTER), true);
+                lineLengthEstimate, DexApiDocumentParser::createLineConverter), true);
+    }
+
+    private static ByteBufferLineSpliterator.LineConverter<DexMember> createLineConverter() {
+        DexLineScanner scanner = new DexLineScanner();
+        return (buffer, start, end) -> {
+            try {
+                return scanner.scan(buffer, start, end);
+            } catch (ParseException e) {
+                throw new RuntimeException(e);
+            }
+        };
     }
 
     private static DexMember parseLine(String line, int lineNum) throws ParseException {
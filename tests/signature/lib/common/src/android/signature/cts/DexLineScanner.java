@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.signature.cts;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Scans a line of DEX signature and hiddenapi flags straight from its bytes into a
+ * {@link DexMember}, accepting the same lines as the regex patterns in
+ * {@link DexApiDocumentParser}.
+ *
+ * <p>Class descriptors, field types, method signatures and flags repeat over and over in the
+ * hundreds of thousands of lines of a flags file, so they are interned by their bytes. Only the
+ * member names are decoded for every line.
+ *
+ * <p>Not thread safe.
+ */
+final class DexLineScanner {
+
+    private static final String[] NO_FLAGS = new String[0];
+
+    private final ByteStringInterner<String> mStrings =
+            new ByteStringInterner<>(Function.identity());
+    private final ByteStringInterner<String[]> mFlags =
+            new ByteStringInterner<>(flags -> flags.isEmpty() ? NO_FLAGS : flags.split(","));
+    private final ByteStringInterner<MethodSignature> mMethodSignatures =
+            new ByteStringInterner<>(MethodSignature::new);
+
+    // Reused to decode member names.
+    private byte[] mNameBytes = new byte[256];
+
+    /**
+     * Scans a line.
+     *
+     * @param buffer the buffer containing the line, its position is not changed.
+     * @param start the absolute index of the first byte of the line.
+     * @param end the absolute index after the last byte of the line.
+     */
+    DexMember scan(ByteBuffer buffer, int start, int end) throws ParseException {
+        // Split the CSV line.
+        int signatureEnd = indexOf(buffer, start, end, ',');
+        String[] flags;
+        if (signatureEnd == -1) {
+            signatureEnd = end;
+            flags = NO_FLAGS;
+        } else {
+            flags = mFlags.intern(buffer, signatureEnd + 1, end);
+        }
+
+        // The class descriptor is everything up to the "->", it cannot contain a '>'.
+        int arrow = indexOf(buffer, start, signatureEnd, '>');
+        if (buffer.get(start) != 'L' || arrow < start + 3 || buffer.get(arrow - 1) != '-'
+                || buffer.get(arrow - 2) != ';') {
+            throw parseException("Could not parse", buffer, start, end);
+        }
+        String className = mStrings.intern(buffer, start, arrow - 1);
+        int memberStart = arrow + 1;
+
+        // A field is "name:type", a method is "name(parameters)return".
+        int colon = lastIndexOf(buffer, memberStart, signatureEnd, ':');
+        int closingParenthesis = lastIndexOf(buffer, memberStart, signatureEnd, ')');
+        int openingParenthesis = closingParenthesis == -1
+                ? -1 : lastIndexOf(buffer, memberStart, closingParenthesis, '(');
+
+        // Check that *exactly* one form matches.
+        if (colon == -1 && openingParenthesis == -1) {
+            throw parseException("Could not parse", buffer, start, end);
+        } else if (colon != -1 && openingParenthesis != -1) {
+            throw parseException("Ambiguous parse", buffer, start, end);
+        }
+
+        if (colon != -1) {
+            return new DexField(className, decode(buffer, memberStart, colon),
+                    mStrings.intern(buffer, colon + 1, signatureEnd), flags);
+        } else {
+            MethodSignature signature =
+                    mMethodSignatures.intern(buffer, openingParenthesis, signatureEnd);
+            return new DexMethod(className, decode(buffer, memberStart, openingParenthesis),
+                    signature.mReturnType, signature.mParamTypeList, flags);
+        }
+    }
+
+    private String decode(ByteBuffer buffer, int start, int end) {
+        int length = end - start;
+        if (mNameBytes.length < length) {
+            mNameBytes = new byte[Math.max(length, mNameBytes.length * 2)];
+        }
+        for (int i = 0; i < length; i++) {
+            mNameBytes[i] = buffer.get(start + i);
+        }
+        return new String(mNameBytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static int indexOf(ByteBuffer buffer, int start, int end, char c) {
+        for (int i = start; i < end; i++) {
+            if (buffer.get(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int lastIndexOf(ByteBuffer buffer, int start, int end, char c) {
+        for (int i = end - 1; i >= start; i--) {
+            if (buffer.get(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private ParseException parseException(String reason, ByteBuffer buffer, int start, int end) {
+        return new ParseException(reason + ": \"" + decode(buffer, start, end) + "\"", -1);
+    }
+
+    /**
+     * The parsed parameter and return types of a method signature, shared by all methods with
+     * the same signature.
+     */
+    private static class MethodSignature {
+        final String mReturnType;
+        final List<String> mParamTypeList;
+
+        MethodSignature(String signature) {
+            mReturnType = DexMethod.parseDexReturnType(signature);
+            mParamTypeList =
+                    Collections.unmodifiableList(DexMethod.parseDexTypeList(signature));
+        }
+    }
+}
@@ -29,6 +29,16 @@ public class DexMethod extends DexMember {
       mParamTypeList = parseDexTypeList(signature);
   }
 
+  /**
+   * Creates a method whose signature has already been parsed by {@link #parseDexReturnType} and
+   * {@link #parseDexTypeList}, the list is shared so must not be modified.
+   */
+  DexMethod(String className, String name, String returnType, List<String> paramTypeList,
+          String[] flags) {
+      super(className, name, returnType, flags);
+      mParamTypeList = paramTypeList;
+  }
+
   public String getDexSignature() {
       return "(" + String.join("", mParamTypeList) + ")" + getDexType();
   }
@@ -59,11 +69,11 @@ public class DexMethod extends DexMember {
       return m;
   }
 
-  private static String parseDexReturnType(String signature) {
+  static String parseDexReturnType(String signature) {
       return matchSignature(signature).group(2);
   }
 
-  private static List<String> parseDexTypeList(String signature) {
+  static List<String> parseDexTypeList(String signature) {
       String typeSequence = matchSignature(signature).group(1);
       List<String> list = new ArrayList<String>();
       while (!typeSequence.isEmpty()) {
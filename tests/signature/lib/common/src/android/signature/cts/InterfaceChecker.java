@@ -68,6 +68,16 @@ class InterfaceChecker {
     private final Map<Class<?>, JDiffClassDescription> class2Description =
             new TreeMap<>(Comparator.comparing(Class::getName));
 
+    /**
+     * The descriptions queued for each interface, only merged into {@link #class2Description}
+     * when the queue is checked as other threads may still be checking their members until then.
+     *
+     * <p>The descriptions are queued in whatever order the threads reach them, so both their
+     * methods and their implemented interfaces are merged, which does not depend on the order.
+     */
+    private final Map<Class<?>, List<JDiffClassDescription>> queuedDescriptions =
+            new TreeMap<>(Comparator.comparing(Class::getName));
+
     private final ClassProvider classProvider;
 
     InterfaceChecker(ResultObserver resultObserver, ClassProvider classProvider) {
@@ -76,6 +86,7 @@ class InterfaceChecker {
     }
 
     public void checkQueued() {
+        mergeQueued();
         for (Map.Entry<Class<?>, JDiffClassDescription> entry : class2Description.entrySet()) {
             Class<?> runtimeClass = entry.getKey();
             JDiffClassDescription classDescription = entry.getValue();
@@ -139,15 +150,31 @@ class InterfaceChecker {
     }
 
 
-    void queueForDeferredCheck(JDiffClassDescription classDescription, Class<?> runtimeClass) {
+    synchronized void queueForDeferredCheck(JDiffClassDescription classDescription,
+            Class<?> runtimeClass) {
+        queuedDescriptions.computeIfAbsent(runtimeClass, k -> new ArrayList<>())
+                .add(classDescription);
+    }
 
-        JDiffClassDescription existingDescription = class2Description.get(runtimeClass);
-        if (existingDescription != null) {
-            for (JDiffClassDescription.JDiffMethod method : classDescription.getMethods()) {
-                existingDescription.addMethod(method);
+    private synchronized void mergeQueued() {
+        for (Map.Entry<Class<?>, List<JDiffClassDescription>> entry
+                : queuedDescriptions.entrySet()) {
+            for (JDiffClassDescription classDescription : entry.getValue()) {
+                JDiffClassDescription existingDescription = class2Description.get(entry.getKey());
+                if (existingDescription != null) {
+                    for (JDiffClassDescription.JDiffMethod method : classDescription.getMethods()) {
+                        existingDescription.addMethod(method);
+                    }
+                    for (String interfaceName : classDescription.getImplInterfaces()) {
+                        if (!existingDescription.getImplInterfaces().contains(interfaceName)) {
+                            existingDescription.addImplInterface(interfaceName);
+                        }
+                    }
+                } else {
+                    class2Description.put(entry.getKey(), classDescription);
+                }
             }
-        } else {
-            class2Description.put(runtimeClass, classDescription);
         }
+        queuedDescriptions.clear();
     }
 }
@@ -27,9 +27,13 @@ import java.lang.reflect.Type;
 import java.lang.reflect.TypeVariable;
 import java.lang.reflect.WildcardType;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Uses reflection to obtain runtime representations of elements in the API.
@@ -121,45 +125,27 @@ public class ReflectionHelper {
     /**
      * Searches available constructor.
      *
+     * @param cache the declared members of the classes looked at so far.
      * @param runtimeClass the class in which to search.
      * @param jdiffDes constructor description to find.
      * @return reflected constructor, or null if not found.
      */
-    static Constructor<?> findMatchingConstructor(Class<?> runtimeClass,
-            JDiffClassDescription.JDiffConstructor jdiffDes) {
-        for (Constructor<?> c : runtimeClass.getDeclaredConstructors()) {
-            Type[] params = c.getGenericParameterTypes();
-            boolean isStaticClass = ((runtimeClass.getModifiers() & Modifier.STATIC) != 0);
-
-            int startParamOffset = 0;
-            int numberOfParams = params.length;
-
-            // non-static inner class -> skip implicit parent pointer
-            // as first arg
-            if (runtimeClass.isMemberClass() && !isStaticClass && params.length >= 1) {
-                startParamOffset = 1;
-                --numberOfParams;
-            }
-
-            ArrayList<String> jdiffParamList = jdiffDes.mParamList;
-            if (jdiffParamList.size() == numberOfParams) {
-                boolean isFound = true;
-                // i counts jdiff params, j counts reflected params
-                int i = 0;
-                int j = startParamOffset;
-                while (i < jdiffParamList.size()) {
-                    if (!compareParam(jdiffParamList.get(i), params[j],
-                            DefaultTypeComparator.INSTANCE)) {
-                        isFound = false;
-                        break;
-                    }
-                    ++i;
-                    ++j;
-                }
-                if (isFound) {
-                    return c;
+    static Constructor<?> findMatchingConstructor(DeclaredMembersCache cache,
+            Class<?> runtimeClass, JDiffClassDescription.JDiffConstructor jdiffDes) {
+        ArrayList<String> jdiffParamList = jdiffDes.mParamList;
+        for (ConstructorSignature c :
+                cache.get(runtimeClass).getConstructors(jdiffParamList.size())) {
+            boolean isFound = true;
+            for (int i = 0; i < jdiffParamList.size(); i++) {
+                if (!compareParam(jdiffParamList.get(i), c.mParameters[i],
+                        DefaultTypeComparator.INSTANCE)) {
+                    isFound = false;
+                    break;
                 }
             }
+            if (isFound) {
+                return c.mConstructor;
+            }
         }
         return null;
     }
@@ -169,17 +155,17 @@ public class ReflectionHelper {
      * reflection.
      *
      * @param jdiffParam param parsed from the API xml file.
-     * @param reflectionParamType param gotten from the Java reflection.
+     * @param reflectionParam param gotten from the Java reflection, converted by
+     *     {@link #typeToString(Type)}.
      * @param typeComparator compares two types to determine if they are equal.
      * @return True if the two params match, otherwise return false.
      */
-    private static boolean compareParam(String jdiffParam, Type reflectionParamType,
+    private static boolean compareParam(String jdiffParam, String reflectionParam,
             TypeComparator typeComparator) {
         if (jdiffParam == null) {
             return false;
         }
 
-        String reflectionParam = typeToString(reflectionParamType);
         // Most things aren't varargs, so just do a simple compare
         // first.
         if (typeComparator.compare(jdiffParam, reflectionParam)) {
@@ -202,11 +188,12 @@ public class ReflectionHelper {
     /**
      * Finds the reflected method specified by the method description.
      *
+     * @param cache the declared members of the classes looked at so far.
      * @param runtimeClass the class in which to search.
      * @param method description of the method to find
      * @return the reflected method, or null if not found.
      */
-    static Method findMatchingMethod(Class<?> runtimeClass,
+    static Method findMatchingMethod(DeclaredMembersCache cache, Class<?> runtimeClass,
             JDiffClassDescription.JDiffMethod method) {
 
         // Search through the class to find the methods just in case the method was actually
@@ -214,11 +201,10 @@ public class ReflectionHelper {
         // it was declared in each of the hidden class' subclasses. Cannot use getMethods() as that
         // will only return public methods and the API includes protected methods.
         while (runtimeClass != null) {
-            Method[] methods = runtimeClass.getDeclaredMethods();
-
-            for (Method m : methods) {
+            for (MethodSignature m : cache.get(runtimeClass)
+                    .getMethods(method.mName, method.mParamList.size())) {
                 if (matches(method, m)) {
-                    return m;
+                    return m.mMethod;
                 }
             }
 
@@ -237,19 +223,35 @@ public class ReflectionHelper {
      */
     static boolean matches(JDiffClassDescription.JDiffMethod jDiffMethod,
             Method reflectedMethod) {
-        // If the method names aren't equal, the methods can't match.
-        if (!jDiffMethod.mName.equals(reflectedMethod.getName())) {
+        // If the method names or arities aren't equal, the methods can't match.
+        if (!jDiffMethod.mName.equals(reflectedMethod.getName())
+                || jDiffMethod.mParamList.size() != reflectedMethod.getParameterTypes().length) {
             return false;
         }
 
+        // Compare the return types before converting all the parameter types.
+        String reflectionReturnType = typeToString(reflectedMethod.getGenericReturnType());
+        if (!getTypeComparator(reflectedMethod).compare(jDiffMethod.mReturnType,
+                reflectionReturnType)) {
+            return false;
+        }
+
+        return matches(jDiffMethod, new MethodSignature(reflectedMethod, reflectionReturnType));
+    }
+
+    private static TypeComparator getTypeComparator(Method method) {
         // If the method is a bridge then use a special comparator for comparing types as
         // bridge methods created for generic methods may not have generic signatures.
         // See b/123558763 for more information.
-        TypeComparator typeComparator = reflectedMethod.isBridge()
-                ? BridgeTypeComparator.INSTANCE : DefaultTypeComparator.INSTANCE;
+        return method.isBridge() ? BridgeTypeComparator.INSTANCE : DefaultTypeComparator.INSTANCE;
+    }
+
+    private static boolean matches(JDiffClassDescription.JDiffMethod jDiffMethod,
+            MethodSignature reflectedMethod) {
+        TypeComparator typeComparator = getTypeComparator(reflectedMethod.mMethod);
 
         String jdiffReturnType = jDiffMethod.mReturnType;
-        String reflectionReturnType = typeToString(reflectedMethod.getGenericReturnType());
+        String reflectionReturnType = reflectedMethod.mReturnType;
         List<String> jdiffParamList = jDiffMethod.mParamList;
 
         // Next, compare the return types of the two methods.  If
@@ -258,7 +260,7 @@ public class ReflectionHelper {
             return false;
         }
 
-        Type[] params = reflectedMethod.getGenericParameterTypes();
+        Type[] params = reflectedMethod.mParameterTypes;
 
         // Next, check the method parameters.  If they have different
         // parameter lengths, the two methods can't match.
@@ -270,7 +272,8 @@ public class ReflectionHelper {
 
         // Compare method parameters piecewise and return true if they all match.
         for (int i = 0; i < jdiffParamList.size(); i++) {
-            piecewiseParamsMatch &= compareParam(jdiffParamList.get(i), params[i], typeComparator);
+            piecewiseParamsMatch &= compareParam(jdiffParamList.get(i),
+                    reflectedMethod.mParameters[i], typeComparator);
         }
         if (piecewiseParamsMatch) {
             return true;
@@ -400,11 +403,11 @@ public class ReflectionHelper {
     /**
      * Returns a list of constructors which are annotated with the given annotation class.
      */
-    public static Set<Constructor<?>> getAnnotatedConstructors(Class<?> clazz,
-            Class<? extends Annotation> annotation) {
+    public static Set<Constructor<?>> getAnnotatedConstructors(DeclaredMembersCache cache,
+            Class<?> clazz, Class<? extends Annotation> annotation) {
         Set<Constructor<?>> result = new HashSet<>();
         if (annotation != null) {
-            for (Constructor<?> c : clazz.getDeclaredConstructors()) {
+            for (Constructor<?> c : cache.get(clazz).mConstructors) {
                 if (c.isAnnotationPresent(annotation)) {
                     // TODO(b/71630695): currently, some API members are not annotated, because
                     // a member is automatically added to the API set if it is in a class with
@@ -423,11 +426,11 @@ public class ReflectionHelper {
     /**
      * Returns a list of methods which are annotated with the given annotation class.
      */
-    public static Set<Method> getAnnotatedMethods(Class<?> clazz,
-            Class<? extends Annotation> annotation) {
+    public static Set<Method> getAnnotatedMethods(DeclaredMembersCache cache,
+            Class<?> clazz, Class<? extends Annotation> annotation) {
         Set<Method> result = new HashSet<>();
         if (annotation != null) {
-            for (Method m : clazz.getDeclaredMethods()) {
+            for (Method m : cache.get(clazz).mMethods) {
                 if (m.isAnnotationPresent(annotation)) {
                     // TODO(b/71630695): see getAnnotatedConstructors for details
                     result.add(m);
@@ -440,11 +443,11 @@ public class ReflectionHelper {
     /**
      * Returns a list of fields which are annotated with the given annotation class.
      */
-    public static Set<Field> getAnnotatedFields(Class<?> clazz,
-            Class<? extends Annotation> annotation) {
+    public static Set<Field> getAnnotatedFields(DeclaredMembersCache cache,
+            Class<?> clazz, Class<? extends Annotation> annotation) {
         Set<Field> result = new HashSet<>();
         if (annotation != null) {
-            for (Field f : clazz.getDeclaredFields()) {
+            for (Field f : cache.get(clazz).mFields) {
                 if (f.isAnnotationPresent(annotation)) {
                     // TODO(b/71630695): see getAnnotatedConstructors for details
                     result.add(f);
@@ -567,4 +570,130 @@ public class ReflectionHelper {
             return false;
         }
     }
+
+    /**
+     * The declared members of the classes looked at by one checker.
+     *
+     * <p>Reflection returns a new copy of the members on every call, and the same classes, e.g.
+     * the superclasses of View, are searched over and over while checking an API. The cache holds
+     * on to the classes it has seen, so it must not outlive the checker that owns it.
+     */
+    public static final class DeclaredMembersCache {
+        private final Map<Class<?>, DeclaredMembers> mDeclaredMembers = new ConcurrentHashMap<>();
+
+        DeclaredMembers get(Class<?> clazz) {
+            return mDeclaredMembers.computeIfAbsent(clazz, DeclaredMembers::new);
+        }
+    }
+
+    /**
+     * The declared members of a class, with constructors indexed by arity and methods by name and
+     * arity.
+     *
+     * <p>The arrays must not be modified. The generic signatures of members are only converted to
+     * strings when a member with the same name and arity is first looked up.
+     */
+    private static class DeclaredMembers {
+        final Constructor<?>[] mConstructors;
+        final Method[] mMethods;
+        final Field[] mFields;
+
+        private final boolean mSkipParent;
+        private final Map<Integer, List<ConstructorSignature>> mConstructorSignaturesByArity =
+                new ConcurrentHashMap<>();
+        private final Map<String, List<Method>> mMethodsByKey = new HashMap<>();
+        private final Map<String, List<MethodSignature>> mMethodSignaturesByKey =
+                new ConcurrentHashMap<>();
+
+        DeclaredMembers(Class<?> clazz) {
+            mConstructors = clazz.getDeclaredConstructors();
+            mMethods = clazz.getDeclaredMethods();
+            mFields = clazz.getDeclaredFields();
+
+            // non-static inner class -> skip implicit parent pointer
+            // as first arg
+            boolean isStaticClass = ((clazz.getModifiers() & Modifier.STATIC) != 0);
+            mSkipParent = clazz.isMemberClass() && !isStaticClass;
+            for (Method m : mMethods) {
+                mMethodsByKey
+                        .computeIfAbsent(getMethodKey(m.getName(), m.getParameterTypes().length),
+                                k -> new ArrayList<>())
+                        .add(m);
+            }
+        }
+
+        List<ConstructorSignature> getConstructors(int arity) {
+            return mConstructorSignaturesByArity.computeIfAbsent(arity, k -> {
+                List<ConstructorSignature> signatures = new ArrayList<>();
+                for (Constructor<?> c : mConstructors) {
+                    Type[] params = c.getGenericParameterTypes();
+                    int startParamOffset = mSkipParent && params.length >= 1 ? 1 : 0;
+                    if (params.length - startParamOffset == arity) {
+                        signatures.add(new ConstructorSignature(c, params, startParamOffset));
+                    }
+                }
+                return signatures;
+            });
+        }
+
+        List<MethodSignature> getMethods(String name, int arity) {
+            String key = getMethodKey(name, arity);
+            List<Method> methods = mMethodsByKey.get(key);
+            if (methods == null) {
+                return Collections.emptyList();
+            }
+            return mMethodSignaturesByKey.computeIfAbsent(key, k -> {
+                List<MethodSignature> signatures = new ArrayList<>(methods.size());
+                for (Method m : methods) {
+                    signatures.add(new MethodSignature(m));
+                }
+                return signatures;
+            });
+        }
+
+        private static String getMethodKey(String name, int arity) {
+            return name + "#" + arity;
+        }
+    }
+
+    /**
+     * A constructor with its generic parameter types converted by {@link #typeToString(Type)}.
+     */
+    private static class ConstructorSignature {
+        final Constructor<?> mConstructor;
+        final String[] mParameters;
+
+        ConstructorSignature(Constructor<?> constructor, Type[] params, int startParamOffset) {
+            mConstructor = constructor;
+            mParameters = new String[params.length - startParamOffset];
+            for (int i = 0; i < mParameters.length; i++) {
+                mParameters[i] = typeToString(params[i + startParamOffset]);
+            }
+        }
+    }
+
+    /**
+     * A method with its generic return and parameter types converted by
+     * {@link #typeToString(Type)}.
+     */
+    private static class MethodSignature {
+        final Method mMethod;
+        final Type[] mParameterTypes;
+        final String[] mParameters;
+        final String mReturnType;
+
+        MethodSignature(Method method) {
+            this(method, typeToString(method.getGenericReturnType()));
+        }
+
+        MethodSignature(Method method, String returnType) {
+            mMethod = method;
+            mParameterTypes = method.getGenericParameterTypes();
+            mParameters = new String[mParameterTypes.length];
+            for (int i = 0; i < mParameters.length; i++) {
+                mParameters[i] = typeToString(mParameterTypes[i]);
+            }
+            mReturnType = returnType;
+        }
+    }
 }
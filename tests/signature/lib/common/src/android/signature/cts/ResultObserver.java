@@ -18,6 +18,8 @@ package android.signature.cts;
 
 /**
  * Interface for saving signature test result.
+ *
+ * <p>Checkers may check classes in parallel so implementations must be thread safe.
  */
 public interface ResultObserver {
     /**
@@ -27,6 +27,8 @@ import android.signature.cts.tests.data.ExtendedNormalInterface;
 import android.signature.cts.tests.data.NormalClass;
 import android.signature.cts.tests.data.NormalInterface;
 import java.lang.reflect.Modifier;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 import org.junit.Ignore;
 import org.junit.Test;
@@ -485,4 +487,28 @@ public class ApiComplianceCheckerTest extends AbstractApiCheckerTest<ApiComplian
             checker.checkSignatureCompliance(clz);
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testParallelCheck() {
+        AtomicInteger missingMethods = new AtomicInteger();
+        ResultObserver observer = (type, name, errorMessage) -> {
+            assertEquals(FailureType.MISSING_METHOD, type);
+            missingMethods.incrementAndGet();
+        };
+        runWithApiChecker(observer, checker -> IntStream.range(0, 1000).parallel()
+                .mapToObj(i -> {
+                    if (i % 2 == 0) {
+                        JDiffClassDescription iface =
+                                createInterface(NormalInterface.class.getSimpleName());
+                        iface.addMethod(
+                                method("doSomething", Modifier.PUBLIC | Modifier.ABSTRACT, "void"));
+                        return iface;
+                    }
+                    JDiffClassDescription clz = createClass(NormalClass.class.getSimpleName());
+                    clz.addMethod(method("noSuchMethod", Modifier.PUBLIC, "void"));
+                    return clz;
+                })
+                .forEach(checker::checkSignatureCompliance));
+        assertEquals(500, missingMethods.get());
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.signature.cts.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.signature.cts.ApiSnapshotParser;
+import android.signature.cts.ApiSnapshotWriter;
+import android.signature.cts.JDiffClassDescription;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+import org.junit.runners.JUnit4;
+import org.junit.runner.RunWith;
+
+/**
+ * Test class for {@link ApiSnapshotWriter} and {@link ApiSnapshotParser}.
+ */
+@RunWith(JUnit4.class)
+public class ApiSnapshotTest {
+
+    private static List<JDiffClassDescription> createClasses(int count) {
+        List<JDiffClassDescription> classes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            JDiffClassDescription clz =
+                    new JDiffClassDescription("android.signature.cts.tests.data", "Class" + i);
+            clz.setModifier(Modifier.PUBLIC | (i % 2 == 0 ? Modifier.FINAL : 0));
+            clz.setType(i % 3 == 0
+                    ? JDiffClassDescription.JDiffType.INTERFACE
+                    : JDiffClassDescription.JDiffType.CLASS);
+            clz.addImplInterface("java.lang.Runnable");
+            clz.addField(new JDiffClassDescription.JDiffField("VALUE", "java.lang.String",
+                    Modifier.PUBLIC | Modifier.STATIC, "\"v" + i + "\""));
+            clz.addField(new JDiffClassDescription.JDiffField(
+                    "mField", "int", Modifier.PROTECTED, null));
+            JDiffClassDescription.JDiffConstructor constructor =
+                    new JDiffClassDescription.JDiffConstructor("Class" + i, Modifier.PUBLIC);
+            constructor.addParam("java.util.List<? extends java.lang.Object>");
+            constructor.addException("java.io.IOException");
+            clz.addConstructor(constructor);
+            JDiffClassDescription.JDiffMethod method =
+                    new JDiffClassDescription.JDiffMethod("run", Modifier.PUBLIC, null);
+            clz.addMethod(method);
+            method = new JDiffClassDescription.JDiffMethod("name\u00e9", Modifier.PUBLIC, "T");
+            method.addParam("int[]");
+            method.addParam("java.lang.String...");
+            clz.addMethod(method);
+            classes.add(clz);
+        }
+        return classes;
+    }
+
+    private static byte[] write(Stream<JDiffClassDescription> classes) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new ApiSnapshotWriter().write(classes, output);
+        return output.toByteArray();
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        List<JDiffClassDescription> classes = createClasses(10);
+        byte[] snapshot = write(classes.stream());
+        assertTrue(ApiSnapshotParser.isSnapshot(ByteBuffer.wrap(snapshot)));
+
+        List<JDiffClassDescription> parsed = new ApiSnapshotParser()
+                .parseAsStream(ByteBuffer.wrap(snapshot))
+                .collect(Collectors.toList());
+        assertEquals(classes.size(), parsed.size());
+        for (int i = 0; i < classes.size(); i++) {
+            JDiffClassDescription expected = classes.get(i);
+            JDiffClassDescription actual = parsed.get(i);
+            assertEquals(expected.getAbsoluteClassName(), actual.getAbsoluteClassName());
+            assertEquals(expected.toSignatureString(), actual.toSignatureString());
+            assertEquals(toSignatureStrings(expected), toSignatureStrings(actual));
+        }
+
+        // Every member round trips, so does the whole snapshot
+        assertArrayEquals(snapshot, write(parsed.stream()));
+    }
+
+    @Test
+    public void testParallelParse() throws IOException {
+        List<JDiffClassDescription> classes = createClasses(1000);
+        byte[] snapshot = write(classes.stream());
+
+        List<String> names = new ApiSnapshotParser()
+                .parseAsStream(ByteBuffer.wrap(snapshot))
+                .parallel()
+                .map(JDiffClassDescription::getAbsoluteClassName)
+                .collect(Collectors.toList());
+        assertEquals(
+                classes.stream()
+                        .map(JDiffClassDescription::getAbsoluteClassName)
+                        .collect(Collectors.toList()),
+                names);
+    }
+
+    @Test
+    public void testNotSnapshot() {
+        ByteBuffer xml = ByteBuffer.wrap("<api>\n</api>\n".getBytes(StandardCharsets.UTF_8));
+        assertFalse(ApiSnapshotParser.isSnapshot(xml));
+    }
+
+    private static List<String> toSignatureStrings(JDiffClassDescription clz) {
+        return clz.getFieldList().stream()
+                .map(JDiffClassDescription.JDiffField::toSignatureString)
+                .collect(Collectors.toList());
+    }
+}
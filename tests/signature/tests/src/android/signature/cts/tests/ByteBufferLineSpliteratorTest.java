@@ -23,7 +23,14 @@ import static org.junit.Assert.assertTrue;
 import android.signature.cts.ByteBufferLineSpliterator;
 
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 
 import org.junit.Test;
@@ -55,6 +62,46 @@ public class ByteBufferLineSpliteratorTest extends LineSpliteratorTestBase {
         assertTrue("c1=" + c1 + ", c2=" + c2, Math.abs(c1 - c2) < 10);
     }
 
+    @Test
+    public void testSplitLongLastLine() {
+        // No line break after the middle of the buffer, so it cannot be split
+        StringBuilder longLine = new StringBuilder("test");
+        for (int i = 0; i < 100; i++) {
+            longLine.append('0');
+        }
+        longLine.append("10");
+        Spliterator<Integer> split1 = createSpliterator(getRepetitions(10) + longLine, CONVERTER);
+        List<Integer> values = new ArrayList<>();
+        Spliterator<Integer> split2;
+        while ((split2 = split1.trySplit()) != null) {
+            split2.forEachRemaining(values::add);
+        }
+        split1.forEachRemaining(values::add);
+        Collections.sort(values);
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10), values);
+    }
+
+    @Test
+    public void testSplitHasOwnConverter() {
+        // Each converter returns its own id for every line.
+        AtomicInteger converters = new AtomicInteger();
+        Spliterator<Integer> split1 = new ByteBufferLineSpliterator<Integer>(
+                Charset.defaultCharset().encode(getRepetitions(100)), 6, () -> {
+                    int id = converters.incrementAndGet();
+                    return (buffer, start, end) -> id;
+                });
+        Spliterator<Integer> split2 = split1.trySplit();
+        assertNotNull(split2);
+        assertEquals(2, converters.get());
+
+        Set<Integer> ids1 = new HashSet<>();
+        split1.forEachRemaining(ids1::add);
+        Set<Integer> ids2 = new HashSet<>();
+        split2.forEachRemaining(ids2::add);
+        assertEquals(Collections.singleton(1), ids1);
+        assertEquals(Collections.singleton(2), ids2);
+    }
+
     @Override
     protected Spliterator<Integer> createSpliterator(String data,
             Function<String, Integer> converter) {
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.signature.cts.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import android.signature.cts.ApiSnapshotParser;
+import android.signature.cts.ApiSnapshotWriter;
+import android.signature.cts.ConcatSpliterator;
+import android.signature.cts.JDiffClassDescription;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+import org.junit.runners.JUnit4;
+import org.junit.runner.RunWith;
+
+/**
+ * Test class for {@link ConcatSpliterator}.
+ */
+@RunWith(JUnit4.class)
+public class ConcatSpliteratorTest {
+
+    private static List<Supplier<Stream<Integer>>> createSources(int count, int size,
+            AtomicInteger opened) {
+        List<Supplier<Stream<Integer>>> sources = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int start = i * size;
+            sources.add(() -> {
+                opened.incrementAndGet();
+                return IntStream.range(start, start + size).boxed();
+            });
+        }
+        return sources;
+    }
+
+    /**
+     * Splits the spliterator and its splits until none of them split any further.
+     *
+     * @return the number of spliterators.
+     */
+    private static int splitFully(Spliterator<?> spliterator) {
+        int count = 1;
+        Spliterator<?> prefix;
+        while ((prefix = spliterator.trySplit()) != null) {
+            count += splitFully(prefix);
+        }
+        return count;
+    }
+
+    @Test
+    public void testConcatenatesInOrder() {
+        AtomicInteger opened = new AtomicInteger();
+        List<Integer> values = ConcatSpliterator.concat(createSources(5, 10, opened))
+                .collect(Collectors.toList());
+        assertEquals(IntStream.range(0, 50).boxed().collect(Collectors.toList()), values);
+        assertEquals(5, opened.get());
+    }
+
+    @Test
+    public void testParallelKeepsOrder() {
+        AtomicInteger opened = new AtomicInteger();
+        List<Integer> values = ConcatSpliterator.concat(createSources(7, 100, opened))
+                .parallel()
+                .collect(Collectors.toList());
+        assertEquals(IntStream.range(0, 700).boxed().collect(Collectors.toList()), values);
+    }
+
+    @Test
+    public void testSplitsAcrossSourcesWithoutOpeningThem() {
+        AtomicInteger opened = new AtomicInteger();
+        Spliterator<Integer> spliterator =
+                ConcatSpliterator.concat(createSources(4, 10, opened)).spliterator();
+        assertNotNull(spliterator.trySplit());
+        assertNotNull(spliterator.trySplit());
+        assertEquals(0, opened.get());
+    }
+
+    @Test
+    public void testEmpty() {
+        Spliterator<Integer> spliterator =
+                ConcatSpliterator.<Integer>concat(Collections.emptyList()).spliterator();
+        assertEquals(null, spliterator.trySplit());
+        assertEquals(0, spliterator.estimateSize());
+        assertEquals(0, ConcatSpliterator.<Integer>concat(Collections.emptyList()).count());
+    }
+
+    /**
+     * A signature test usually checks a single API file, its classes must still be split up.
+     */
+    @Test
+    public void testSplitsSingleApiSnapshot() throws IOException {
+        List<String> names = new ArrayList<>();
+        List<JDiffClassDescription> classes = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            JDiffClassDescription clz =
+                    new JDiffClassDescription("android.signature.cts.tests.data", "Class" + i);
+            clz.setModifier(Modifier.PUBLIC);
+            clz.setType(JDiffClassDescription.JDiffType.CLASS);
+            classes.add(clz);
+            names.add(clz.getAbsoluteClassName());
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new ApiSnapshotWriter().write(classes.stream(), output);
+        ByteBuffer snapshot = ByteBuffer.wrap(output.toByteArray());
+        List<Supplier<Stream<JDiffClassDescription>>> sources = Arrays.asList(
+                () -> new ApiSnapshotParser().parseAsStream(snapshot));
+
+        int splits = splitFully(ConcatSpliterator.concat(sources).spliterator());
+        assertTrue("Only split into " + splits, splits > 1);
+
+        assertEquals(names, ConcatSpliterator.concat(sources)
+                .parallel()
+                .map(JDiffClassDescription::getAbsoluteClassName)
+                .collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.signature.cts.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import android.signature.cts.DexApiDocumentParser;
+import android.signature.cts.DexField;
+import android.signature.cts.DexMember;
+import android.signature.cts.DexMethod;
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.junit.runners.JUnit4;
+import org.junit.runner.RunWith;
+
+/**
+ * Test class for {@link DexApiDocumentParser}.
+ */
+@RunWith(JUnit4.class)
+public class DexApiDocumentParserTest {
+
+    private static final String LINES =
+            "Landroid/app/Activity;->mFinished:Z,greylist\n"
+            + "Landroid/app/Activity;-><init>()V,whitelist\n"
+            + "Landroid/app/Activity;->startActivity(Landroid/content/Intent;[[I)V,"
+                    + "whitelist,system-api\n"
+            + "Landroid/app/Activity$Inner;->values()[Landroid/app/Activity$Inner;\n"
+            + "Landroid/view/View;->sCache:Ljava/util/Map;,greylist-max-o,,\n"
+            + "Landroid/view/View;->draw(JLjava/lang/String;)Z,greylist,,blacklist";
+
+    // The members are sorted as a split buffer does not keep the order of the lines.
+    private static List<DexMember> parseBuffer(String lines) {
+        return new DexApiDocumentParser()
+                .parseAsStream(ByteBuffer.wrap(lines.getBytes(StandardCharsets.UTF_8)), 10)
+                .sorted(Comparator.comparing(DexMember::toString))
+                .collect(Collectors.toList());
+    }
+
+    private static List<DexMember> parseStream(String lines) {
+        return new DexApiDocumentParser()
+                .parseAsStream(new ByteArrayInputStream(lines.getBytes(StandardCharsets.UTF_8)))
+                .sorted(Comparator.comparing(DexMember::toString))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testBufferMatchesStream() {
+        List<DexMember> expected = parseStream(LINES);
+        List<DexMember> actual = parseBuffer(LINES);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            DexMember expectedMember = expected.get(i);
+            DexMember actualMember = actual.get(i);
+            assertEquals(expectedMember.getClass(), actualMember.getClass());
+            assertEquals(expectedMember.toString(), actualMember.toString());
+            assertEquals(expectedMember.getDexClassName(), actualMember.getDexClassName());
+            assertEquals(expectedMember.getName(), actualMember.getName());
+            assertEquals(expectedMember.getDexType(), actualMember.getDexType());
+            assertEquals(Arrays.asList(expectedMember.getHiddenapiFlags()),
+                    Arrays.asList(actualMember.getHiddenapiFlags()));
+            if (expectedMember instanceof DexMethod) {
+                assertEquals(((DexMethod) expectedMember).getDexSignature(),
+                        ((DexMethod) actualMember).getDexSignature());
+            }
+        }
+    }
+
+    @Test
+    public void testInterned() {
+        // Too short to split, so both lines are scanned by the same thread
+        List<DexMember> members = new DexApiDocumentParser()
+                .parseAsStream(ByteBuffer.wrap((
+                        "Landroid/app/Activity;->mFinished:Z,greylist\n"
+                        + "Landroid/app/Activity;->mResumed:Z,greylist\n")
+                        .getBytes(StandardCharsets.UTF_8)))
+                .collect(Collectors.toList());
+        assertSame(members.get(0).getDexClassName(), members.get(1).getDexClassName());
+        assertSame(members.get(0).getDexType(), members.get(1).getDexType());
+        assertSame(members.get(0).getHiddenapiFlags(), members.get(1).getHiddenapiFlags());
+    }
+
+    @Test
+    public void testField() {
+        DexField field = (DexField) parseBuffer("Landroid/view/View;->mId:I,greylist").get(0);
+        assertEquals("int android.view.View.mId", field.toString());
+    }
+
+    @Test
+    public void testInvalidLines() {
+        for (String line : new String[] {
+                "android/view/View;->mId:I",
+                "Landroid/view/View->mId:I",
+                "Landroid/view/View;->mId",
+                "Landroid/view/View;->get(I):I",
+                ",greylist",
+        }) {
+            try {
+                parseBuffer(line);
+                fail("Parsed invalid line: " + line);
+            } catch (RuntimeException e) {
+                // expected
+            }
+        }
+    }
+}
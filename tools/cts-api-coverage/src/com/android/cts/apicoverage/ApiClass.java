@@ -24,6 +24,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 /** Representation of a class in the API with constructors and methods. */
 class ApiClass implements Comparable<ApiClass>, HasCoverage {
@@ -46,21 +47,43 @@ class ApiClass implements Comparable<ApiClass>, HasCoverage {
 
     private Map<String, ApiClass> mInterfaceMap = new HashMap<String, ApiClass>();
 
+    // Methods & constructors by name and number of parameters, in the order they were added
+    private final Map<String, List<ApiMethod>> mMethodIndex = new HashMap<>();
+
+    private final Map<Integer, List<ApiConstructor>> mConstructorIndex = new HashMap<>();
+
+    // Matching methods & constructors of this class and its super classes & interfaces by
+    // signature, filled on first use once the super classes are resolved
+    private final Map<String, List<ApiMethod>> mResolvedMethods = new HashMap<>();
+
+    private final Map<String, List<ApiConstructor>> mResolvedConstructors = new HashMap<>();
+
+    // Shared by the classes of an ApiCoverage and bumped when the members or the super classes &
+    // interfaces of any of them change, as the resolved matches of its subclasses & implementors
+    // include its members
+    private final AtomicLong mGeneration;
+
+    // The generation the resolved matches of this class were found in
+    private long mResolvedGeneration = -1;
+
     /**
      * @param name The name of the class
      * @param deprecated true iff the class is marked as deprecated
      * @param classAbstract true iff the class is abstract
      * @param superClassName The fully qualified name of the super class
+     * @param generation The generation of the ApiCoverage the class belongs to
      */
     ApiClass(
             String name,
             boolean deprecated,
             boolean classAbstract,
-            String superClassName) {
+            String superClassName,
+            AtomicLong generation) {
         mName = name;
         mDeprecated = deprecated;
         mAbstract = classAbstract;
         mSuperClassName = superClassName;
+        mGeneration = generation;
     }
 
     @Override
@@ -85,14 +108,19 @@ class ApiClass implements Comparable<ApiClass>, HasCoverage {
         return mAbstract;
     }
 
-    public void setSuperClass(ApiClass superClass) { mSuperClass = superClass; }
+    public void setSuperClass(ApiClass superClass) {
+        mSuperClass = superClass;
+        clearResolved();
+    }
 
     public void addInterface(String interfaceName) {
         mInterfaceMap.put(interfaceName, null);
+        clearResolved();
     }
 
     public void resolveInterface(String interfaceName, ApiClass apiInterface) {
         mInterfaceMap.replace(interfaceName, apiInterface);
+        clearResolved();
     }
 
     public Set<String> getInterfaceNames() {
@@ -101,6 +129,10 @@ class ApiClass implements Comparable<ApiClass>, HasCoverage {
 
     public void addConstructor(ApiConstructor constructor) {
         mApiConstructors.add(constructor);
+        mConstructorIndex
+                .computeIfAbsent(constructor.getParameterTypes().size(), k -> new ArrayList<>())
+                .add(constructor);
+        clearResolved();
     }
 
     public Collection<ApiConstructor> getConstructors() {
@@ -109,34 +141,89 @@ class ApiClass implements Comparable<ApiClass>, HasCoverage {
 
     public void addMethod(ApiMethod method) {
         mApiMethods.add(method);
+        mMethodIndex
+                .computeIfAbsent(
+                        getIndexKey(method.getName(), method.getParameterTypes().size()),
+                        k -> new ArrayList<>())
+                .add(method);
+        clearResolved();
     }
 
     /** Look for a matching constructor and mark it as covered */
     public void markConstructorCovered(List<String> parameterTypes, String coveredbyApk) {
-        if (mSuperClass != null) {
-            // Mark matching constructors in the superclass
-            mSuperClass.markConstructorCovered(parameterTypes, coveredbyApk);
+        dropStaleResolved();
+        String signature = getSignature("", parameterTypes);
+        List<ApiConstructor> constructors = mResolvedConstructors.get(signature);
+        if (constructors == null) {
+            constructors = new ArrayList<>();
+            resolveConstructors(parameterTypes, constructors);
+            mResolvedConstructors.put(signature, constructors);
+        }
+        for (ApiConstructor constructor : constructors) {
+            constructor.setCovered(coveredbyApk);
         }
-        Optional<ApiConstructor> apiConstructor = getConstructor(parameterTypes);
-        apiConstructor.ifPresent(constructor -> constructor.setCovered(coveredbyApk));
     }
 
     /** Look for a matching method and if found and mark it as covered */
     public void markMethodCovered(String name, List<String> parameterTypes, String coveredbyApk) {
+        dropStaleResolved();
+        String signature = getSignature(name, parameterTypes);
+        List<ApiMethod> methods = mResolvedMethods.get(signature);
+        if (methods == null) {
+            methods = new ArrayList<>();
+            resolveMethods(name, parameterTypes, methods);
+            mResolvedMethods.put(signature, methods);
+        }
+        for (ApiMethod method : methods) {
+            method.setCovered(coveredbyApk);
+        }
+    }
+
+    /** Adds the matching constructors of this class and its super classes */
+    private void resolveConstructors(
+            List<String> parameterTypes, List<ApiConstructor> constructors) {
         if (mSuperClass != null) {
-            // Mark matching methods in the super class
-            mSuperClass.markMethodCovered(name, parameterTypes, coveredbyApk);
+            mSuperClass.resolveConstructors(parameterTypes, constructors);
         }
-        if (!mInterfaceMap.isEmpty()) {
-            // Mark matching methods in the interfaces
-            for (ApiClass mInterface : mInterfaceMap.values()) {
-                if (mInterface != null) {
-                    mInterface.markMethodCovered(name, parameterTypes, coveredbyApk);
-                }
+        getConstructor(parameterTypes).ifPresent(constructors::add);
+    }
+
+    /** Adds the matching methods of this class and its super classes & interfaces */
+    private void resolveMethods(String name, List<String> parameterTypes, List<ApiMethod> methods) {
+        if (mSuperClass != null) {
+            mSuperClass.resolveMethods(name, parameterTypes, methods);
+        }
+        for (ApiClass mInterface : mInterfaceMap.values()) {
+            if (mInterface != null) {
+                mInterface.resolveMethods(name, parameterTypes, methods);
             }
         }
-        Optional<ApiMethod> apiMethod = getMethod(name, parameterTypes);
-        apiMethod.ifPresent(method -> method.setCovered(coveredbyApk));
+        getMethod(name, parameterTypes).ifPresent(methods::add);
+    }
+
+    private void clearResolved() {
+        mGeneration.incrementAndGet();
+    }
+
+    private void dropStaleResolved() {
+        long generation = mGeneration.get();
+        if (mResolvedGeneration != generation) {
+            mResolvedMethods.clear();
+            mResolvedConstructors.clear();
+            mResolvedGeneration = generation;
+        }
+    }
+
+    private static String getIndexKey(String name, int parameterCount) {
+        return name + "#" + parameterCount;
+    }
+
+    private static String getSignature(String name, List<String> parameterTypes) {
+        StringBuilder signature = new StringBuilder(name).append('(');
+        for (String parameterType : parameterTypes) {
+            signature.append(parameterType).append(',');
+        }
+        return signature.append(')').toString();
     }
 
     public Collection<ApiMethod> getMethods() {
@@ -177,11 +264,12 @@ class ApiClass implements Comparable<ApiClass>, HasCoverage {
     }
 
     private Optional<ApiMethod> getMethod(String name, List<String> parameterTypes) {
-        for (ApiMethod method : mApiMethods) {
-            boolean methodNameMatch = name.equals(method.getName());
-            boolean parameterTypeMatch =
-                    compareParameterTypes(method.getParameterTypes(), parameterTypes);
-            if (methodNameMatch && parameterTypeMatch) {
+        List<ApiMethod> candidates = mMethodIndex.get(getIndexKey(name, parameterTypes.size()));
+        if (candidates == null) {
+            return Optional.empty();
+        }
+        for (ApiMethod method : candidates) {
+            if (compareParameterTypes(method.getParameterTypes(), parameterTypes)) {
                 return Optional.of(method);
             }
         }
@@ -261,7 +349,11 @@ class ApiClass implements Comparable<ApiClass>, HasCoverage {
     }
 
     private Optional<ApiConstructor> getConstructor(List<String> parameterTypes) {
-        for (ApiConstructor constructor : mApiConstructors) {
+        List<ApiConstructor> candidates = mConstructorIndex.get(parameterTypes.size());
+        if (candidates == null) {
+            return Optional.empty();
+        }
+        for (ApiConstructor constructor : candidates) {
             if (compareParameterTypes(constructor.getParameterTypes(), parameterTypes)) {
                 return Optional.of(constructor);
             }
@@ -21,12 +21,20 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /** Representation of the entire API containing packages. */
 class ApiCoverage {
 
     private final Map<String, ApiPackage> mPackages = new HashMap<String, ApiPackage>();
 
+    private final AtomicLong mGeneration = new AtomicLong();
+
+    /** The generation shared by the classes of this API, see {@link ApiClass} */
+    public AtomicLong getGeneration() {
+        return mGeneration;
+    }
+
     public void addPackage(ApiPackage pkg) {
         mPackages.put(pkg.getName(), pkg);
     }
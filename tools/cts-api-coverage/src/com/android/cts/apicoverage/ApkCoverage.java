@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.cts.apicoverage;
+
+import com.android.cts.apicoverage.ApkCoverageProto.ApkCoverageFragment;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Coverage found in a single test APK or jar. It is recorded without touching the shared
+ * {@link ApiCoverage}, so APKs can be scanned concurrently, and then applied in APK order so the
+ * report is the same as a serial scan.
+ */
+class ApkCoverage {
+
+    private final String mTestApkName;
+
+    // Marking a member covered is idempotent, so each reference is kept once
+    private final Set<Reference> mReferences = new LinkedHashSet<Reference>();
+
+    private final CddCoverage mCddCoverage = new CddCoverage();
+
+    /** A constructor or method referenced by the test APK. */
+    private static class Reference {
+        private final String mPackageName;
+        private final String mClassName;
+        // null for a constructor
+        private final String mMethodName;
+        private final List<String> mParameterTypes;
+
+        Reference(String packageName, String className, String methodName,
+                List<String> parameterTypes) {
+            mPackageName = packageName;
+            mClassName = className;
+            mMethodName = methodName;
+            mParameterTypes = new ArrayList<String>(parameterTypes);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Reference)) {
+                return false;
+            }
+            Reference reference = (Reference) other;
+            return Objects.equals(mPackageName, reference.mPackageName)
+                    && Objects.equals(mClassName, reference.mClassName)
+                    && Objects.equals(mMethodName, reference.mMethodName)
+                    && mParameterTypes.equals(reference.mParameterTypes);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mPackageName, mClassName, mMethodName, mParameterTypes);
+        }
+    }
+
+    ApkCoverage(String testApkName) {
+        mTestApkName = testApkName;
+    }
+
+    public String getTestApkName() {
+        return mTestApkName;
+    }
+
+    public void addConstructor(String packageName, String className, List<String> parameterTypes) {
+        mReferences.add(new Reference(packageName, className, null, parameterTypes));
+    }
+
+    public void addMethod(String packageName, String className, String methodName,
+            List<String> parameterTypes) {
+        mReferences.add(new Reference(packageName, className, methodName, parameterTypes));
+    }
+
+    public CddCoverage getCddCoverage() {
+        return mCddCoverage;
+    }
+
+    /** Marks all the references of the APK as covered, in the order they were found. */
+    public void applyTo(ApiCoverage apiCoverage, CddCoverage cddCoverage) {
+        for (Reference reference : mReferences) {
+            ApiPackage apiPackage = apiCoverage.getPackage(reference.mPackageName);
+            if (apiPackage == null) {
+                continue;
+            }
+            ApiClass apiClass = apiPackage.getClass(reference.mClassName);
+            if (apiClass == null) {
+                continue;
+            }
+            if (reference.mMethodName == null) {
+                apiClass.markConstructorCovered(reference.mParameterTypes, mTestApkName);
+            } else {
+                apiClass.markMethodCovered(
+                        reference.mMethodName, reference.mParameterTypes, mTestApkName);
+            }
+        }
+        cddCoverage.addAll(mCddCoverage);
+    }
+
+    /** Gets the coverage as a fragment to be cached, without the APK name. */
+    public ApkCoverageFragment toFragment() {
+        ApkCoverageFragment.Builder fragmentBuilder = ApkCoverageFragment.newBuilder();
+        for (Reference reference : mReferences) {
+            ApkCoverageFragment.Reference.Builder referenceBuilder =
+                    ApkCoverageFragment.Reference.newBuilder()
+                            .setPackageName(reference.mPackageName)
+                            .setClassName(reference.mClassName)
+                            .addAllParameterTypes(reference.mParameterTypes);
+            if (reference.mMethodName != null) {
+                referenceBuilder.setMethodName(reference.mMethodName);
+            }
+            fragmentBuilder.addReferences(referenceBuilder);
+        }
+        for (CddCoverage.CddRequirement requirement : mCddCoverage.getCddRequirements()) {
+            for (CddCoverage.TestMethod testMethod : requirement.getTestMethods()) {
+                ApkCoverageFragment.CddTestMethod.Builder testMethodBuilder =
+                        ApkCoverageFragment.CddTestMethod.newBuilder()
+                                .setRequirement(requirement.getRequirementId())
+                                .setTestClass(testMethod.getTestClass());
+                if (testMethod.getTestMethod() != null) {
+                    testMethodBuilder.setTestMethod(testMethod.getTestMethod());
+                }
+                fragmentBuilder.addCddTestMethods(testMethodBuilder);
+            }
+        }
+        return fragmentBuilder.build();
+    }
+
+    /** Creates the coverage of a test APK from a cached fragment. */
+    public static ApkCoverage fromFragment(String testApkName, ApkCoverageFragment fragment) {
+        ApkCoverage apkCoverage = new ApkCoverage(testApkName);
+        for (ApkCoverageFragment.Reference reference : fragment.getReferencesList()) {
+            apkCoverage.mReferences.add(
+                    new Reference(
+                            reference.getPackageName(),
+                            reference.getClassName(),
+                            reference.hasMethodName() ? reference.getMethodName() : null,
+                            reference.getParameterTypesList()));
+        }
+        for (ApkCoverageFragment.CddTestMethod testMethod : fragment.getCddTestMethodsList()) {
+            apkCoverage.mCddCoverage.addCoverage(
+                    testMethod.getRequirement(),
+                    new CddCoverage.TestMethod(
+                            testApkName,
+                            testMethod.getTestClass(),
+                            testMethod.hasTestMethod() ? testMethod.getTestMethod() : null));
+        }
+        return apkCoverage;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.cts.apicoverage;
+
+import com.android.cts.apicoverage.ApkCoverageProto.ApkCoverageFragment;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An on-disk cache of the coverage found in each test APK, keyed by the APK content, so that only
+ * new or changed APKs are scanned on the next run.
+ *
+ * <p>Fragments are renamed into place once fully written, so runs sharing a cache folder never
+ * read a fragment that another run is still writing.
+ */
+class ApkCoverageCache {
+    // Part of every key, see getKey()
+    private static final String CACHE_VERSION = "2";
+    private static final String CACHE_EXT_TAG = ".pb";
+    private static final String TMP_EXT_TAG = ".tmp";
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final File mCacheFolder;
+
+    private final AtomicInteger mHits = new AtomicInteger();
+    private final AtomicInteger mMisses = new AtomicInteger();
+
+    /** @param cacheFolder folder to store cached fragments in, created if missing */
+    ApkCoverageCache(String cacheFolder) throws IOException {
+        mCacheFolder = new File(cacheFolder);
+        if (!mCacheFolder.isDirectory() && !mCacheFolder.mkdirs()) {
+            throw new IOException("Cannot create cache folder: " + cacheFolder);
+        }
+    }
+
+    /**
+     * Gets the cache key of a test APK from its content and the API level it is scanned for.
+     * {@link #CACHE_VERSION} must change with the scan or with {@link ApkCoverage#toFragment()}.
+     */
+    public String getKey(File testApk, int api) throws IOException {
+        MessageDigest md = getMessageDigest();
+        md.update((CACHE_VERSION + "|" + api + "|").getBytes(StandardCharsets.UTF_8));
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        try (InputStream input = new FileInputStream(testApk)) {
+            int length;
+            while ((length = input.read(buffer)) > 0) {
+                md.update(buffer, 0, length);
+            }
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(md.digest());
+    }
+
+    /**
+     * Gets the cached coverage of a test APK.
+     *
+     * @return the coverage or null if not found
+     */
+    public ApkCoverage get(String key, String testApkName) {
+        File cacheFile = new File(mCacheFolder, key + CACHE_EXT_TAG);
+        if (cacheFile.isFile()) {
+            try (InputStream input = new FileInputStream(cacheFile)) {
+                ApkCoverage apkCoverage =
+                        ApkCoverage.fromFragment(testApkName, ApkCoverageFragment.parseFrom(input));
+                mHits.incrementAndGet();
+                return apkCoverage;
+            } catch (IOException e) {
+                System.err.println("Invalid cache file: " + cacheFile + ", err:" + e.getMessage());
+            }
+        }
+        mMisses.incrementAndGet();
+        return null;
+    }
+
+    /** Puts the coverage of a test APK. */
+    public void put(String key, ApkCoverage apkCoverage) {
+        File cacheFile = new File(mCacheFolder, key + CACHE_EXT_TAG);
+        try {
+            File tmpFile = File.createTempFile(key, TMP_EXT_TAG, mCacheFolder);
+            try (OutputStream output = new FileOutputStream(tmpFile)) {
+                apkCoverage.toFragment().writeTo(output);
+            }
+            Files.move(
+                    tmpFile.toPath(),
+                    cacheFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Cannot write cache file: " + cacheFile + ", err:" + e.getMessage());
+        }
+    }
+
+    public int getHits() {
+        return mHits.get();
+    }
+
+    public int getMisses() {
+        return mMisses.get();
+    }
+
+    private static MessageDigest getMessageDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -46,6 +46,15 @@ class CddCoverage {
         requirements.get(cddRequirementId).addTestMethod(testMethod);
     }
 
+    /** Adds all the test methods of another coverage after the ones already added. */
+    public void addAll(CddCoverage other) {
+        for (CddRequirement requirement : other.requirements.values()) {
+            for (TestMethod testMethod : requirement.getTestMethods()) {
+                addCoverage(requirement.getRequirementId(), testMethod);
+            }
+        }
+    }
+
     static class CddRequirement {
         private final String mRequirementId;
         private final List<TestMethod> mtestMethods;
@@ -19,8 +19,7 @@ package com.android.cts.apicoverage;
 import com.android.compatibility.common.util.CddTest;
 import com.android.compatibility.common.util.ReadElf;
 
-import org.jf.dexlib2.DexFileFactory;
-import org.jf.dexlib2.Opcodes;
+import org.jf.dexlib2.dexbacked.DexBackedDexFile;
 import org.jf.dexlib2.iface.Annotation;
 import org.jf.dexlib2.iface.AnnotationElement;
 import org.jf.dexlib2.iface.ClassDef;
@@ -44,7 +43,12 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.xml.transform.TransformerException;
 
@@ -82,12 +86,11 @@ public class CtsApiCoverage {
         System.out.println("Use the Makefiles rules in CtsCoverage.mk to generate the report ");
         System.out.println("rather than executing this directly. If you still want to run this ");
         System.out.println("directly, then this must be used from the $ANDROID_BUILD_TOP ");
-        System.out.println("directory and dexdeps must be built via \"make dexdeps\".");
+        System.out.println("directory.");
         System.out.println();
         System.out.println("Options:");
         System.out.println("  -o FILE                output file or standard out if not given");
         System.out.println("  -f [txt|xml|html]      format of output");
-        System.out.println("  -d PATH                path to dexdeps or expected to be in $PATH");
         System.out.println("  -a PATH                path to the API XML file");
         System.out.println(
                 "  -n PATH                path to the NDK API XML file, which can be updated via ndk-api-report with the ndk target");
@@ -95,6 +98,9 @@ public class CtsApiCoverage {
         System.out.println("  -t TITLE               report title");
         System.out.println("  -a API                 the Android API Level");
         System.out.println("  -b BITS                64 or 32 bits, default 64");
+        System.out.println("  -j THREADS             number of APKs to scan concurrently, default 1,");
+        System.out.println("                         the build rules use one per processor");
+        System.out.println("  -c PATH                cache folder to only rescan changed APKs");
         System.out.println();
         System.exit(1);
     }
@@ -103,7 +109,6 @@ public class CtsApiCoverage {
         List<File> testApks = new ArrayList<File>();
         File outputFile = null;
         int format = FORMAT_TXT;
-        String dexDeps = "dexDeps";
         String apiXmlPath = "";
         String napiXmlPath = "";
         PackageFilter packageFilter = new PackageFilter();
@@ -111,6 +116,8 @@ public class CtsApiCoverage {
         int apiLevel = Integer.MAX_VALUE;
         String testCasesFolder = "";
         String bits = "64";
+        int threadCount = 1;
+        String cacheFolder = null;
 
         List<File> notFoundTestApks = new ArrayList<File>();
         int numTestApkArgs = 0;
@@ -129,8 +136,6 @@ public class CtsApiCoverage {
                     } else {
                         printUsage();
                     }
-                } else if ("-d".equals(args[i])) {
-                    dexDeps = getExpectedArg(args, ++i);
                 } else if ("-a".equals(args[i])) {
                     apiXmlPath = getExpectedArg(args, ++i);
                 } else if ("-n".equals(args[i])) {
@@ -143,6 +148,10 @@ public class CtsApiCoverage {
                     apiLevel = Integer.parseInt(getExpectedArg(args, ++i));
                 } else if ("-b".equals(args[i])) {
                     bits = getExpectedArg(args, ++i);
+                } else if ("-j".equals(args[i])) {
+                    threadCount = Integer.parseInt(getExpectedArg(args, ++i));
+                } else if ("-c".equals(args[i])) {
+                    cacheFolder = getExpectedArg(args, ++i);
                 } else {
                     printUsage();
                 }
@@ -171,8 +180,8 @@ public class CtsApiCoverage {
          *    in current.xml. The object will have no information about the coverage for each
          *    constructor or method yet.
          *
-         * 2. For each provided APK, scan it using dexdeps, parse the output of dexdeps, and
-         *    call methods on the ApiCoverage object to cumulatively add coverage stats.
+         * 2. For each provided APK, find the methods its dex files reference and call
+         *    methods on the ApiCoverage object to cumulatively add coverage stats.
          *
          * 3. Output a report based on the coverage stats in the ApiCoverage object.
          */
@@ -195,9 +204,15 @@ public class CtsApiCoverage {
 
         // Add superclass information into api coverage.
         apiCoverage.resolveSuperClasses();
-        for (File testApk : testApks) {
-            addApiCoverage(apiCoverage, testApk, dexDeps);
-            addCddCoverage(cddCoverage, testApk, apiLevel);
+        ApkCoverageCache cache = cacheFolder != null ? new ApkCoverageCache(cacheFolder) : null;
+        for (ApkCoverage apkCoverage : scanTestApks(testApks, apiLevel, threadCount, cache)) {
+            apkCoverage.applyTo(apiCoverage, cddCoverage);
+        }
+        if (cache != null) {
+            System.err.println(
+                    String.format(
+                            "APK coverage cache: %d hits, %d misses",
+                            cache.getHits(), cache.getMisses()));
         }
 
         try {
@@ -259,28 +274,70 @@ public class CtsApiCoverage {
     }
 
     /**
-     * Adds coverage information gleamed from running dexdeps on the APK to the
-     * {@link ApiCoverage} object.
+     * Scans the test APKs on a pool of threads. Each APK is scanned into its own
+     * {@link ApkCoverage}, so the scans share no state.
      *
-     * @param apiCoverage object to which the coverage statistics will be added to
-     * @param testApk containing the tests that will be scanned by dexdeps
+     * @param testApks to be scanned
+     * @param threadCount number of APKs to scan concurrently
+     * @param cache of previously scanned APKs or null to scan all of them
+     * @return the coverage of each APK in the same order as {@code testApks}
      */
-    private static void addApiCoverage(ApiCoverage apiCoverage, File testApk, String dexdeps)
-            throws SAXException, IOException {
-        XMLReader xmlReader = XMLReaderFactory.createXMLReader();
-        String testApkName = testApk.getName();
-        DexDepsXmlHandler dexDepsXmlHandler = new DexDepsXmlHandler(apiCoverage, testApkName);
-        xmlReader.setContentHandler(dexDepsXmlHandler);
+    private static List<ApkCoverage> scanTestApks(List<File> testApks, int apiLevel,
+            int threadCount, ApkCoverageCache cache) throws Exception {
+        List<ApkCoverage> apkCoverages = new ArrayList<ApkCoverage>();
+        if (threadCount <= 1) {
+            for (File testApk : testApks) {
+                apkCoverages.add(scanTestApk(testApk, apiLevel, cache));
+            }
+            return apkCoverages;
+        }
 
-        String apkPath = testApk.getPath();
-        Process process = new ProcessBuilder(dexdeps, "--format=xml", apkPath).start();
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
         try {
-            xmlReader.parse(new InputSource(process.getInputStream()));
-        } catch (SAXException e) {
-          // Catch this exception, but continue. SAXException is acceptable in cases
-          // where the apk does not contain a classes.dex and therefore parsing won't work.
-          System.err.println("warning: dexdeps failed for: " + apkPath);
+            List<Future<ApkCoverage>> futures = new ArrayList<Future<ApkCoverage>>();
+            for (File testApk : testApks) {
+                futures.add(executor.submit(() -> scanTestApk(testApk, apiLevel, cache)));
+            }
+            for (Future<ApkCoverage> future : futures) {
+                try {
+                    apkCoverages.add(future.get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    throw cause instanceof Exception ? (Exception) cause : e;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
         }
+        return apkCoverages;
+    }
+
+    /**
+     * Scans a test APK or jar into a new {@link ApkCoverage}. Its dex files are loaded once and
+     * used for both the API references and the CDD annotations. The scan is skipped if the
+     * APK is found in the cache.
+     */
+    private static ApkCoverage scanTestApk(File testApk, int apiLevel, ApkCoverageCache cache)
+            throws IOException {
+        String cacheKey = null;
+        if (cache != null) {
+            cacheKey = cache.getKey(testApk, apiLevel);
+            ApkCoverage cachedCoverage = cache.get(cacheKey, testApk.getName());
+            if (cachedCoverage != null) {
+                return cachedCoverage;
+            }
+        }
+
+        ApkCoverage apkCoverage = new ApkCoverage(testApk.getName());
+        Map<String, DexBackedDexFile> dexFiles =
+                DexReferenceFinder.loadDexFiles(testApk, apiLevel);
+        DexReferenceFinder.addReferences(dexFiles.values(), apkCoverage);
+        addCddCoverage(apkCoverage.getCddCoverage(), testApk,
+                dexFiles.get(DexReferenceFinder.PRIMARY_DEX_NAME));
+        if (cache != null) {
+            cache.put(cacheKey, apkCoverage);
+        }
+        return apkCoverage;
     }
 
     /**
@@ -379,11 +436,11 @@ public class CtsApiCoverage {
         }
     }
 
-    private static void addCddCoverage(CddCoverage cddCoverage, File testSource, int api)
-            throws IOException {
+    private static void addCddCoverage(CddCoverage cddCoverage, File testSource,
+            DexFile dexFile) throws IOException {
 
         if (testSource.getName().endsWith(".apk")) {
-            addCddApkCoverage(cddCoverage, testSource, api);
+            addCddApkCoverage(cddCoverage, testSource, dexFile);
         } else if (testSource.getName().endsWith(".jar")) {
             addCddJarCoverage(cddCoverage, testSource);
         } else {
@@ -408,18 +465,13 @@ public class CtsApiCoverage {
         }
     }
 
+    /** Adds the CDD annotations of classes.dex, the only dex scanned for them. */
     private static void addCddApkCoverage(
-        CddCoverage cddCoverage, File testSource, int api)
-            throws IOException {
+        CddCoverage cddCoverage, File testSource, DexFile dexFile) {
 
-        DexFile dexFile = null;
-        try {
-            dexFile = DexFileFactory.loadDexFile(testSource, Opcodes.forApi(api));
-        } catch (IOException | DexFileFactory.DexFileNotFoundException e) {
-            System.err.println("Unable to load dex file: " + testSource.getPath());
+        if (dexFile == null) {
             return;
         }
-
         String moduleName = testSource.getName();
         for (ClassDef classDef : dexFile.getClasses()) {
             String className = classDef.getType();
@@ -79,8 +79,8 @@ class CurrentXmlHandler extends DefaultHandler {
             mCurrentClassName = getValue(attributes, "name");
             mDeprecated = isDeprecated(attributes);
             String superClass = attributes.getValue("extends");
-            ApiClass apiClass = new ApiClass(
-                    mCurrentClassName, mDeprecated, is(attributes, "abstract"), superClass);
+            ApiClass apiClass = new ApiClass(mCurrentClassName, mDeprecated,
+                    is(attributes, "abstract"), superClass, mApiCoverage.getGeneration());
             ApiPackage apiPackage = mApiCoverage.getPackage(mCurrentPackageName);
             apiPackage.addClass(apiClass);
         } else if ("implements".equalsIgnoreCase(localName)) {
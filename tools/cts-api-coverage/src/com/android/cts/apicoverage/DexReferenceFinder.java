@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.cts.apicoverage;
+
+import org.jf.dexlib2.DexFileFactory;
+import org.jf.dexlib2.Opcodes;
+import org.jf.dexlib2.ReferenceType;
+import org.jf.dexlib2.dexbacked.DexBackedClassDef;
+import org.jf.dexlib2.dexbacked.DexBackedDexFile;
+import org.jf.dexlib2.dexbacked.reference.DexBackedMethodReference;
+import org.jf.dexlib2.iface.MultiDexContainer;
+import org.jf.dexlib2.iface.reference.Reference;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds the methods a test APK or jar references outside of itself, the same references dexdeps
+ * reports, by reading its dex files in process.
+ */
+class DexReferenceFinder {
+
+    private static final String CONSTRUCTOR_NAME = "<init>";
+
+    private static final String STATIC_INITIALIZER_NAME = "<clinit>";
+
+    /** The entry name of the primary dex file of an APK or jar. */
+    static final String PRIMARY_DEX_NAME = "classes.dex";
+
+    /**
+     * Loads all the dex files, i.e. classes.dex, classes2.dex..., of a test APK or jar.
+     *
+     * @return the dex files by entry name or an empty map if there are none or they cannot be
+     *     loaded
+     */
+    static Map<String, DexBackedDexFile> loadDexFiles(File testSource, int api) {
+        Map<String, DexBackedDexFile> dexFiles = new LinkedHashMap<String, DexBackedDexFile>();
+        try {
+            MultiDexContainer<? extends DexBackedDexFile> container =
+                    DexFileFactory.loadDexContainer(testSource, Opcodes.forApi(api));
+            for (String entryName : container.getDexEntryNames()) {
+                DexBackedDexFile dexFile = container.getEntry(entryName);
+                if (dexFile != null) {
+                    dexFiles.put(entryName, dexFile);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Acceptable for jars that contain only class files
+            System.err.println("Unable to load dex file: " + testSource.getPath());
+        }
+        return dexFiles;
+    }
+
+    /**
+     * Adds the constructors and methods referenced by each dex file, but not defined in it, to
+     * the {@link ApkCoverage} object. Like dexdeps, a class defined in another dex file of the same
+     * APK counts as external.
+     */
+    static void addReferences(Collection<DexBackedDexFile> dexFiles, ApkCoverage apkCoverage) {
+        Set<String> internalTypes = new HashSet<String>();
+        List<String> parameterTypes = new ArrayList<String>();
+        for (DexBackedDexFile dexFile : dexFiles) {
+            internalTypes.clear();
+            for (DexBackedClassDef classDef : dexFile.getClasses()) {
+                internalTypes.add(classDef.getType());
+            }
+            for (Reference reference : dexFile.getReferences(ReferenceType.METHOD)) {
+                DexBackedMethodReference methodReference = (DexBackedMethodReference) reference;
+                String definingClass = methodReference.getDefiningClass();
+                // Skips internal classes and array types, e.g. int[].clone()
+                if (internalTypes.contains(definingClass) || !definingClass.startsWith("L")) {
+                    continue;
+                }
+                String methodName = methodReference.getName();
+                if (STATIC_INITIALIZER_NAME.equals(methodName)) {
+                    continue;
+                }
+
+                parameterTypes.clear();
+                for (CharSequence parameterType : methodReference.getParameterTypes()) {
+                    parameterTypes.add(toJavaType(parameterType.toString()));
+                }
+                String packageName = getPackageName(definingClass);
+                String className = getClassName(definingClass);
+                if (CONSTRUCTOR_NAME.equals(methodName)) {
+                    apkCoverage.addConstructor(packageName, className, parameterTypes);
+                } else {
+                    apkCoverage.addMethod(packageName, className, methodName, parameterTypes);
+                }
+            }
+        }
+    }
+
+    /** Given Landroid/app/Notification$Builder; return android.app */
+    static String getPackageName(String classType) {
+        int end = classType.lastIndexOf('/');
+        return end < 0 ? "" : classType.substring(1, end).replace('/', '.');
+    }
+
+    /** Given Landroid/app/Notification$Builder; return Notification.Builder */
+    static String getClassName(String classType) {
+        int start = classType.lastIndexOf('/') + 1;
+        if (start == 0) {
+            // default package
+            start = 1;
+        }
+        return classType.substring(start, classType.length() - 1).replace('$', '.');
+    }
+
+    /** Given a type like [Ljava/util/Map$Entry; return java.util.Map.Entry[] */
+    static String toJavaType(String type) {
+        int arrayDepth = 0;
+        while (type.charAt(arrayDepth) == '[') {
+            arrayDepth++;
+        }
+        StringBuilder javaType = new StringBuilder();
+        char c = type.charAt(arrayDepth);
+        switch (c) {
+            case 'Z': javaType.append("boolean"); break;
+            case 'B': javaType.append("byte"); break;
+            case 'C': javaType.append("char"); break;
+            case 'S': javaType.append("short"); break;
+            case 'I': javaType.append("int"); break;
+            case 'J': javaType.append("long"); break;
+            case 'F': javaType.append("float"); break;
+            case 'D': javaType.append("double"); break;
+            case 'V': javaType.append("void"); break;
+            default:
+                javaType.append(type, arrayDepth + 1, type.length() - 1);
+                for (int i = 0; i < javaType.length(); i++) {
+                    char ch = javaType.charAt(i);
+                    if (ch == '/' || ch == '$') {
+                        javaType.setCharAt(i, '.');
+                    }
+                }
+                break;
+        }
+        for (int i = 0; i < arrayDepth; i++) {
+            javaType.append("[]");
+        }
+        return javaType.toString();
+    }
+}
@@ -19,8 +19,7 @@ package com.android.cts.releaseparser;
 import com.android.cts.releaseparser.ReleaseProto.*;
 
 import java.io.File;
-import java.io.RandomAccessFile;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
 import java.util.logging.Logger;
 
 // ART file format at art/runtime/image.h
@@ -60,29 +59,27 @@ public class ArtParser extends FileParser {
     }
 
     private void parse() {
-        byte[] buffer = new byte[HEADER_SIZE];
         mArtInfoBuilder = ArtInfo.newBuilder();
         // ToDo check this
         int kSectionCount = 11;
         int kImageMethodsCount = 20;
         try {
-            RandomAccessFile raFile = new RandomAccessFile(getFile(), "r");
-            raFile.seek(0);
-            raFile.readFully(buffer, 0, HEADER_SIZE);
-            raFile.close();
-
-            if (buffer[0] != ART_MAGIC[0]
-                    || buffer[1] != ART_MAGIC[1]
-                    || buffer[2] != ART_MAGIC[2]
-                    || buffer[3] != ART_MAGIC[3]) {
-                String content = new String(buffer);
+            // throws if the file is shorter than the header
+            ByteBuffer buffer = getMappedFile();
+            buffer.limit(HEADER_SIZE);
+
+            if (buffer.get(0) != ART_MAGIC[0]
+                    || buffer.get(1) != ART_MAGIC[1]
+                    || buffer.get(2) != ART_MAGIC[2]
+                    || buffer.get(3) != ART_MAGIC[3]) {
+                String content = getString(buffer, 0, HEADER_SIZE);
                 System.err.println("Invalid ART file:" + getFileName() + " " + content);
                 mArtInfoBuilder.setValid(false);
                 return;
             }
 
             int offset = 4;
-            mArtInfoBuilder.setVersion(new String(Arrays.copyOfRange(buffer, offset, offset + 4)));
+            mArtInfoBuilder.setVersion(getString(buffer, offset, 4));
             offset += 4;
             mArtInfoBuilder.setImageBegin(getIntLittleEndian(buffer, offset));
             offset += 4;
@@ -0,0 +1,372 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.cts.releaseparser;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Reads the dynamic section, dynamic symbols and .rodata strings of an ELF file from a ByteBuffer,
+// e.g. a SO stored in an APK, so that it can be parsed without extracting it to a file first.
+// ref: bionic/libc/include/elf.h
+public class ElfBuffer {
+    private static final byte[] ELF_MAGIC = {(byte) 0x7F, (byte) 'E', (byte) 'L', (byte) 'F'};
+    private static final int EI_CLASS = 4;
+    private static final int EI_DATA = 5;
+    private static final int ELFCLASS32 = 1;
+    private static final int ELFCLASS64 = 2;
+    private static final int ELFDATA2LSB = 1;
+    private static final int E_MACHINE = 0x12;
+    private static final int EM_386 = 3;
+    private static final int EM_MIPS = 8;
+    private static final int EM_ARM = 40;
+    private static final int EM_X86_64 = 62;
+    private static final int EM_AARCH64 = 183;
+
+    private static final int SHT_DYNAMIC = 6;
+    private static final int SHT_DYNSYM = 11;
+    private static final int SHT_GNU_VERNEED = 0x6ffffffe;
+    private static final int SHT_GNU_VERSYM = 0x6fffffff;
+    private static final int DT_NULL = 0;
+    private static final int DT_NEEDED = 1;
+    private static final String RODATA_SECTION_NAME = ".rodata";
+
+    // Version indexes of symbols which do not need a version from another library
+    private static final int VER_NDX_LOCAL = 0;
+    private static final int VER_NDX_GLOBAL = 1;
+    private static final int VERSYM_HIDDEN = 0x8000;
+    private static final String LOCAL_LIB_NAME = "*local*";
+    private static final String GLOBAL_LIB_NAME = "*global*";
+
+    // Section header fields kept by readSectionHeaders()
+    private static final int SECTION_OFFSET = 0;
+    private static final int SECTION_SIZE = 1;
+    private static final int SECTION_LINK = 2;
+    private static final int SECTION_INFO = 3;
+    private static final int SECTION_FIELD_COUNT = 4;
+
+    // Architectures reported by ReadElf, which does not tell the 32 and 64 bit ones apart
+    private static final String ARCH_ARM = "arm";
+    private static final String ARCH_X86 = "x86";
+    private static final String ARCH_MIPS = "mips";
+    private static final String ARCH_UNKNOWN = "unknown";
+
+    /** A dynamic symbol, with the library file its version is needed from. */
+    public static class Symbol {
+        public static final int STB_LOCAL = 0;
+        public static final int STB_GLOBAL = 1;
+        public static final int STB_WEAK = 2;
+        public static final int STT_OBJECT = 1;
+        public static final int SHN_UNDEF = 0;
+
+        public final String name;
+        public final int bind;
+        public final int type;
+        public final int shndx;
+        private final String mExternalLibFileName;
+
+        Symbol(String name, int info, int shndx, String externalLibFileName) {
+            this.name = name;
+            this.bind = (info >> 4) & 0x0F;
+            this.type = info & 0x0F;
+            this.shndx = shndx;
+            mExternalLibFileName = externalLibFileName;
+        }
+
+        public boolean isExtern() {
+            return bind != STB_LOCAL && shndx != SHN_UNDEF;
+        }
+
+        public boolean isGlobalUnd() {
+            return bind != STB_LOCAL && shndx == SHN_UNDEF;
+        }
+
+        public String getExternalLibFileName() {
+            return mExternalLibFileName;
+        }
+    }
+
+    private final ByteBuffer mBuffer;
+    private final boolean mIs64Bits;
+    private final List<int[]> mSectionsByIndex = new ArrayList<>();
+    private final Map<String, int[]> mSections = new HashMap<>();
+    private List<String> mDynamicDependencies;
+    private Symbol[] mDynamicSymbols;
+
+    /**
+     * @param buffer the content of the ELF file from its current position
+     * @throws IllegalArgumentException if it is not a supported ELF file
+     */
+    public ElfBuffer(ByteBuffer buffer) {
+        mBuffer = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        if (!isElf(mBuffer)) {
+            throw new IllegalArgumentException("Invalid ELF MAGIC");
+        }
+        int elfClass = mBuffer.get(EI_CLASS);
+        if (elfClass != ELFCLASS32 && elfClass != ELFCLASS64) {
+            throw new IllegalArgumentException("Invalid ELF EI_CLASS: " + elfClass);
+        }
+        if (mBuffer.get(EI_DATA) != ELFDATA2LSB) {
+            throw new IllegalArgumentException("Unsupported ELF EI_DATA: " + mBuffer.get(EI_DATA));
+        }
+        mIs64Bits = elfClass == ELFCLASS64;
+        readSectionHeaders();
+    }
+
+    public static boolean isElf(ByteBuffer buffer) {
+        if (buffer.remaining() < ELF_MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < ELF_MAGIC.length; i++) {
+            if (buffer.get(buffer.position() + i) != ELF_MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getBits() {
+        return mIs64Bits ? 64 : 32;
+    }
+
+    public String getArchitecture() {
+        switch (getHalf(E_MACHINE)) {
+            case EM_ARM:
+            case EM_AARCH64:
+                return ARCH_ARM;
+            case EM_386:
+            case EM_X86_64:
+                return ARCH_X86;
+            case EM_MIPS:
+                return ARCH_MIPS;
+            default:
+                return ARCH_UNKNOWN;
+        }
+    }
+
+    /** Returns the DT_NEEDED libraries, in the order of the dynamic section. */
+    public List<String> getDynamicDependencies() {
+        if (mDynamicDependencies == null) {
+            mDynamicDependencies = new ArrayList<>();
+            int[] dynamic = mSections.get(sectionKey(SHT_DYNAMIC));
+            if (dynamic != null) {
+                int strTab = getSectionOffset(dynamic[SECTION_LINK]);
+                int entrySize = mIs64Bits ? 16 : 8;
+                for (int entry = dynamic[SECTION_OFFSET];
+                        entry + entrySize <= dynamic[SECTION_OFFSET] + dynamic[SECTION_SIZE];
+                        entry += entrySize) {
+                    long tag = getX(entry);
+                    if (tag == DT_NULL) {
+                        break;
+                    }
+                    if (tag == DT_NEEDED) {
+                        int nameOffset = (int) getX(entry + entrySize / 2);
+                        mDynamicDependencies.add(getString(strTab + nameOffset));
+                    }
+                }
+            }
+        }
+        return mDynamicDependencies;
+    }
+
+    /** Returns the dynamic symbols, in the order of the symbol table, without the null symbol. */
+    public Symbol[] getDynSymArr() {
+        if (mDynamicSymbols == null) {
+            mDynamicSymbols = readDynamicSymbols();
+        }
+        return mDynamicSymbols;
+    }
+
+    public Symbol getDynamicSymbol(String name) {
+        for (Symbol symbol : getDynSymArr()) {
+            if (symbol.name.equals(name)) {
+                return symbol;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns a little-endian view of the .rodata section, without copying it.
+     *
+     * @throws IllegalArgumentException if there is no .rodata section
+     */
+    public ByteBuffer getRoData() {
+        int[] roData = mSections.get(RODATA_SECTION_NAME);
+        if (roData == null) {
+            throw new IllegalArgumentException("No " + RODATA_SECTION_NAME + " section");
+        }
+        ByteBuffer buffer = mBuffer.duplicate();
+        buffer.limit(roData[SECTION_OFFSET] + roData[SECTION_SIZE]);
+        buffer.position(roData[SECTION_OFFSET]);
+        return buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /** Returns the null-terminated strings of the .rodata section. */
+    public List<String> getRoStrings() {
+        List<String> strings = new ArrayList<>();
+        int[] roData = mSections.get(RODATA_SECTION_NAME);
+        if (roData == null) {
+            return strings;
+        }
+        int start = roData[SECTION_OFFSET];
+        int end = start + roData[SECTION_SIZE];
+        for (int i = start; i < end; i++) {
+            if (mBuffer.get(i) == 0) {
+                if (i > start) {
+                    strings.add(getString(start, i));
+                }
+                start = i + 1;
+            }
+        }
+        return strings;
+    }
+
+    private void readSectionHeaders() {
+        int shOff = (int) getX(mIs64Bits ? 0x28 : 0x20);
+        int shEntSize = getHalf(mIs64Bits ? 0x3A : 0x2E);
+        int shNum = getHalf(mIs64Bits ? 0x3C : 0x30);
+        int shStrNdx = getHalf(mIs64Bits ? 0x3E : 0x32);
+        for (int i = 0; i < shNum; i++) {
+            int shdr = shOff + i * shEntSize;
+            int[] section = new int[SECTION_FIELD_COUNT];
+            // sh_offset and sh_size follow sh_name, sh_type, sh_flags and sh_addr.
+            section[SECTION_OFFSET] = (int) getX(shdr + (mIs64Bits ? 0x18 : 0x10));
+            section[SECTION_SIZE] = (int) getX(shdr + (mIs64Bits ? 0x20 : 0x14));
+            section[SECTION_LINK] = mBuffer.getInt(shdr + (mIs64Bits ? 0x28 : 0x18));
+            section[SECTION_INFO] = mBuffer.getInt(shdr + (mIs64Bits ? 0x2C : 0x1C));
+            mSectionsByIndex.add(section);
+        }
+        int shStrTab = shStrNdx < shNum ? mSectionsByIndex.get(shStrNdx)[SECTION_OFFSET] : -1;
+        for (int i = 0; i < shNum; i++) {
+            int shdr = shOff + i * shEntSize;
+            int type = mBuffer.getInt(shdr + 4);
+            int[] section = mSectionsByIndex.get(i);
+            if (type == SHT_DYNAMIC || type == SHT_DYNSYM || type == SHT_GNU_VERSYM
+                    || type == SHT_GNU_VERNEED) {
+                mSections.putIfAbsent(sectionKey(type), section);
+            } else if (shStrTab >= 0) {
+                String name = getString(shStrTab + mBuffer.getInt(shdr));
+                if (RODATA_SECTION_NAME.equals(name)) {
+                    mSections.putIfAbsent(name, section);
+                }
+            }
+        }
+    }
+
+    private Symbol[] readDynamicSymbols() {
+        int[] dynSym = mSections.get(sectionKey(SHT_DYNSYM));
+        if (dynSym == null) {
+            return new Symbol[0];
+        }
+        int strTab = getSectionOffset(dynSym[SECTION_LINK]);
+        int[] verSym = mSections.get(sectionKey(SHT_GNU_VERSYM));
+        Map<Integer, String> verNeedFiles = readVersionNeedFiles();
+
+        // Elf32_Sym: st_name, st_value, st_size, st_info, st_other, st_shndx
+        // Elf64_Sym: st_name, st_info, st_other, st_shndx, st_value, st_size
+        int entrySize = mIs64Bits ? 24 : 16;
+        int infoOffset = mIs64Bits ? 4 : 12;
+        int count = dynSym[SECTION_SIZE] / entrySize;
+        List<Symbol> symbols = new ArrayList<>(count);
+        // Skips the null symbol at index 0.
+        for (int i = 1; i < count; i++) {
+            int sym = dynSym[SECTION_OFFSET] + i * entrySize;
+            String name = getString(strTab + mBuffer.getInt(sym));
+            int info = mBuffer.get(sym + infoOffset) & 0xff;
+            int shndx = getHalf(sym + infoOffset + 2);
+
+            String libFileName = GLOBAL_LIB_NAME;
+            if (verSym != null) {
+                int version = getHalf(verSym[SECTION_OFFSET] + i * 2) & ~VERSYM_HIDDEN;
+                if (version == VER_NDX_LOCAL) {
+                    libFileName = LOCAL_LIB_NAME;
+                } else if (version != VER_NDX_GLOBAL) {
+                    libFileName = verNeedFiles.getOrDefault(version, GLOBAL_LIB_NAME);
+                }
+            }
+            symbols.add(new Symbol(name, info, shndx, libFileName));
+        }
+        return symbols.toArray(new Symbol[symbols.size()]);
+    }
+
+    // Maps the version indexes needed from other libraries to the file names of those libraries.
+    private Map<Integer, String> readVersionNeedFiles() {
+        Map<Integer, String> files = new HashMap<>();
+        int[] verNeed = mSections.get(sectionKey(SHT_GNU_VERNEED));
+        if (verNeed == null) {
+            return files;
+        }
+        int strTab = getSectionOffset(verNeed[SECTION_LINK]);
+        // Elf_Verneed: vn_version, vn_cnt, vn_file, vn_aux, vn_next
+        // Elf_Vernaux: vna_hash, vna_flags, vna_other, vna_name, vna_next
+        // sh_info is the number of Elf_Verneed entries, a bad vn_next must not loop forever.
+        int need = verNeed[SECTION_OFFSET];
+        int end = verNeed[SECTION_OFFSET] + verNeed[SECTION_SIZE];
+        for (int n = 0; n < verNeed[SECTION_INFO] && need >= 0 && need + 16 <= end; n++) {
+            int auxCount = getHalf(need + 2);
+            String file = getString(strTab + mBuffer.getInt(need + 4));
+            int aux = need + mBuffer.getInt(need + 8);
+            for (int i = 0; i < auxCount; i++) {
+                files.put(getHalf(aux + 6), file);
+                aux += mBuffer.getInt(aux + 12);
+            }
+            int next = mBuffer.getInt(need + 12);
+            if (next == 0) {
+                break;
+            }
+            need += next;
+        }
+        return files;
+    }
+
+    private static String sectionKey(int type) {
+        return "SHT_" + type;
+    }
+
+    private int getSectionOffset(int index) {
+        return mSectionsByIndex.get(index)[SECTION_OFFSET];
+    }
+
+    private int getHalf(int offset) {
+        return mBuffer.getShort(offset) & 0xffff;
+    }
+
+    private long getX(int offset) {
+        return mIs64Bits ? mBuffer.getLong(offset) : mBuffer.getInt(offset) & 0xffffffffL;
+    }
+
+    private String getString(int offset) {
+        int end = offset;
+        while (mBuffer.get(end) != 0) {
+            end++;
+        }
+        return getString(offset, end);
+    }
+
+    private String getString(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = mBuffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
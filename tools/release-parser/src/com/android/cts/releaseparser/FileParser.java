@@ -21,10 +21,14 @@ import com.android.cts.releaseparser.ReleaseProto.*;
 import com.google.protobuf.TextFormat;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
@@ -33,6 +37,8 @@ import java.util.List;
 public class FileParser {
     private static final String NO_ID = "";
     protected static final int READ_BLOCK_SIZE = 1024;
+    // Files larger than this are hashed by regions instead of a single mapping
+    private static final long MAX_MAP_SIZE = Integer.MAX_VALUE;
 
     // Target File Extensions
     public static final String APK_EXT_TAG = ".apk";
@@ -57,6 +63,7 @@ public class FileParser {
     protected String mContentId;
     protected String mCodeId;
     protected Entry.Builder mFileEntryBuilder;
+    private MappedByteBuffer mMappedFile;
 
     public static FileParser getParser(File file) {
         String fName = file.getName();
@@ -130,11 +137,10 @@ public class FileParser {
         if (NO_ID.equals(mContentId)) {
             try {
                 MessageDigest md = MessageDigest.getInstance("SHA-256");
-                FileInputStream fis = new FileInputStream(mFile);
-                byte[] dataBytes = new byte[READ_BLOCK_SIZE];
-                int nread = 0;
-                while ((nread = fis.read(dataBytes)) != -1) {
-                    md.update(dataBytes, 0, nread);
+                if (mFile.length() <= MAX_MAP_SIZE) {
+                    md.update(getMappedFile());
+                } else {
+                    updateDigestByRegions(md);
                 }
                 // Converts to Base64 String
                 mContentId = Base64.getEncoder().encodeToString(md.digest());
@@ -147,6 +153,34 @@ public class FileParser {
         return mContentId;
     }
 
+    /**
+     * Gets a little-endian view of the whole file, which is memory-mapped once and shared by
+     * hashing & format parsing.
+     *
+     * @return a new ByteBuffer view with its own position & limit
+     */
+    public ByteBuffer getMappedFile() throws IOException {
+        if (mMappedFile == null) {
+            try (FileChannel channel = FileChannel.open(mFile.toPath(), StandardOpenOption.READ)) {
+                mMappedFile = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+        return mMappedFile.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private void updateDigestByRegions(MessageDigest md) throws IOException {
+        try (FileChannel channel = FileChannel.open(mFile.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += MAX_MAP_SIZE) {
+                md.update(
+                        channel.map(
+                                FileChannel.MapMode.READ_ONLY,
+                                position,
+                                Math.min(MAX_MAP_SIZE, size - position)));
+            }
+        }
+    }
+
     public int getAbiBits() {
         return 0;
     }
@@ -184,6 +218,22 @@ public class FileParser {
         return answer;
     }
 
+    public static int getIntLittleEndian(ByteBuffer buffer, int start) {
+        int answer = buffer.getInt(start);
+        if (buffer.order() == ByteOrder.BIG_ENDIAN) {
+            answer = Integer.reverseBytes(answer);
+        }
+        return answer;
+    }
+
+    public static String getString(ByteBuffer buffer, int start, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes);
+    }
+
     public static void writeTextFormatMessage(String outputFileName, Entry fileEntry)
             throws IOException {
         if (outputFileName != null) {
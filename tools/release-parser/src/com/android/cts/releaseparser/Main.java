@@ -33,17 +33,39 @@ public class Main {
                     + "\tto prase a release, such as device build, test suite or app distribution package\n"
                     + "Options:\n"
                     + "\t-i PATH\t path to a release folder\n"
-                    + "\t-o PATH\t path to output files\n";
+                    + "\t-o PATH\t path to output files\n"
+                    + "\t-j N\t number of threads to parse files with, default: 1\n"
+                    + "\t-c PATH\t path to a cache folder of parsed files, default: no cache\n"
+                    + "\t-cs MB\t maximum size of the cache folder in MB, default: no limit\n";
 
     public static void main(final String[] args) {
         try {
             ArgumentParser argParser = new ArgumentParser(args);
             String relFolder = argParser.getParameterElement("i", 0);
             String outputPath = argParser.getParameterElement("o", 0);
+            String threadCount = argParser.getParameterElement("j", 0);
+
+            String cacheFolder = argParser.getParameterElement("c", 0);
+            String cacheSize = argParser.getParameterElement("cs", 0);
+            ParseCache parseCache = null;
+            if (cacheFolder != null) {
+                parseCache =
+                        new ParseCache(
+                                cacheFolder,
+                                cacheSize == null ? 0L : Long.parseLong(cacheSize) * 1024 * 1024);
+            }
 
             // parse a release folder
-            ReleaseParser relParser = new ReleaseParser(relFolder);
+            ReleaseParser relParser =
+                    new ReleaseParser(
+                            relFolder,
+                            threadCount == null ? 1 : Integer.parseInt(threadCount),
+                            parseCache);
             String relNameVer = relParser.getReleaseId();
+            if (parseCache != null) {
+                parseCache.writeStatsCsvFile(
+                        relNameVer, getPathString(outputPath, "%s-ParseCache.csv", relNameVer));
+            }
             relParser.writeRelesaeContentCsvFile(
                     relNameVer, getPathString(outputPath, "%s-ReleaseContent.csv", relNameVer));
 
@@ -16,12 +16,11 @@
 
 package com.android.cts.releaseparser;
 
-import com.android.compatibility.common.util.ReadElf;
 import com.android.cts.releaseparser.ReleaseProto.*;
 
 import java.io.File;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -38,7 +37,7 @@ public class OatParser extends FileParser {
     private OatInfo.Builder mOatInfoBuilder;
     private int mBits;
     private String mArch;
-    private byte[] mRoData;
+    private ByteBuffer mRoData;
     private List<String> mDependencies;
 
     public OatParser(File file) {
@@ -78,7 +77,8 @@ public class OatParser extends FileParser {
         mOatInfoBuilder = OatInfo.newBuilder();
         try {
             mDependencies = new ArrayList<String>();
-            ReadElf elf = ReadElf.read(getFile());
+            // The ELF and .rodata headers are read from the same mapping of the file
+            ElfBuffer elf = new ElfBuffer(getMappedFile());
             mOatInfoBuilder.setBits(elf.getBits());
             mOatInfoBuilder.setArchitecture(elf.getArchitecture());
             mRoData = elf.getRoData();
@@ -91,18 +91,18 @@ public class OatParser extends FileParser {
         }
     }
 
-    private void praseOat(byte[] buffer) throws IllegalArgumentException {
-        if (buffer[0] != OAT_MAGIC[0]
-                || buffer[1] != OAT_MAGIC[1]
-                || buffer[2] != OAT_MAGIC[2]
-                || buffer[3] != OAT_MAGIC[3]) {
-            String content = new String(buffer);
+    private void praseOat(ByteBuffer buffer) throws IllegalArgumentException {
+        if (buffer.get(0) != OAT_MAGIC[0]
+                || buffer.get(1) != OAT_MAGIC[1]
+                || buffer.get(2) != OAT_MAGIC[2]
+                || buffer.get(3) != OAT_MAGIC[3]) {
+            String content = getString(buffer, 0, buffer.limit());
             System.err.println("Invalid OAT file:" + getFileName() + " " + content);
             throw new IllegalArgumentException("Invalid OAT MAGIC");
         }
 
         int offset = 4;
-        String version = new String(Arrays.copyOfRange(buffer, offset, offset + 4));
+        String version = getString(buffer, offset, 4);
         mOatInfoBuilder.setVersion(version);
         offset += 4;
         mOatInfoBuilder.setAdler32Checksum(getIntLittleEndian(buffer, offset));
@@ -188,7 +188,7 @@ public class OatParser extends FileParser {
             offset += 4;
             // dex_file_location_data_
             oatDexInfoBuilder.setDexFileLocationData(
-                    new String(Arrays.copyOfRange(buffer, offset, offset + length)));
+                    getString(buffer, offset, length));
             offset += length;
 
             // dex_file_location_checksum_
@@ -224,27 +224,27 @@ public class OatParser extends FileParser {
     }
 
     // as art/runtime/oat.cc GetStoreValueByKey
-    private Map<String, String> getKeyValuePairMap(byte[] buffer, int start, int size) {
+    private Map<String, String> getKeyValuePairMap(ByteBuffer buffer, int start, int size) {
         HashMap<String, String> keyValuePairMap = new HashMap<String, String>();
         int currentPosition = start;
         int end = start + size;
         String key, value;
         while (currentPosition < end) {
-            key = getString(buffer, currentPosition, end);
+            key = getCString(buffer, currentPosition, end);
             currentPosition += key.length() + 1;
-            value = getString(buffer, currentPosition, end);
+            value = getCString(buffer, currentPosition, end);
             currentPosition += value.length() + 1;
             keyValuePairMap.put(key, value);
         }
         return keyValuePairMap;
     }
 
-    private String getString(byte[] buffer, int start, int end) {
+    private String getCString(ByteBuffer buffer, int start, int end) {
         String str = null;
         int currentPosition = start;
         while (currentPosition < end) {
-            if (buffer[currentPosition] == 0x0) {
-                str = new String(Arrays.copyOfRange(buffer, start, currentPosition));
+            if (buffer.get(currentPosition) == 0x0) {
+                str = getString(buffer, start, currentPosition - start);
                 break;
             } else {
                 currentPosition++;
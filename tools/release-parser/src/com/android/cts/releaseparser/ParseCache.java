@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.cts.releaseparser;
+
+import com.android.cts.releaseparser.ReleaseProto.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An on-disk cache of parsed file {@link Entry} messages.
+ *
+ * <p>Entries are looked up by (absolute path, size, mtime) first, then by (content id, file name,
+ * parser), so that unchanged or moved files are not re-parsed. The content key keeps the file name
+ * and the parser as a parser is picked by the file name, and some fields, e.g. the package name of
+ * a SO, come from it. Cache files are evicted least recently used first once the cache grows over
+ * its size limit.
+ */
+public class ParseCache {
+    // Bumps when a parser changes its Entry output to invalidate all cached entries
+    private static final String CACHE_VERSION = "1";
+    private static final String PATH_KEY_PREFIX = "p-";
+    private static final String CONTENT_KEY_PREFIX = "c-";
+    private static final String CACHE_EXT_TAG = ".pb";
+    private static final String TMP_EXT_TAG = ".tmp";
+
+    private final File mCacheFolder;
+    private final long mMaxSize;
+
+    private final AtomicLong mPathHits = new AtomicLong();
+    private final AtomicLong mContentHits = new AtomicLong();
+    private final AtomicLong mMisses = new AtomicLong();
+    private final AtomicLong mBytesSkipped = new AtomicLong();
+
+    /**
+     * @param cacheFolder folder to store cached entries in, created if missing
+     * @param maxSize maximum total size of the cache files in bytes, 0 for no limit
+     */
+    public ParseCache(String cacheFolder, long maxSize) throws IOException {
+        mCacheFolder = new File(cacheFolder);
+        mMaxSize = maxSize;
+        if (!mCacheFolder.isDirectory() && !mCacheFolder.mkdirs()) {
+            throw new IOException("Cannot create cache folder: " + cacheFolder);
+        }
+    }
+
+    /**
+     * Gets the cached entry of a file by its path, size & mtime.
+     *
+     * @return the cached Entry or null if not found
+     */
+    public Entry getByPath(File file) {
+        Entry entry = read(getPathKey(file));
+        if (entry != null) {
+            mPathHits.incrementAndGet();
+            mBytesSkipped.addAndGet(file.length());
+        }
+        return entry;
+    }
+
+    /**
+     * Gets the cached entry of a file by its content id, name & parser. The caller should update
+     * the path specific fields, e.g. relative path & parent folder, of the returned entry.
+     *
+     * @return the cached Entry or null if not found
+     */
+    public Entry getByContentId(File file, FileParser parser) {
+        String contentId = parser.getFileContentId();
+        if (contentId == null || contentId.isEmpty()) {
+            return null;
+        }
+        Entry entry = read(getContentKey(file, parser, contentId));
+        if (entry != null) {
+            mContentHits.incrementAndGet();
+            mBytesSkipped.addAndGet(file.length());
+        }
+        return entry;
+    }
+
+    /** Records a miss, i.e. a file that had to be parsed. */
+    public void addMiss() {
+        mMisses.incrementAndGet();
+    }
+
+    /** Puts the entry of a file parsed by a parser by both its path key and its content key. */
+    public void put(File file, FileParser parser, Entry entry) {
+        write(getPathKey(file), entry);
+        if (!entry.getContentId().isEmpty()) {
+            write(getContentKey(file, parser, entry.getContentId()), entry);
+        }
+    }
+
+    /** Evicts least recently used cache files till the cache is under its size limit. */
+    public void evict() {
+        if (mMaxSize <= 0) {
+            return;
+        }
+        File[] cacheFiles = mCacheFolder.listFiles((dir, name) -> name.endsWith(CACHE_EXT_TAG));
+        if (cacheFiles == null) {
+            return;
+        }
+        long totalSize = 0L;
+        for (File cacheFile : cacheFiles) {
+            totalSize += cacheFile.length();
+        }
+        Arrays.sort(cacheFiles, Comparator.comparingLong(File::lastModified));
+        for (File cacheFile : cacheFiles) {
+            if (totalSize <= mMaxSize) {
+                break;
+            }
+            long size = cacheFile.length();
+            if (cacheFile.delete()) {
+                totalSize -= size;
+            }
+        }
+    }
+
+    public long getPathHits() {
+        return mPathHits.get();
+    }
+
+    public long getContentHits() {
+        return mContentHits.get();
+    }
+
+    public long getMisses() {
+        return mMisses.get();
+    }
+
+    public long getBytesSkipped() {
+        return mBytesSkipped.get();
+    }
+
+    // writes cache statistics to a CSV file
+    public void writeStatsCsvFile(String relNameVer, String csvFile) {
+        try {
+            FileWriter fWriter = new FileWriter(csvFile);
+            PrintWriter pWriter = new PrintWriter(fWriter);
+            // Header
+            pWriter.printf("release,path_hits,content_hits,misses,bytes_skipped\n");
+            pWriter.printf(
+                    "%s,%d,%d,%d,%d\n",
+                    relNameVer, getPathHits(), getContentHits(), getMisses(), getBytesSkipped());
+            pWriter.flush();
+            pWriter.close();
+        } catch (IOException e) {
+            System.err.println("IOException:" + e.getMessage());
+        }
+    }
+
+    private Entry read(String key) {
+        File cacheFile = new File(mCacheFolder, key + CACHE_EXT_TAG);
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+        try (InputStream input = new FileInputStream(cacheFile)) {
+            Entry entry = Entry.parseFrom(input);
+            // Keeps recently used files from being evicted
+            cacheFile.setLastModified(System.currentTimeMillis());
+            return entry;
+        } catch (IOException e) {
+            // a corrupted or evicted file is a miss
+            System.err.println("Invalid cache file: " + cacheFile + ", err:" + e.getMessage());
+            return null;
+        }
+    }
+
+    private void write(String key, Entry entry) {
+        File cacheFile = new File(mCacheFolder, key + CACHE_EXT_TAG);
+        try {
+            // Writes to a tmp file then moves it, so readers never see a partial entry
+            File tmpFile = File.createTempFile(key, TMP_EXT_TAG, mCacheFolder);
+            try (OutputStream output = new FileOutputStream(tmpFile)) {
+                entry.writeTo(output);
+            }
+            Files.move(
+                    tmpFile.toPath(),
+                    cacheFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Cannot write cache file: " + cacheFile + ", err:" + e.getMessage());
+        }
+    }
+
+    private static String getPathKey(File file) {
+        return PATH_KEY_PREFIX
+                + getDigest(
+                        String.format(
+                                "%s|%s|%d|%d",
+                                CACHE_VERSION,
+                                file.getAbsolutePath(),
+                                file.length(),
+                                file.lastModified()));
+    }
+
+    private static String getContentKey(File file, FileParser parser, String contentId) {
+        return CONTENT_KEY_PREFIX
+                + getDigest(
+                        String.format(
+                                "%s|%s|%s|%s",
+                                CACHE_VERSION,
+                                parser.getClass().getName(),
+                                file.getName(),
+                                contentId));
+    }
+
+    private static String getDigest(String key) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(key.getBytes(StandardCharsets.UTF_8));
+            // URL safe to be used as a file name
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(md.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -33,6 +33,9 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 
 class ReleaseParser {
     private static final String ROOT_FOLDER_TAG = "/";
@@ -64,12 +67,26 @@ class ReleaseParser {
     private static final String TESTCASES_FOLDER_FORMAT = "testcases/%s";
 
     private final String mFolderPath;
+    // number of threads to parse files with, 1 for a serial walk
+    private final int mThreadCount;
+    // cache of parsed file entries, null to parse all files
+    private final ParseCache mParseCache;
     private Path mRootPath;
     private ReleaseContent.Builder mRelContentBuilder;
     private Map<String, Entry> mEntries;
 
     ReleaseParser(String folder) {
+        this(folder, 1);
+    }
+
+    ReleaseParser(String folder, int threadCount) {
+        this(folder, threadCount, null);
+    }
+
+    ReleaseParser(String folder, int threadCount, ParseCache parseCache) {
         mFolderPath = folder;
+        mThreadCount = threadCount;
+        mParseCache = parseCache;
         File fFile = new File(mFolderPath);
         mRootPath = Paths.get(fFile.getAbsolutePath());
         mEntries = new HashMap<String, Entry>();
@@ -93,6 +110,9 @@ class ReleaseParser {
             mRelContentBuilder.setReleaseType(ReleaseType.APP_DISTRIBUTION_PACKAGE);
             // also add the root folder entry
             Entry.Builder fBuilder = parseFolder(mFolderPath);
+            if (mParseCache != null) {
+                mParseCache.evict();
+            }
             if (mRelContentBuilder.getName().equals("")) {
                 System.err.println("Release Name unknown!");
                 mRelContentBuilder.setName(mFolderPath);
@@ -113,10 +133,12 @@ class ReleaseParser {
 
     // Parse all files in a folder and return the foler entry builder
     private Entry.Builder parseFolder(String fPath) {
+        if (mThreadCount > 1) {
+            return parseFolderInParallel(fPath);
+        }
         Entry.Builder folderEntry = Entry.newBuilder();
         File folder = new File(fPath);
-        Path folderPath = Paths.get(folder.getAbsolutePath());
-        String folderRelativePath = mRootPath.relativize(folderPath).toString();
+        String folderRelativePath = getRelativePath(folder);
         File[] fileList = folder.listFiles();
         Long folderSize = 0L;
         List<Entry> entryList = new ArrayList<Entry>();
@@ -124,80 +146,233 @@ class ReleaseParser {
         // walks through all files
         for (File file : fileList) {
             if (file.isFile()) {
-                String fileRelativePath =
-                        mRootPath.relativize(Paths.get(file.getAbsolutePath())).toString();
-                FileParser fParser = FileParser.getParser(file);
-                Entry.Builder fileEntryBuilder = fParser.getFileEntryBuilder();
-                fileEntryBuilder.setRelativePath(fileRelativePath);
-
-                if (folderRelativePath.isEmpty()) {
-                    fileEntryBuilder.setParentFolder(ROOT_FOLDER_TAG);
-                } else {
-                    fileEntryBuilder.setParentFolder(folderRelativePath);
-                }
-
-                Entry.EntryType eType = fParser.getType();
-                switch (eType) {
-                    case TEST_SUITE_TRADEFED:
-                        mRelContentBuilder.setTestSuiteTradefed(fileRelativePath);
-                        TestSuiteTradefedParser tstParser = (TestSuiteTradefedParser) fParser;
-                        // get [cts]-known-failures.xml
-                        mRelContentBuilder.addAllKnownFailures(tstParser.getKnownFailureList());
-                        mRelContentBuilder.setName(tstParser.getName());
-                        mRelContentBuilder.setFullname(tstParser.getFullName());
-                        mRelContentBuilder.setBuildNumber(tstParser.getBuildNumber());
-                        mRelContentBuilder.setTargetArch(tstParser.getTargetArch());
-                        mRelContentBuilder.setVersion(tstParser.getVersion());
-                        mRelContentBuilder.setReleaseType(ReleaseType.TEST_SUITE);
-                        break;
-                    case BUILD_PROP:
-                        BuildPropParser bpParser = (BuildPropParser) fParser;
-                        try {
-                            mRelContentBuilder.setReleaseType(ReleaseType.DEVICE_BUILD);
-                            mRelContentBuilder.setName(bpParser.getName());
-                            mRelContentBuilder.setFullname(bpParser.getFullName());
-                            mRelContentBuilder.setBuildNumber(bpParser.getBuildNumber());
-                            mRelContentBuilder.setVersion(bpParser.getVersion());
-                            mRelContentBuilder.putAllProperties(bpParser.getProperties());
-                        } catch (Exception e) {
-                            System.err.println(
-                                    "No product name, version & etc. in "
-                                            + file.getAbsoluteFile()
-                                            + ", err:"
-                                            + e.getMessage());
-                        }
-                        break;
-                    default:
-                }
-                // System.err.println("File:" + file.getAbsoluteFile());
-                if (fParser.getDependencies() != null) {
-                    fileEntryBuilder.addAllDependencies(fParser.getDependencies());
-                }
-                if (fParser.getDynamicLoadingDependencies() != null) {
-                    fileEntryBuilder.addAllDynamicLoadingDependencies(
-                            fParser.getDynamicLoadingDependencies());
-                }
-                fileEntryBuilder.setAbiBits(fParser.getAbiBits());
-                fileEntryBuilder.setAbiArchitecture(fParser.getAbiArchitecture());
-
-                Entry fEntry = fileEntryBuilder.build();
+                FileParser fParser = parseFile(file, folderRelativePath);
+                setReleaseInfo(fParser);
+                Entry fEntry = fParser.getFileEntryBuilder().build();
                 entryList.add(fEntry);
                 mEntries.put(fEntry.getRelativePath(), fEntry);
                 folderSize += file.length();
             } else if (file.isDirectory()) {
                 // Checks subfolders
                 Entry.Builder subFolderEntry = parseFolder(file.getAbsolutePath());
-                if (folderRelativePath.isEmpty()) {
-                    subFolderEntry.setParentFolder(ROOT_FOLDER_TAG);
-                } else {
-                    subFolderEntry.setParentFolder(folderRelativePath);
-                }
+                subFolderEntry.setParentFolder(getParentFolder(folderRelativePath));
                 Entry sfEntry = subFolderEntry.build();
                 entryList.add(sfEntry);
                 mEntries.put(sfEntry.getRelativePath(), sfEntry);
                 folderSize += sfEntry.getSize();
             }
         }
+        return getFolderEntryBuilder(folderRelativePath, folderSize, entryList);
+    }
+
+    // Parse all files in a folder with a fork-join pool and return the folder entry builder
+    private Entry.Builder parseFolderInParallel(String fPath) {
+        ForkJoinPool pool = new ForkJoinPool(mThreadCount);
+        try {
+            FolderTask rootTask = pool.invoke(new FolderTask(new File(fPath)));
+            // Applies results in the same order as the serial walk, so the output is identical
+            for (FileParser fParser : rootTask.mReleaseInfoParsers) {
+                setReleaseInfo(fParser);
+            }
+            for (Entry entry : rootTask.mDescendantEntries) {
+                mEntries.put(entry.getRelativePath(), entry);
+            }
+            return rootTask.mFolderEntry;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Parses a folder: forks a task for each file and subfolder, then joins them in the listing
+     * order so that the folder content id does not depend on the completion order.
+     */
+    private class FolderTask extends RecursiveTask<FolderTask> {
+        private final File mFolder;
+        private Entry.Builder mFolderEntry;
+        // All entries under this folder, in the order the serial walk would put them
+        private final List<Entry> mDescendantEntries = new ArrayList<Entry>();
+        // TEST_SUITE_TRADEFED & BUILD_PROP parsers, in the order the serial walk would see them
+        private final List<FileParser> mReleaseInfoParsers = new ArrayList<FileParser>();
+
+        FolderTask(File folder) {
+            mFolder = folder;
+        }
+
+        @Override
+        protected FolderTask compute() {
+            String folderRelativePath = getRelativePath(mFolder);
+            File[] fileList = mFolder.listFiles();
+            List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+            for (File file : fileList) {
+                if (file.isFile()) {
+                    tasks.add(new FileTask(file, folderRelativePath));
+                } else if (file.isDirectory()) {
+                    tasks.add(new FolderTask(file));
+                }
+            }
+            invokeAll(tasks);
+
+            Long folderSize = 0L;
+            List<Entry> entryList = new ArrayList<Entry>();
+            for (ForkJoinTask<?> task : tasks) {
+                if (task instanceof FileTask) {
+                    FileTask fileTask = (FileTask) task;
+                    FileParser fParser = fileTask.join();
+                    if (isReleaseInfo(fParser)) {
+                        mReleaseInfoParsers.add(fParser);
+                    }
+                    Entry fEntry = fParser.getFileEntryBuilder().build();
+                    entryList.add(fEntry);
+                    mDescendantEntries.add(fEntry);
+                    folderSize += fileTask.mFile.length();
+                } else {
+                    FolderTask subFolderTask = ((FolderTask) task).join();
+                    mReleaseInfoParsers.addAll(subFolderTask.mReleaseInfoParsers);
+                    mDescendantEntries.addAll(subFolderTask.mDescendantEntries);
+                    Entry.Builder subFolderEntry = subFolderTask.mFolderEntry;
+                    subFolderEntry.setParentFolder(getParentFolder(folderRelativePath));
+                    Entry sfEntry = subFolderEntry.build();
+                    entryList.add(sfEntry);
+                    mDescendantEntries.add(sfEntry);
+                    folderSize += sfEntry.getSize();
+                }
+            }
+            mFolderEntry = getFolderEntryBuilder(folderRelativePath, folderSize, entryList);
+            return this;
+        }
+    }
+
+    /** Parses a single file, i.e. hashing & running its {@link FileParser}. */
+    private class FileTask extends RecursiveTask<FileParser> {
+        private final File mFile;
+        private final String mFolderRelativePath;
+
+        FileTask(File file, String folderRelativePath) {
+            mFile = file;
+            mFolderRelativePath = folderRelativePath;
+        }
+
+        @Override
+        protected FileParser compute() {
+            return parseFile(mFile, mFolderRelativePath);
+        }
+    }
+
+    // Parse a file and return its parser with a complete entry builder
+    private FileParser parseFile(File file, String folderRelativePath) {
+        String fileRelativePath = getRelativePath(file);
+        FileParser fParser = FileParser.getParser(file);
+        // Release info parsers are always run as their properties are not in the entry
+        if (mParseCache != null && !isReleaseInfo(fParser)) {
+            Entry cachedEntry = mParseCache.getByPath(file);
+            if (cachedEntry == null) {
+                cachedEntry = mParseCache.getByContentId(file, fParser);
+            }
+            if (cachedEntry != null) {
+                Entry.Builder fileEntryBuilder = cachedEntry.toBuilder();
+                fileEntryBuilder.setName(fParser.getFileName());
+                fileEntryBuilder.setRelativePath(fileRelativePath);
+                fileEntryBuilder.setParentFolder(getParentFolder(folderRelativePath));
+                return new CachedFileParser(file, fileEntryBuilder);
+            }
+            mParseCache.addMiss();
+        }
+
+        Entry.Builder fileEntryBuilder = fParser.getFileEntryBuilder();
+        fileEntryBuilder.setRelativePath(fileRelativePath);
+        fileEntryBuilder.setParentFolder(getParentFolder(folderRelativePath));
+
+        // System.err.println("File:" + file.getAbsoluteFile());
+        if (fParser.getDependencies() != null) {
+            fileEntryBuilder.addAllDependencies(fParser.getDependencies());
+        }
+        if (fParser.getDynamicLoadingDependencies() != null) {
+            fileEntryBuilder.addAllDynamicLoadingDependencies(
+                    fParser.getDynamicLoadingDependencies());
+        }
+        fileEntryBuilder.setAbiBits(fParser.getAbiBits());
+        fileEntryBuilder.setAbiArchitecture(fParser.getAbiArchitecture());
+        if (mParseCache != null && !isReleaseInfo(fParser)) {
+            mParseCache.put(file, fParser, fileEntryBuilder.build());
+        }
+        return fParser;
+    }
+
+    /** A parser holds an entry from {@link ParseCache} instead of parsing the file. */
+    private static class CachedFileParser extends FileParser {
+        CachedFileParser(File file, Entry.Builder fileEntryBuilder) {
+            super(file);
+            mFileEntryBuilder = fileEntryBuilder;
+            mContentId = fileEntryBuilder.getContentId();
+            mCodeId = fileEntryBuilder.getCodeId();
+        }
+
+        @Override
+        public Entry.EntryType getType() {
+            return mFileEntryBuilder.getType();
+        }
+    }
+
+    private static boolean isReleaseInfo(FileParser fParser) {
+        Entry.EntryType eType = fParser.getType();
+        return eType == Entry.EntryType.TEST_SUITE_TRADEFED
+                || eType == Entry.EntryType.BUILD_PROP;
+    }
+
+    // Set the release name, version & etc. from a test suite tradefed jar or a build.prop
+    private void setReleaseInfo(FileParser fParser) {
+        Entry.EntryType eType = fParser.getType();
+        switch (eType) {
+            case TEST_SUITE_TRADEFED:
+                mRelContentBuilder.setTestSuiteTradefed(
+                        fParser.getFileEntryBuilder().getRelativePath());
+                TestSuiteTradefedParser tstParser = (TestSuiteTradefedParser) fParser;
+                // get [cts]-known-failures.xml
+                mRelContentBuilder.addAllKnownFailures(tstParser.getKnownFailureList());
+                mRelContentBuilder.setName(tstParser.getName());
+                mRelContentBuilder.setFullname(tstParser.getFullName());
+                mRelContentBuilder.setBuildNumber(tstParser.getBuildNumber());
+                mRelContentBuilder.setTargetArch(tstParser.getTargetArch());
+                mRelContentBuilder.setVersion(tstParser.getVersion());
+                mRelContentBuilder.setReleaseType(ReleaseType.TEST_SUITE);
+                break;
+            case BUILD_PROP:
+                BuildPropParser bpParser = (BuildPropParser) fParser;
+                try {
+                    mRelContentBuilder.setReleaseType(ReleaseType.DEVICE_BUILD);
+                    mRelContentBuilder.setName(bpParser.getName());
+                    mRelContentBuilder.setFullname(bpParser.getFullName());
+                    mRelContentBuilder.setBuildNumber(bpParser.getBuildNumber());
+                    mRelContentBuilder.setVersion(bpParser.getVersion());
+                    mRelContentBuilder.putAllProperties(bpParser.getProperties());
+                } catch (Exception e) {
+                    System.err.println(
+                            "No product name, version & etc. in "
+                                    + fParser.getFile().getAbsoluteFile()
+                                    + ", err:"
+                                    + e.getMessage());
+                }
+                break;
+            default:
+        }
+    }
+
+    private String getRelativePath(File file) {
+        return mRootPath.relativize(Paths.get(file.getAbsolutePath())).toString();
+    }
+
+    private static String getParentFolder(String folderRelativePath) {
+        if (folderRelativePath.isEmpty()) {
+            return ROOT_FOLDER_TAG;
+        } else {
+            return folderRelativePath;
+        }
+    }
+
+    private static Entry.Builder getFolderEntryBuilder(
+            String folderRelativePath, Long folderSize, List<Entry> entryList) {
+        Entry.Builder folderEntry = Entry.newBuilder();
         folderEntry.setName(folderRelativePath);
         folderEntry.setSize(folderSize);
         folderEntry.setType(Entry.EntryType.FOLDER);
@@ -16,13 +16,12 @@
 
 package com.android.cts.releaseparser;
 
-import com.android.compatibility.common.util.ReadElf;
 import com.android.cts.releaseparser.ReleaseProto.*;
 import com.google.protobuf.TextFormat;
 
 import java.io.File;
 import java.io.FileOutputStream;
-import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -35,7 +34,7 @@ public class SoParser extends FileParser {
     private String mArch;
     private List<String> mDependencies;
     private List<String> mDynamicLoadingDependencies;
-    private ReadElf mElf;
+    private ByteBuffer mContent;
     private String mPackageName;
     private ApiPackage.Builder mExternalApiPackageBuilder;
     private HashMap<String, ApiClass.Builder> mExternalApiClassBuilderMap;
@@ -56,6 +55,17 @@ public class SoParser extends FileParser {
         mParseInternalApi = false;
     }
 
+    /**
+     * Parses a SO from memory, e.g. an entry of an APK, instead of a file.
+     *
+     * @param name the name of the SO
+     * @param content the content of the SO from its current position
+     */
+    public SoParser(String name, ByteBuffer content) {
+        this(new File(name));
+        mContent = content;
+    }
+
     @Override
     public Entry.EntryType getType() {
         return Entry.EntryType.SO;
@@ -136,7 +146,7 @@ public class SoParser extends FileParser {
         mExternalApiClassBuilderMap = new HashMap<String, ApiClass.Builder>();
         mInternalApiPackageBuilder = ApiPackage.newBuilder();
         try {
-            ReadElf mElf = ReadElf.read(getFile());
+            ElfBuffer mElf = new ElfBuffer(mContent != null ? mContent : getMappedFile());
             mBits = mElf.getBits();
             mArch = mElf.getArchitecture();
             mDependencies = mElf.getDynamicDependencies();
@@ -158,11 +168,11 @@ public class SoParser extends FileParser {
         }
     }
 
-    private void parseApi(ReadElf.Symbol[] symArr) {
+    private void parseApi(ElfBuffer.Symbol[] symArr) {
         ApiClass.Builder mInternalApiClassBuilder = ApiClass.newBuilder();
         mInternalApiClassBuilder.setName(mPackageName);
 
-        for (ReadElf.Symbol symbol : symArr) {
+        for (ElfBuffer.Symbol symbol : symArr) {
             if (symbol.isExtern()) {
                 // Internal methods & fields
                 if (mParseInternalApi) {
@@ -170,7 +180,7 @@ public class SoParser extends FileParser {
                     if (isInternalReferenceSymbol(symbol)) {
                         continue;
                     }
-                    if (symbol.type == ReadElf.Symbol.STT_OBJECT) {
+                    if (symbol.type == ElfBuffer.Symbol.STT_OBJECT) {
                         ApiField.Builder fieldBuilder = ApiField.newBuilder();
                         fieldBuilder.setName(symbol.name);
                         mInternalApiClassBuilder.addFields(fieldBuilder.build());
@@ -185,7 +195,7 @@ public class SoParser extends FileParser {
                 String className = symbol.getExternalLibFileName();
                 ApiClass.Builder apiClassBuilder =
                         ClassUtils.getApiClassBuilder(mExternalApiClassBuilderMap, className);
-                if (symbol.type == ReadElf.Symbol.STT_OBJECT) {
+                if (symbol.type == ElfBuffer.Symbol.STT_OBJECT) {
                     ApiField.Builder fieldBuilder = ApiField.newBuilder();
                     fieldBuilder.setName(symbol.name);
                     apiClassBuilder.addFields(fieldBuilder.build());
@@ -222,7 +232,7 @@ public class SoParser extends FileParser {
         sInternalReferenceSymboleMap.put("_edata", "uninitialized data");
     }
 
-    private static boolean isInternalReferenceSymbol(ReadElf.Symbol sym) {
+    private static boolean isInternalReferenceSymbol(ElfBuffer.Symbol sym) {
         String value = sInternalReferenceSymboleMap.get(sym.name);
         if (value == null) {
             return false;
@@ -231,7 +241,7 @@ public class SoParser extends FileParser {
         }
     }
 
-    private List<String> getDynamicLoadingDependencies(ReadElf elf) throws IOException {
+    private List<String> getDynamicLoadingDependencies(ElfBuffer elf) {
         List<String> depList = new ArrayList<>();
         // check if it does refer to dlopen
         if (elf.getDynamicSymbol("dlopen") != null) {
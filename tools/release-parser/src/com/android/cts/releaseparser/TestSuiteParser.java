@@ -48,7 +48,9 @@ import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Collection;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
@@ -110,6 +112,9 @@ class TestSuiteParser {
     private final String mFolderPath;
     private ReleaseContent mRelContent;
     private TestSuite.Builder mTSBuilder;
+    // file name to the first Entry with the name
+    private Map<String, Entry> mFileEntryMap;
+    private KnownFailureIndex mKnownFailureIndex;
 
     TestSuiteParser(ReleaseContent relContent, String folder) {
         mFolderPath = folder;
@@ -193,14 +198,13 @@ class TestSuiteParser {
     }
 
     private Entry getFileEntry(String name) {
-        Entry fEntry = null;
-        for (Entry et : getFileEntriesList(mRelContent)) {
-            if (name.equals(et.getName())) {
-                fEntry = et;
-                break;
+        if (mFileEntryMap == null) {
+            mFileEntryMap = new HashMap<String, Entry>();
+            for (Entry et : getFileEntriesList(mRelContent)) {
+                mFileEntryMap.putIfAbsent(et.getName(), et);
             }
         }
-        return fEntry;
+        return mFileEntryMap.get(name);
     }
     // Parses test case list from an APK
     private void parseApkTestCase(ApiPackage.Builder pkgBuilder, TestModuleConfig config) {
@@ -481,14 +485,60 @@ class TestSuiteParser {
     }
 
     private String getKnownFailureFilter(String tModule, String tClass, String tMethod) {
-        List<String> knownFailures = mRelContent.getKnownFailuresList();
+        if (mKnownFailureIndex == null) {
+            mKnownFailureIndex = new KnownFailureIndex(mRelContent.getKnownFailuresList());
+        }
         String tsName = String.format(TESTCASE_NAME_FORMAT, tModule, tClass, tMethod);
-        for (String kf : knownFailures) {
-            if (tsName.startsWith(kf)) {
-                return kf;
+        return mKnownFailureIndex.getFilter(tsName);
+    }
+
+    /**
+     * A prefix trie of known failure filters, which finds the filter of a test case in one walk of
+     * its name instead of checking every filter.
+     */
+    static class KnownFailureIndex {
+        private static class Node {
+            private final Map<Character, Node> mChildren = new HashMap<Character, Node>();
+            // index of the first filter ending at this node in the list, -1 if none
+            private int mFilterIndex = -1;
+        }
+
+        private final List<String> mKnownFailures;
+        private final Node mRoot = new Node();
+
+        KnownFailureIndex(List<String> knownFailures) {
+            mKnownFailures = knownFailures;
+            for (int i = 0; i < knownFailures.size(); i++) {
+                Node node = mRoot;
+                for (char c : knownFailures.get(i).toCharArray()) {
+                    node = node.mChildren.computeIfAbsent(c, k -> new Node());
+                }
+                if (node.mFilterIndex < 0) {
+                    node.mFilterIndex = i;
+                }
+            }
+        }
+
+        /**
+         * Gets the known failure filter of a test case.
+         *
+         * @return the first filter in the list which the name starts with, or null if none
+         */
+        String getFilter(String tsName) {
+            Node node = mRoot;
+            int filterIndex = node.mFilterIndex;
+            for (int i = 0; i < tsName.length(); i++) {
+                node = node.mChildren.get(tsName.charAt(i));
+                if (node == null) {
+                    break;
+                }
+                if (node.mFilterIndex >= 0
+                        && (filterIndex < 0 || node.mFilterIndex < filterIndex)) {
+                    filterIndex = node.mFilterIndex;
+                }
             }
+            return filterIndex < 0 ? null : mKnownFailures.get(filterIndex);
         }
-        return null;
     }
 
     // Iterates though all test suite content and prints them.
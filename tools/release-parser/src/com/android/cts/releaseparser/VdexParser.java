@@ -19,8 +19,7 @@ package com.android.cts.releaseparser;
 import com.android.cts.releaseparser.ReleaseProto.*;
 
 import java.io.File;
-import java.io.RandomAccessFile;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
 import java.util.logging.Logger;
 
 // art/runtime/vdex_file.h & vdex_file.cc
@@ -60,30 +59,28 @@ public class VdexParser extends FileParser {
     }
 
     private void parse() {
-        byte[] buffer = new byte[HEADER_SIZE];
         mVdexInfoBuilder = VdexInfo.newBuilder();
 
         try {
-            RandomAccessFile raFile = new RandomAccessFile(getFile(), "r");
-            raFile.seek(0);
-            raFile.readFully(buffer, 0, HEADER_SIZE);
-            raFile.close();
+            // throws if the file is shorter than the header
+            ByteBuffer buffer = getMappedFile();
+            buffer.limit(HEADER_SIZE);
 
             // ToDo: this is specific for 019 VerifierDepsVersion. Need to handle changes for older
             // versions
-            if (buffer[0] != VDEX_MAGIC[0]
-                    || buffer[1] != VDEX_MAGIC[1]
-                    || buffer[2] != VDEX_MAGIC[2]
-                    || buffer[3] != VDEX_MAGIC[3]) {
-                String content = new String(buffer);
+            if (buffer.get(0) != VDEX_MAGIC[0]
+                    || buffer.get(1) != VDEX_MAGIC[1]
+                    || buffer.get(2) != VDEX_MAGIC[2]
+                    || buffer.get(3) != VDEX_MAGIC[3]) {
+                String content = getString(buffer, 0, HEADER_SIZE);
                 System.err.println("Invalid VDEX file:" + getFileName() + " " + content);
                 throw new IllegalArgumentException("Invalid VDEX MAGIC");
             }
             int offset = 4;
-            String version = new String(Arrays.copyOfRange(buffer, offset, offset + 4));
+            String version = getString(buffer, offset, 4);
             mVdexInfoBuilder.setVerifierDepsVersion(version);
             offset += 4;
-            String dex_section_version = new String(Arrays.copyOfRange(buffer, offset, offset + 4));
+            String dex_section_version = getString(buffer, offset, 4);
             mVdexInfoBuilder.setDexSectionVersion(dex_section_version);
             offset += 4;
             int numberOfDexFiles = getIntLittleEndian(buffer, offset);
@@ -18,10 +18,12 @@ package com.android.cts.releaseparser;
 
 import com.android.cts.releaseparser.ReleaseProto.*;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.HashMap;
@@ -31,6 +33,15 @@ import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
 public class ZipParser extends FileParser {
+    // ref: APPNOTE.TXT, .ZIP File Format Specification
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+    private static final int EOCD_SIZE = 22;
+    private static final int CD_SIGNATURE = 0x02014b50;
+    private static final int CD_HEADER_SIZE = 46;
+    private static final int LOCAL_SIGNATURE = 0x04034b50;
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int MAX_COMMENT_SIZE = 0xffff;
+
     private PackageFileContent.Builder mPackageFileContentBuilder;
     private HashMap<String, Entry> mFileMap;
     private List<String> mDependencies;
@@ -38,6 +49,7 @@ public class ZipParser extends FileParser {
     private boolean mParseSo;
     private boolean mParseInternalApi;
     private StringBuilder mCodeIdStringBuilder;
+    private HashMap<String, Integer> mStoredEntryOffsets;
 
     // Todo: provide utilities to parse files in zip, e.g. SOs in an APK
     ZipParser(File file) {
@@ -92,20 +104,80 @@ public class ZipParser extends FileParser {
         mParseInternalApi = parseInternalApi;
     }
 
-    public static File getFilefromZip(ZipFile zipFile, ZipEntry zipEntry) throws IOException {
-        String fileName = zipEntry.getName();
-        File tmpFile = File.createTempFile("RPZ", "");
-        tmpFile.deleteOnExit();
-        InputStream iStream = zipFile.getInputStream(zipEntry);
-        FileOutputStream fOutputStream = new FileOutputStream(tmpFile);
-        byte[] buffer = new byte[READ_BLOCK_SIZE];
-        int length;
-        while ((length = iStream.read(buffer)) >= 0) {
-            fOutputStream.write(buffer, 0, length);
+    /**
+     * Returns the content of a zip entry. A stored entry is a slice of the mapped zip file, e.g. an
+     * uncompressed SO in an APK, others are inflated into memory.
+     */
+    public ByteBuffer getEntryContent(ZipFile zipFile, ZipEntry zipEntry) throws IOException {
+        if (zipEntry.getMethod() == ZipEntry.STORED) {
+            Integer offset = getStoredEntryOffsets().get(zipEntry.getName());
+            if (offset != null) {
+                ByteBuffer content = getMappedFile();
+                content.position(offset);
+                content.limit(offset + (int) zipEntry.getSize());
+                return content.slice();
+            }
+        }
+        int size = zipEntry.getSize() >= 0 ? (int) zipEntry.getSize() : READ_BLOCK_SIZE;
+        ByteArrayOutputStream content = new ByteArrayOutputStream(size);
+        try (InputStream iStream = zipFile.getInputStream(zipEntry)) {
+            byte[] buffer = new byte[READ_BLOCK_SIZE];
+            int length;
+            while ((length = iStream.read(buffer)) != -1) {
+                content.write(buffer, 0, length);
+            }
+        }
+        return ByteBuffer.wrap(content.toByteArray());
+    }
+
+    // Maps the names of stored entries to the offsets of their data in the zip file. Entries of a
+    // zip64 file are not mapped, so they are read by getEntryContent() as if they were compressed.
+    private HashMap<String, Integer> getStoredEntryOffsets() throws IOException {
+        if (mStoredEntryOffsets == null) {
+            mStoredEntryOffsets = new HashMap<String, Integer>();
+            if (getFile().length() > Integer.MAX_VALUE) {
+                return mStoredEntryOffsets;
+            }
+            ByteBuffer zip = getMappedFile();
+            int eocd = zip.limit() - EOCD_SIZE;
+            int minEocd = Math.max(0, eocd - MAX_COMMENT_SIZE);
+            while (eocd >= minEocd && zip.getInt(eocd) != EOCD_SIGNATURE) {
+                eocd--;
+            }
+            if (eocd < minEocd) {
+                return mStoredEntryOffsets;
+            }
+            int count = zip.getShort(eocd + 10) & 0xffff;
+            long cdOffset = zip.getInt(eocd + 16) & 0xffffffffL;
+            int header = (int) Math.min(cdOffset, zip.limit());
+            for (int i = 0; i < count && header + CD_HEADER_SIZE <= zip.limit(); i++) {
+                if (zip.getInt(header) != CD_SIGNATURE) {
+                    break;
+                }
+                int method = zip.getShort(header + 10) & 0xffff;
+                int nameLength = zip.getShort(header + 28) & 0xffff;
+                int extraLength = zip.getShort(header + 30) & 0xffff;
+                int commentLength = zip.getShort(header + 32) & 0xffff;
+                long localOffset = zip.getInt(header + 42) & 0xffffffffL;
+                if (method == ZipEntry.STORED
+                        && localOffset + LOCAL_HEADER_SIZE <= zip.limit()
+                        && zip.getInt((int) localOffset) == LOCAL_SIGNATURE) {
+                    byte[] name = new byte[nameLength];
+                    zip.position(header + CD_HEADER_SIZE);
+                    zip.get(name);
+                    int local = (int) localOffset;
+                    int dataOffset =
+                            local
+                                    + LOCAL_HEADER_SIZE
+                                    + (zip.getShort(local + 26) & 0xffff)
+                                    + (zip.getShort(local + 28) & 0xffff);
+                    mStoredEntryOffsets.put(
+                            new String(name, StandardCharsets.UTF_8), dataOffset);
+                }
+                header += CD_HEADER_SIZE + nameLength + extraLength + commentLength;
+            }
         }
-        iStream.close();
-        fOutputStream.close();
-        return tmpFile;
+        return mStoredEntryOffsets;
     }
 
     public PackageFileContent getPackageFileContent() {
@@ -141,11 +213,10 @@ public class ZipParser extends FileParser {
                     entryBuilder.setType(Entry.EntryType.FILE);
                     appendToCodeID(entry);
                     if (mParseSo) {
-                        // ToDo: to be optimized if taking too long
                         if (name.endsWith(SO_EXT_TAG)) {
                             try {
-                                final File soFile = getFilefromZip(zFile, entry);
-                                SoParser fParser = new SoParser(soFile);
+                                SoParser fParser =
+                                        new SoParser(name, getEntryContent(zFile, entry));
                                 fParser.setPackageName(name);
                                 fParser.setParseInternalApi(mParseInternalApi);
 
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.android.cts.releaseparser;
+
+import com.android.cts.releaseparser.ReleaseProto.*;
+import com.google.protobuf.TextFormat;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/** Unit tests for {@link ReleaseParser} */
+@RunWith(JUnit4.class)
+public class ReleaseParserTest {
+    // a minimal device build layout
+    private static final String[][] TEST_RELEASE_FILES = {
+        {"system", "build.prop"},
+        {"system/app/HelloActivity", "HelloActivity.apk"},
+        {"system/priv-app/Shell", "Shell.apk"},
+        {"system/lib", "libEGL.so"},
+        {"system/etc/permissions", "platform.xml"},
+        {"system/etc/permissions", "android.hardware.vulkan.version.xml"},
+        {"system/framework", "android.test.runner.vdex"},
+        {"system/framework", "android.test.runner.odex"},
+    };
+
+    private final List<File> mTempFolders = new ArrayList<>();
+
+    @After
+    public void tearDown() throws IOException {
+        for (File folder : mTempFolders) {
+            // delete the files before the folders they are in
+            try (Stream<Path> paths = Files.walk(folder.toPath())) {
+                paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        mTempFolders.clear();
+    }
+
+    /**
+     * Test {@link ReleaseParser} returns the same content with a parallel walk as a serial one
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testParallelWalk() throws Exception {
+        File relFolder = createTestRelease();
+        ReleaseContent serialContent = new ReleaseParser(relFolder.getPath()).getReleaseContent();
+        ReleaseContent parallelContent =
+                new ReleaseParser(relFolder.getPath(), 4).getReleaseContent();
+        assertTrue(
+                String.format(
+                        "Parallel walk does not return the same ReleaseContent.\n%s\n%s",
+                        TextFormat.printToString(serialContent),
+                        TextFormat.printToString(parallelContent)),
+                Arrays.equals(serialContent.toByteArray(), parallelContent.toByteArray()));
+    }
+
+    /**
+     * Test {@link ReleaseParser} returns the same content with entries from a {@link ParseCache}
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testParseCache() throws Exception {
+        File relFolder = createTestRelease();
+        File cacheFolder = createTempFolder("cache");
+        ReleaseContent expectedContent = new ReleaseParser(relFolder.getPath()).getReleaseContent();
+
+        ParseCache coldCache = new ParseCache(cacheFolder.getPath(), 0L);
+        ReleaseContent coldContent =
+                new ReleaseParser(relFolder.getPath(), 1, coldCache).getReleaseContent();
+        assertEquals(expectedContent, coldContent);
+        assertEquals(0L, coldCache.getPathHits());
+
+        ParseCache warmCache = new ParseCache(cacheFolder.getPath(), 0L);
+        ReleaseContent warmContent =
+                new ReleaseParser(relFolder.getPath(), 1, warmCache).getReleaseContent();
+        assertEquals(expectedContent, warmContent);
+        assertEquals(coldCache.getMisses(), warmCache.getPathHits());
+        assertEquals(0L, warmCache.getMisses());
+    }
+
+    /**
+     * Test {@link ReleaseParser} reuses the entries of moved files by their content id, but not
+     * for a copy of a file under another name
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testParseCacheByContentId() throws Exception {
+        File cacheFolder = createTempFolder("cache");
+        ParseCache coldCache = new ParseCache(cacheFolder.getPath(), 0L);
+        new ReleaseParser(createTestRelease().getPath(), 1, coldCache).getReleaseContent();
+
+        File movedRelFolder = createTestRelease();
+        File soFile = new File(movedRelFolder, "system/lib/libEGL.so");
+        File soCopy = new File(movedRelFolder, "system/lib/libGLESv2.so");
+        Files.copy(soFile.toPath(), soCopy.toPath());
+        ReleaseContent expectedContent =
+                new ReleaseParser(movedRelFolder.getPath()).getReleaseContent();
+
+        ParseCache warmCache = new ParseCache(cacheFolder.getPath(), 0L);
+        ReleaseContent warmContent =
+                new ReleaseParser(movedRelFolder.getPath(), 1, warmCache).getReleaseContent();
+        assertEquals(expectedContent, warmContent);
+        assertEquals(0L, warmCache.getPathHits());
+        assertEquals(coldCache.getMisses(), warmCache.getContentHits());
+        assertEquals(1L, warmCache.getMisses());
+    }
+
+    private File createTestRelease() throws Exception {
+        File relFolder = createTempFolder("release");
+        for (String[] relFile : TEST_RELEASE_FILES) {
+            File folder = new File(relFolder, relFile[0]);
+            folder.mkdirs();
+            File file = new File(folder, relFile[1]);
+            Files.copy(
+                    ClassUtils.getResrouceFile(getClass(), relFile[1]).toPath(),
+                    file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+        return relFolder;
+    }
+
+    private File createTempFolder(String prefix) throws IOException {
+        File folder = Files.createTempDirectory(prefix).toFile();
+        mTempFolders.add(folder);
+        return folder;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.android.cts.releaseparser;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/** Unit tests for {@link TestSuiteParser} */
+@RunWith(JUnit4.class)
+public class TestSuiteParserTest {
+    // a synthetic suite of modules, each with classes of test methods
+    private static final int MODULE_COUNT = 500;
+    private static final int CLASS_COUNT = 5;
+    private static final int METHOD_COUNT = 5;
+
+    /**
+     * Test {@link TestSuiteParser.KnownFailureIndex} returns the same filter as a linear scan
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testKnownFailureIndex() throws Exception {
+        List<String> knownFailures = new ArrayList<String>();
+        for (int m = 0; m < MODULE_COUNT; m += 3) {
+            // module, class & method level filters, with overlapping prefixes
+            knownFailures.add(String.format("CtsModule%dTestCases.android.test.Class1", m));
+            knownFailures.add(String.format("CtsModule%dTestCases.android.test.Class2#test3", m));
+            knownFailures.add(String.format("CtsModule%dTestCases", m));
+            knownFailures.add(String.format("CtsModule%dTestCases.android.test.Class1", m));
+        }
+        TestSuiteParser.KnownFailureIndex index =
+                new TestSuiteParser.KnownFailureIndex(knownFailures);
+
+        for (int m = 0; m < MODULE_COUNT; m++) {
+            for (int c = 0; c < CLASS_COUNT; c++) {
+                for (int t = 0; t < METHOD_COUNT; t++) {
+                    String tsName =
+                            String.format(
+                                    TestSuiteParser.TESTCASE_NAME_FORMAT,
+                                    String.format("CtsModule%dTestCases", m),
+                                    String.format("android.test.Class%d", c),
+                                    String.format("test%d", t));
+                    assertEquals(tsName, getFilterByScan(knownFailures, tsName),
+                            index.getFilter(tsName));
+                }
+            }
+        }
+    }
+
+    private static String getFilterByScan(List<String> knownFailures, String tsName) {
+        for (String kf : knownFailures) {
+            if (tsName.startsWith(kf)) {
+                return kf;
+            }
+        }
+        return null;
+    }
+}
@@ -30,6 +30,8 @@ import org.junit.runners.Suite.SuiteClasses;
     ApkParserTest.class,
     SoParserTest.class,
     FileParserTest.class,
+    ReleaseParserTest.class,
+    TestSuiteParserTest.class,
 })
 public class UnitTests {
     // empty on purpose
@@ -215,12 +215,15 @@ public class BuildDalvikSuite extends BuildUtilBase {
         scriptDataDir.mkdirs();
         writeToFile(new File(scriptDataDir, "scriptdata"), handler.datafileContent);
 
-        for (BuildStep buildStep : handler.targets) {
-            if (!buildStep.build()) {
-                System.out.println("building failed. buildStep: " +
-                        buildStep.getClass().getName() + ", " + buildStep);
-                System.exit(1);
-            }
+        BuildStepExecutor executor =
+                new BuildStepExecutor(Runtime.getRuntime().availableProcessors());
+        List<BuildStep> failed = executor.build(handler.targets);
+        for (BuildStep buildStep : failed) {
+            System.out.println("building failed. buildStep: " +
+                    buildStep.getClass().getName() + ", " + buildStep);
+        }
+        if (!failed.isEmpty()) {
+            System.exit(1);
         }
     }
 
@@ -21,6 +21,7 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.channels.FileChannel;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -80,8 +81,14 @@ abstract class BuildStep implements Comparable<BuildStep> {
 
     private Set<BuildStep> children;
 
+    /**
+     * Set once the children were built by a {@link BuildStepExecutor}, so that building this
+     * step does not build them again.
+     */
+    private volatile boolean childrenBuilt;
+
     boolean build() {
-        if (children != null) {
+        if (children != null && !childrenBuilt) {
             for (BuildStep child : children) {
                 if (!child.build()) {
                     return false;
@@ -108,6 +115,14 @@ abstract class BuildStep implements Comparable<BuildStep> {
         children.add(child);
     }
 
+    Set<BuildStep> getChildren() {
+        return children == null ? Collections.<BuildStep>emptySet() : children;
+    }
+
+    void setChildrenBuilt() {
+        childrenBuilt = true;
+    }
+
     public static void copyFile(File in, File out) throws IOException {
         FileChannel inChannel = new FileInputStream(in).getChannel();
         FileChannel outChannel = new FileOutputStream(out).getChannel();
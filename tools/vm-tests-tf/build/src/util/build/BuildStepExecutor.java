@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package util.build;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Builds a graph of {@link BuildStep}s on a work-stealing pool.
+ *
+ * Independent steps are built concurrently, the children of a step are always built before the
+ * step itself, and equal steps shared by several parents are only built once.
+ */
+class BuildStepExecutor {
+
+    private final ForkJoinPool pool;
+    private final ConcurrentMap<BuildStep, ForkJoinTask<Boolean>> tasks =
+            new ConcurrentHashMap<BuildStep, ForkJoinTask<Boolean>>();
+
+    BuildStepExecutor(int parallelism) {
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Builds the given targets and their children.
+     *
+     * @return the targets that failed to build, in the order they were given
+     */
+    List<BuildStep> build(Collection<BuildStep> targets) {
+        try {
+            return pool.invoke(new RecursiveTask<List<BuildStep>>() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected List<BuildStep> compute() {
+                    List<ForkJoinTask<Boolean>> results = forkAll(targets);
+                    List<BuildStep> failed = new ArrayList<BuildStep>();
+                    int i = 0;
+                    for (BuildStep target : targets) {
+                        if (!results.get(i++).join()) {
+                            failed.add(target);
+                        }
+                    }
+                    return failed;
+                }
+            });
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Starts building each of the given steps, unless an equal step was already started.
+     */
+    private List<ForkJoinTask<Boolean>> forkAll(Collection<BuildStep> steps) {
+        List<ForkJoinTask<Boolean>> results = new ArrayList<ForkJoinTask<Boolean>>(steps.size());
+        for (BuildStep step : steps) {
+            StepTask task = new StepTask(step);
+            ForkJoinTask<Boolean> existing = tasks.putIfAbsent(step, task);
+            if (existing == null) {
+                // Only the task that got registered is forked, so it runs exactly once.
+                task.fork();
+                existing = task;
+            }
+            results.add(existing);
+        }
+        return results;
+    }
+
+    private class StepTask extends RecursiveTask<Boolean> {
+        private static final long serialVersionUID = 1L;
+
+        private final BuildStep step;
+
+        StepTask(BuildStep step) {
+            this.step = step;
+        }
+
+        @Override
+        protected Boolean compute() {
+            boolean childrenSucceeded = true;
+            for (ForkJoinTask<Boolean> child : forkAll(step.getChildren())) {
+                // Join all of them, so none is left running after a failure.
+                childrenSucceeded &= child.join();
+            }
+            if (!childrenSucceeded) {
+                return false;
+            }
+            step.setChildrenBuilt();
+            return step.build();
+        }
+    }
+}
@@ -24,6 +24,8 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.jar.JarEntry;
 import java.util.jar.JarOutputStream;
 
@@ -32,6 +34,13 @@ import java.util.jar.JarOutputStream;
  */
 public class JarBuildStep extends BuildStep {
 
+    /**
+     * Steps whose input gets staged under the same temporary file (e.g. "classes.dex" in a
+     * package folder shared by several tests) must not run concurrently.
+     */
+    private static final ConcurrentMap<File, Object> tempFileLocks =
+            new ConcurrentHashMap<File, Object>();
+
     String outputJarEntryName;
     private final boolean deleteInputFileAfterBuild;
 
@@ -44,6 +53,16 @@ public class JarBuildStep extends BuildStep {
 
     @Override
     boolean build() {
+        File tempFile = new File(inputFile.folder, outputJarEntryName);
+        if (inputFile.fileName.equals(tempFile)) {
+            return buildJar();
+        }
+        synchronized (tempFileLocks.computeIfAbsent(tempFile, f -> new Object())) {
+            return buildJar();
+        }
+    }
+
+    private boolean buildJar() {
         if (super.build()) {
             File tempFile = new File(inputFile.folder, outputJarEntryName);
             try {
@@ -59,7 +78,8 @@ public class JarBuildStep extends BuildStep {
             }
 
             File outDir = outputFile.fileName.getParentFile();
-            if (!outDir.exists() && !outDir.mkdirs()) {
+            // Another step may be creating the same folder concurrently.
+            if (!outDir.mkdirs() && !outDir.isDirectory()) {
                 System.err.println("failed to create output dir: "
                         + outDir.getAbsolutePath());
                 return false;